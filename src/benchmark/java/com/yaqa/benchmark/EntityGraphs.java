@@ -0,0 +1,101 @@
+package com.yaqa.benchmark;
+
+import com.yaqa.dao.entity.CommentEntity;
+import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.entity.TagEntity;
+import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.projection.QuestionProjection;
+import com.yaqa.model.Tag;
+import org.joda.time.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Synthetic, fully initialized entity graphs shaped like production data: a few tags and images per question
+ * and paragraph sized bodies.
+ */
+public final class EntityGraphs {
+    public static final int TAGS_PER_QUESTION = 4;
+    public static final int IMAGES_PER_QUESTION = 2;
+    public static final int IMAGES_PER_COMMENT = 1;
+
+    private static final String BODY = "How do I make the feed render faster when every question has a dozen " +
+            "comments, several tags and a couple of images attached? The page takes far too long on older phones " +
+            "and I suspect the amount of data we send is part of the problem. Any ideas are welcome.";
+
+    private EntityGraphs() {
+    }
+
+    public static UserEntity user(long id) {
+        final UserEntity user = new UserEntity("user" + id, "$2a$11$hash", "First" + id, "Last" + id,
+                "user" + id + "@example.com", image(id));
+        user.setId(id);
+        return user;
+    }
+
+    public static QuestionEntity question(long id, int comments) {
+        final List<TagEntity> tags = new ArrayList<>();
+        for (int i = 0; i < TAGS_PER_QUESTION; i++) {
+            final TagEntity tag = new TagEntity("tag" + i);
+            tag.setId((long) i + 1);
+            tags.add(tag);
+        }
+
+        final List<ImageEntity> images = new ArrayList<>();
+        for (int i = 0; i < IMAGES_PER_QUESTION; i++) {
+            images.add(image(id * 100 + i));
+        }
+
+        final QuestionEntity question = new QuestionEntity(BODY, user(id % 50), tags, images);
+        question.setId(id);
+        question.setLikesCount(42L);
+        question.setCommentsCount((long) comments);
+
+        final List<CommentEntity> commentEntities = new ArrayList<>();
+        for (int i = 0; i < comments; i++) {
+            final List<ImageEntity> commentImages = new ArrayList<>();
+            for (int j = 0; j < IMAGES_PER_COMMENT; j++) {
+                commentImages.add(image(id * 10_000 + i * 10 + j));
+            }
+
+            final CommentEntity comment = new CommentEntity(BODY, user(i % 50), question, commentImages);
+            comment.setId(id * 1000 + i);
+            comment.setLikesCount((long) i);
+            commentEntities.add(comment);
+        }
+        question.setComments(commentEntities);
+
+        return question;
+    }
+
+    public static Set<Long> likedCommentIds(QuestionEntity question) {
+        final Set<Long> likedCommentIds = new HashSet<>();
+        question.getComments().stream()
+                .filter(c -> c.getId() % 3 == 0)
+                .forEach(c -> likedCommentIds.add(c.getId()));
+        return likedCommentIds;
+    }
+
+    public static QuestionProjection projection(long id) {
+        final QuestionProjection projection = new QuestionProjection(id, BODY, LocalDateTime.now(),
+                id % 50, "user" + id, "First", "Last", "user@example.com", id,
+                42L, 12L, id % 2);
+        for (int i = 0; i < TAGS_PER_QUESTION; i++) {
+            projection.getTags().add(new Tag((long) i + 1, "tag" + i));
+        }
+        for (int i = 0; i < IMAGES_PER_QUESTION; i++) {
+            projection.getImageIds().add(id * 100 + i);
+        }
+        return projection;
+    }
+
+    private static ImageEntity image(long id) {
+        final ImageEntity image = new ImageEntity("image/jpeg");
+        image.setId(id);
+        return image;
+    }
+}
@@ -0,0 +1,90 @@
+package com.yaqa.benchmark;
+
+import com.yaqa.dao.entity.CommentEntity;
+import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.projection.QuestionProjection;
+import com.yaqa.model.Comment;
+import com.yaqa.model.Question;
+import com.yaqa.model.QuestionWithComments;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Entity to model mapping of the question page and of the feed. Run with {@code -prof gc} to see allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelMappingBenchmark {
+    private static final int FEED_PAGE_SIZE = 10;
+
+    @Param({"0", "12", "100"})
+    private int comments;
+
+    private QuestionEntity question;
+    private Set<Long> likedCommentIds;
+    private CommentEntity comment;
+    private List<QuestionEntity> feedEntities;
+    private List<QuestionProjection> feedProjections;
+
+    @Setup
+    public void setUp() {
+        question = EntityGraphs.question(1, comments);
+        likedCommentIds = EntityGraphs.likedCommentIds(question);
+        comment = EntityGraphs.question(2, 1).getComments().get(0);
+
+        feedEntities = new ArrayList<>();
+        feedProjections = new ArrayList<>();
+        for (long id = 1; id <= FEED_PAGE_SIZE; id++) {
+            feedEntities.add(EntityGraphs.question(id, comments));
+            feedProjections.add(EntityGraphs.projection(id));
+        }
+    }
+
+    @Benchmark
+    public Question questionOf() {
+        return Question.of(question, true);
+    }
+
+    @Benchmark
+    public QuestionWithComments questionWithCommentsOf() {
+        return QuestionWithComments.of(question, true, likedCommentIds);
+    }
+
+    @Benchmark
+    public Comment commentOf() {
+        return Comment.of(comment, false);
+    }
+
+    @Benchmark
+    public List<Question> feedPageFromEntities() {
+        return feedEntities.stream()
+                .map(q -> Question.of(q, false))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Question> feedPageFromProjections() {
+        return feedProjections.stream()
+                .map(Question::of)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,67 @@
+package com.yaqa.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.model.Question;
+import com.yaqa.model.QuestionWithComments;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the feed and of the question page, with the object mapper configured the way
+ * Spring MVC configures it for the application (joda module included).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final int FEED_PAGE_SIZE = 10;
+
+    @Param({"0", "12", "100"})
+    private int comments;
+
+    private ObjectMapper objectMapper;
+    private List<Question> feedPage;
+    private QuestionWithComments questionWithComments;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        feedPage = new ArrayList<>();
+        for (long id = 1; id <= FEED_PAGE_SIZE; id++) {
+            feedPage.add(Question.of(EntityGraphs.projection(id)));
+        }
+
+        final QuestionEntity question = EntityGraphs.question(1, comments);
+        questionWithComments = QuestionWithComments.of(question, true, EntityGraphs.likedCommentIds(question));
+    }
+
+    @Benchmark
+    public byte[] feedPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(feedPage);
+    }
+
+    @Benchmark
+    public byte[] questionWithComments() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(questionWithComments);
+    }
+}
@@ -0,0 +1,263 @@
+package com.yaqa.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fills the schema created by hibernate with deterministic synthetic data using plain JDBC batches,
+ * going through the entity manager would take hours for millions of rows.
+ * <p>
+ * Ids are assigned explicitly, so every id sequence is restarted above the seeded ids afterwards.
+ */
+public class DataSeeder {
+    private static final Logger log = LoggerFactory.getLogger(DataSeeder.class);
+    private static final int BATCH_SIZE = 5_000;
+    private static final long MILLIS_PER_QUESTION = 60_000;
+
+    public static final String PASSWORD = "password";
+
+    private final LoadTestOptions options;
+    private final String passwordHash;
+
+    public DataSeeder(LoadTestOptions options, String passwordHash) {
+        this.options = options;
+        this.passwordHash = passwordHash;
+    }
+
+    public static String username(long userId) {
+        return "user" + userId;
+    }
+
+    public void seed(Connection connection) throws SQLException, IOException {
+        final long start = System.currentTimeMillis();
+        connection.setAutoCommit(false);
+
+        seedImages(connection);
+        seedTags(connection);
+        seedUsers(connection);
+        seedQuestions(connection);
+        countTagQuestions(connection);
+        seedComments(connection);
+        seedLikes(connection);
+
+        restartSequence(connection, "IMAGES_ID_SEQ", options.getImages());
+        restartSequence(connection, "TAGS_ID_SEQ", options.getTags());
+        restartSequence(connection, "USERS_ID_SEQ", options.getUsers());
+        restartSequence(connection, "QUESTIONS_ID_SEQ", options.getQuestions());
+        restartSequence(connection, "COMMENTS_ID_SEQ", lastCommentId());
+        restartSequence(connection, "LIKES_ID_SEQ", lastLikeId());
+        connection.commit();
+
+        log.info("Seeded {} in {} s", options, (System.currentTimeMillis() - start) / 1000);
+    }
+
+    private void seedImages(Connection connection) throws SQLException, IOException {
+        final byte[] content = createJpeg();
+        try (PreparedStatement statement = connection.prepareStatement("insert into images " +
+                "(id, contentType, content, contentHash, size, storage) values (?, 'image/jpeg', ?, ?, ?, 'DATABASE')")) {
+            for (long id = 1; id <= options.getImages(); id++) {
+                statement.setLong(1, id);
+                statement.setBytes(2, content);
+                statement.setString(3, String.format("%064x", id));
+                statement.setLong(4, content.length);
+                addBatch(statement, id);
+            }
+            statement.executeBatch();
+        }
+        log.info("Seeded {} images", options.getImages());
+    }
+
+    private void seedTags(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("insert into tags (id, tagName) values (?, ?)")) {
+            for (long id = 1; id <= options.getTags(); id++) {
+                statement.setLong(1, id);
+                statement.setString(2, "tag" + id);
+                addBatch(statement, id);
+            }
+            statement.executeBatch();
+        }
+        log.info("Seeded {} tags", options.getTags());
+    }
+
+    private void seedUsers(Connection connection) throws SQLException {
+        try (PreparedStatement users = connection.prepareStatement("insert into users " +
+                "(id, username, password, firstName, lastName, email, profileImage_id) values (?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement userTags = connection.prepareStatement(
+                     "insert into user_tags (user_id, tag_id) values (?, ?)")) {
+            for (long id = 1; id <= options.getUsers(); id++) {
+                users.setLong(1, id);
+                users.setString(2, username(id));
+                users.setString(3, passwordHash);
+                users.setString(4, "First" + id);
+                users.setString(5, "Last" + id);
+                users.setString(6, username(id) + "@example.com");
+                users.setLong(7, 1 + id % options.getImages());
+                users.addBatch();
+
+                for (int i = 0; i < 5; i++) {
+                    userTags.setLong(1, id);
+                    userTags.setLong(2, 1 + (id * 5 + i) % options.getTags());
+                    userTags.addBatch();
+                }
+                flushBatches(id, users, userTags);
+            }
+            users.executeBatch();
+            userTags.executeBatch();
+        }
+        log.info("Seeded {} users", options.getUsers());
+    }
+
+    private void seedQuestions(Connection connection) throws SQLException {
+        final long firstCreationDate = System.currentTimeMillis() - options.getQuestions() * MILLIS_PER_QUESTION;
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        try (PreparedStatement questions = connection.prepareStatement("insert into questions " +
+                "(id, body, creationDate, author, likesCount, commentsCount, revision) values (?, ?, ?, ?, ?, ?, 0)");
+             PreparedStatement questionTags = connection.prepareStatement(
+                     "insert into question_tags (question_id, tag_id) values (?, ?)")) {
+            for (long id = 1; id <= options.getQuestions(); id++) {
+                questions.setLong(1, id);
+                questions.setString(2, body(id, random));
+                questions.setTimestamp(3, new Timestamp(firstCreationDate + id * MILLIS_PER_QUESTION));
+                questions.setLong(4, 1 + id % options.getUsers());
+                questions.setLong(5, options.getLikesPerQuestion());
+                questions.setLong(6, options.getCommentsPerQuestion());
+                questions.addBatch();
+
+                // consecutive tags, so that a question never gets the same tag twice
+                final long firstTag = random.nextLong(options.getTags());
+                for (int i = 0; i < options.getTagsPerQuestion(); i++) {
+                    questionTags.setLong(1, id);
+                    questionTags.setLong(2, 1 + (firstTag + i) % options.getTags());
+                    questionTags.addBatch();
+                }
+                flushBatches(id, questions, questionTags);
+
+                if (id % 100_000 == 0) {
+                    log.info("Seeded {} questions", id);
+                }
+            }
+            questions.executeBatch();
+            questionTags.executeBatch();
+        }
+    }
+
+    private static void countTagQuestions(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("update tags " +
+                    " set questionsCount = (select count(*) from question_tags qt where qt.tag_id = tags.id)");
+        }
+    }
+
+    private void seedComments(Connection connection) throws SQLException {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        try (PreparedStatement comments = connection.prepareStatement("insert into comments " +
+                "(id, body, creationDate, question_id, author, likesCount) values (?, ?, ?, ?, ?, 0)")) {
+            final Timestamp creationDate = new Timestamp(System.currentTimeMillis());
+            long id = 0;
+            for (long questionId = 1; questionId <= options.getQuestions(); questionId++) {
+                for (int i = 0; i < options.getCommentsPerQuestion(); i++) {
+                    id++;
+                    comments.setLong(1, id);
+                    comments.setString(2, body(id, random));
+                    comments.setTimestamp(3, creationDate);
+                    comments.setLong(4, questionId);
+                    comments.setLong(5, 1 + random.nextLong(options.getUsers()));
+                    addBatch(comments, id);
+                }
+            }
+            comments.executeBatch();
+        }
+        log.info("Seeded {} comments", lastCommentId());
+    }
+
+    private void seedLikes(Connection connection) throws SQLException {
+        final long step = Math.max(1, options.getUsers() / Math.max(1, options.getLikesPerQuestion()));
+
+        try (PreparedStatement likes = connection.prepareStatement(
+                "insert into likes (id, liker, question_id) values (?, ?, ?)")) {
+            long id = 0;
+            for (long questionId = 1; questionId <= options.getQuestions(); questionId++) {
+                for (int i = 0; i < options.getLikesPerQuestion(); i++) {
+                    id++;
+                    likes.setLong(1, id);
+                    likes.setLong(2, 1 + (questionId + i * step) % options.getUsers());
+                    likes.setLong(3, questionId);
+                    addBatch(likes, id);
+                }
+            }
+            likes.executeBatch();
+        }
+        log.info("Seeded {} likes", lastLikeId());
+    }
+
+    private long lastCommentId() {
+        return (long) options.getQuestions() * options.getCommentsPerQuestion();
+    }
+
+    private long lastLikeId() {
+        return (long) options.getQuestions() * options.getLikesPerQuestion();
+    }
+
+    /**
+     * Whatever the id generator does with a sequence value, it never goes below it.
+     */
+    private static void restartSequence(Connection connection, String sequenceName, long lastId) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("alter sequence " + sequenceName + " restart with " + (lastId + 1));
+        }
+    }
+
+    private static void addBatch(PreparedStatement statement, long row) throws SQLException {
+        statement.addBatch();
+        if (row % BATCH_SIZE == 0) {
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Flushes the batches of a row and its join table rows together, parent first.
+     */
+    private static void flushBatches(long row, PreparedStatement parent, PreparedStatement children) throws SQLException {
+        if (row % BATCH_SIZE == 0) {
+            parent.executeBatch();
+            children.executeBatch();
+        }
+    }
+
+    private static String body(long id, ThreadLocalRandom random) {
+        final StringBuilder body = new StringBuilder("Synthetic text #").append(id).append(':');
+        final int words = 20 + random.nextInt(60);
+        for (int i = 0; i < words; i++) {
+            body.append(' ').append(Long.toString(random.nextLong(1_000_000), 36));
+        }
+        return body.toString();
+    }
+
+    private static byte[] createJpeg() throws IOException {
+        final BufferedImage image = new BufferedImage(1280, 960, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.ORANGE, 1280, 960, Color.BLUE));
+        graphics.fillRect(0, 0, 1280, 960);
+        graphics.dispose();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+}
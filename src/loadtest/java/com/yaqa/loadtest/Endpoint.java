@@ -0,0 +1,85 @@
+package com.yaqa.loadtest;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Requests of the load mix, weighted roughly like the traffic of the mobile clients: mostly feeds and
+ * question pages, with some likes and comments in between.
+ */
+public enum Endpoint {
+    FEED("GET /question/paginated", 25,
+            (session, options) -> session.get("/question/paginated")),
+    FEED_PAGE("GET /question/paginated/{lastId}", 15,
+            (session, options) -> session.get("/question/paginated/" + randomQuestionId(options))),
+    QUESTION("GET /question/{id}", 20,
+            (session, options) -> session.get("/question/" + randomQuestionId(options))),
+    SUBSCRIPTION("GET /question/subscription", 8,
+            (session, options) -> session.get("/question/subscription")),
+    MINE("GET /question/mine", 4,
+            (session, options) -> session.get("/question/mine")),
+    TAGS("GET /tag/", 2,
+            (session, options) -> session.get("/tag/")),
+    LIKE_QUESTION("GET /question/{id}/like", 5,
+            (session, options) -> session.get("/question/" + randomQuestionId(options) + "/like")),
+    POST_COMMENT("POST /question/{id}/comment", 3,
+            (session, options) -> session.postJson("/question/" + randomQuestionId(options) + "/comment",
+                    "{\"body\": \"load test comment\"}")),
+    LIKE_COMMENT("GET /comment/{id}/like", 5,
+            (session, options) -> session.get("/comment/" + randomCommentId(options) + "/like")),
+    IMAGE("GET /image/{id}", 8,
+            (session, options) -> session.get("/image/" + randomImageId(options))),
+    IMAGE_VARIANT("GET /image/{id}?size=small", 7,
+            (session, options) -> session.get("/image/" + randomImageId(options) + "?size=small"));
+
+    private final String description;
+    private final int weight;
+    private final Request request;
+
+    Endpoint(String description, int weight, Request request) {
+        this.description = description;
+        this.weight = weight;
+        this.request = request;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return HTTP status of the response
+     */
+    public int execute(HttpSession session, LoadTestOptions options) throws IOException {
+        return request.execute(session, options);
+    }
+
+    /**
+     * Most of the traffic goes to the newest questions.
+     */
+    private static long randomQuestionId(LoadTestOptions options) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long questions = options.getQuestions();
+        if (random.nextInt(10) < 8) {
+            return questions - random.nextLong(Math.max(1, questions / 100));
+        }
+        return 1 + random.nextLong(questions);
+    }
+
+    private static long randomCommentId(LoadTestOptions options) {
+        final long comments = (long) options.getQuestions() * options.getCommentsPerQuestion();
+        return 1 + ThreadLocalRandom.current().nextLong(Math.max(1, comments));
+    }
+
+    private static long randomImageId(LoadTestOptions options) {
+        return 1 + ThreadLocalRandom.current().nextLong(options.getImages());
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        int execute(HttpSession session, LoadTestOptions options) throws IOException;
+    }
+}
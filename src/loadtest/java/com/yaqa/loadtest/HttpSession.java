@@ -0,0 +1,82 @@
+package com.yaqa.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Logged in client of the API, keeping its own session cookie, so that clients on different threads act
+ * as different users. Connections are reused through the keep-alive cache of {@link HttpURLConnection}.
+ */
+public class HttpSession {
+    private final String baseUrl;
+    private final byte[] buffer = new byte[8192];
+    private String sessionCookie;
+
+    public HttpSession(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public void login(String username, String password) throws IOException {
+        final String form = "username=" + URLEncoder.encode(username, "UTF-8") +
+                "&password=" + URLEncoder.encode(password, "UTF-8");
+        final HttpURLConnection connection = open("POST", "/login", "application/x-www-form-urlencoded", form);
+        final int status = readResponse(connection);
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw new IOException("Login of " + username + " failed with status " + status);
+        }
+
+        final String setCookie = connection.getHeaderField("Set-Cookie");
+        if (setCookie == null) {
+            throw new IOException("No session cookie for " + username);
+        }
+        sessionCookie = setCookie.substring(0, setCookie.indexOf(';') > 0 ? setCookie.indexOf(';') : setCookie.length());
+    }
+
+    public int get(String path) throws IOException {
+        return readResponse(open("GET", path, null, null));
+    }
+
+    public int postJson(String path, String json) throws IOException {
+        return readResponse(open("POST", path, "application/json", json));
+    }
+
+    private HttpURLConnection open(String method, String path, String contentType, String body) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setInstanceFollowRedirects(false);
+        connection.setUseCaches(false);
+        if (sessionCookie != null) {
+            connection.setRequestProperty("Cookie", sessionCookie);
+        }
+
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Reads the whole body, the connection goes back to the keep-alive cache only when it has been consumed.
+     */
+    private int readResponse(HttpURLConnection connection) throws IOException {
+        final int status = connection.getResponseCode();
+        final InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            try (InputStream body = in) {
+                while (body.read(buffer) != -1) {
+                    // discard
+                }
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,51 @@
+package com.yaqa.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of one endpoint recorded by one client thread, merged after the run.
+ */
+public class LatencyRecorder {
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+
+    public void record(long latencyNanos, boolean success) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    public void mergeFrom(LatencyRecorder other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        errors += other.errors;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return latency in milliseconds, sorts the recorded values
+     */
+    public double percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(latencies, 0, count);
+        final int index = (int) Math.min(count - 1, Math.ceil(percentile / 100 * count) - 1);
+        return latencies[Math.max(0, index)] / 1_000_000.0;
+    }
+}
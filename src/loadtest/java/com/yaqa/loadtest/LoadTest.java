@@ -0,0 +1,180 @@
+package com.yaqa.loadtest;
+
+import com.yaqa.config.WebConfig;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Boots the application against the in-memory H2 database of the "test" profile, seeds it and drives the
+ * REST API with concurrent logged in clients. Reports latency percentiles and throughput per endpoint,
+ * followed by the number of statements hibernate prepares per request, measured in a single threaded pass.
+ * <p>
+ * mvn -P loadtest test-compile exec:exec -Dloadtest.args="--questions=1000000 --threads=32 --duration=60"
+ */
+public class LoadTest {
+    private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final Endpoint[] endpointsByWeight;
+
+    public LoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.baseUrl = "http://localhost:" + options.getPort();
+
+        final List<Endpoint> endpoints = new ArrayList<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            for (int i = 0; i < endpoint.getWeight(); i++) {
+                endpoints.add(endpoint);
+            }
+        }
+        this.endpointsByWeight = endpoints.toArray(new Endpoint[endpoints.size()]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final LoadTestOptions options = new LoadTestOptions(args);
+
+        final ConfigurableApplicationContext context = new SpringApplicationBuilder(WebConfig.class)
+                .profiles("test")
+                .properties("server.port=" + options.getPort(),
+                        "yaqa.images.storage=FILE_SYSTEM",
+                        "yaqa.images.directory=target/loadtest/images",
+                        "yaqa.metrics.hibernate-statistics=true")
+                .run(args);
+
+        int exitCode = 0;
+        try {
+            final String passwordHash = context.getBean(PasswordEncoder.class).encode(DataSeeder.PASSWORD);
+            try (Connection connection = context.getBean(DataSource.class).getConnection()) {
+                new DataSeeder(options, passwordHash).seed(connection);
+            }
+
+            final Statistics statistics = context.getBean(EntityManagerFactory.class)
+                    .unwrap(SessionFactory.class)
+                    .getStatistics();
+
+            new LoadTest(options).run(statistics);
+        } catch (Exception e) {
+            log.error("Load test failed", e);
+            exitCode = 1;
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    public void run(Statistics statistics) throws Exception {
+        log.info("Logging in {} clients", options.getThreads());
+        final List<HttpSession> sessions = new ArrayList<>();
+        for (int i = 0; i < options.getThreads(); i++) {
+            final HttpSession session = new HttpSession(baseUrl);
+            session.login(DataSeeder.username(i + 1), DataSeeder.PASSWORD);
+            sessions.add(session);
+        }
+
+        log.info("Warming up for {} s, measuring for {} s", options.getWarmupSeconds(), options.getDurationSeconds());
+        final long measureStart = System.nanoTime() + options.getWarmupSeconds() * 1_000_000_000L;
+        final long measureEnd = measureStart + options.getDurationSeconds() * 1_000_000_000L;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(options.getThreads());
+        final List<Future<Map<Endpoint, LatencyRecorder>>> results = new ArrayList<>();
+        for (HttpSession session : sessions) {
+            results.add(executor.submit(() -> drive(session, measureStart, measureEnd)));
+        }
+
+        final Map<Endpoint, LatencyRecorder> merged = newRecorders();
+        for (Future<Map<Endpoint, LatencyRecorder>> result : results) {
+            result.get().forEach((endpoint, recorder) -> merged.get(endpoint).mergeFrom(recorder));
+        }
+        executor.shutdown();
+
+        final Map<Endpoint, Double> statementsPerRequest = countStatements(sessions.get(0), statistics);
+        report(merged, statementsPerRequest);
+    }
+
+    private Map<Endpoint, LatencyRecorder> drive(HttpSession session, long measureStart, long measureEnd) {
+        final Map<Endpoint, LatencyRecorder> recorders = newRecorders();
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long now;
+        while ((now = System.nanoTime()) < measureEnd) {
+            final Endpoint endpoint = endpointsByWeight[random.nextInt(endpointsByWeight.length)];
+
+            boolean success;
+            try {
+                success = endpoint.execute(session, options) < 400;
+            } catch (Exception e) {
+                success = false;
+            }
+
+            if (now >= measureStart) {
+                recorders.get(endpoint).record(System.nanoTime() - now, success);
+            }
+        }
+
+        return recorders;
+    }
+
+    private Map<Endpoint, Double> countStatements(HttpSession session, Statistics statistics) throws Exception {
+        final Map<Endpoint, Double> statementsPerRequest = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            final long before = statistics.getPrepareStatementCount();
+            for (int i = 0; i < options.getProfiledRequests(); i++) {
+                endpoint.execute(session, options);
+            }
+            statementsPerRequest.put(endpoint,
+                    (double) (statistics.getPrepareStatementCount() - before) / options.getProfiledRequests());
+        }
+        return statementsPerRequest;
+    }
+
+    private void report(Map<Endpoint, LatencyRecorder> recorders, Map<Endpoint, Double> statementsPerRequest) {
+        final StringBuilder report = new StringBuilder()
+                .append(String.format("%n%-36s %9s %7s %9s %9s %9s %9s %11s%n",
+                        "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms", "statements"));
+
+        long total = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            final LatencyRecorder recorder = recorders.get(endpoint);
+            total += recorder.getCount();
+            report.append(String.format("%-36s %9d %7d %9.1f %9.2f %9.2f %9.2f %11.1f%n",
+                    endpoint.getDescription(),
+                    recorder.getCount(),
+                    recorder.getErrors(),
+                    (double) recorder.getCount() / options.getDurationSeconds(),
+                    recorder.percentile(50),
+                    recorder.percentile(99),
+                    recorder.percentile(100),
+                    statementsPerRequest.get(endpoint)));
+        }
+        report.append(String.format("%-36s %9d %7s %9.1f%n", "total", total, "",
+                (double) total / options.getDurationSeconds()));
+
+        log.info("Results for {}:{}", options, report);
+    }
+
+    private static Map<Endpoint, LatencyRecorder> newRecorders() {
+        final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new LatencyRecorder());
+        }
+        return recorders;
+    }
+}
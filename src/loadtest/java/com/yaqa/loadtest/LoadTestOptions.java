@@ -0,0 +1,83 @@
+package com.yaqa.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the load test, given as {@code --name=value}.
+ */
+public class LoadTestOptions {
+    private final Map<String, String> values = new HashMap<>();
+
+    public LoadTestOptions(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            final int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+    }
+
+    /** Number of seeded questions. */
+    public int getQuestions() {
+        return getInt("questions", 1_000_000);
+    }
+
+    public int getUsers() {
+        return getInt("users", 10_000);
+    }
+
+    public int getTags() {
+        return getInt("tags", 2_000);
+    }
+
+    public int getTagsPerQuestion() {
+        return getInt("tagsPerQuestion", 3);
+    }
+
+    public int getCommentsPerQuestion() {
+        return getInt("commentsPerQuestion", 2);
+    }
+
+    public int getLikesPerQuestion() {
+        return getInt("likesPerQuestion", 3);
+    }
+
+    public int getImages() {
+        return getInt("images", 1_000);
+    }
+
+    /** Number of concurrent clients, each logged in as a different user. */
+    public int getThreads() {
+        return getInt("threads", 32);
+    }
+
+    public int getWarmupSeconds() {
+        return getInt("warmup", 15);
+    }
+
+    public int getDurationSeconds() {
+        return getInt("duration", 60);
+    }
+
+    /** Requests per endpoint in the single threaded pass counting statements. */
+    public int getProfiledRequests() {
+        return getInt("profiledRequests", 20);
+    }
+
+    public int getPort() {
+        return getInt("port", 18080);
+    }
+
+    private int getInt(String name, int defaultValue) {
+        final String value = values.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value.replace("_", ""));
+    }
+
+    @Override
+    public String toString() {
+        return "questions=" + getQuestions() + ", users=" + getUsers() + ", tags=" + getTags() +
+                ", threads=" + getThreads() + ", warmup=" + getWarmupSeconds() + "s, duration=" + getDurationSeconds() + "s";
+    }
+}
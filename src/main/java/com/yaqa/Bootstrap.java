@@ -1,5 +1,6 @@
 package com.yaqa;
 
+import com.yaqa.config.DataTransferConfig;
 import com.yaqa.config.WebConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
@@ -7,6 +8,10 @@ import org.springframework.boot.context.web.SpringBootServletInitializer;
 
 public class Bootstrap extends SpringBootServletInitializer {
     public static void main(String[] args) {
+        if (DataTransferConfig.isTransferCommand(args)) {
+            new SpringApplicationBuilder(DataTransferConfig.class).web(false).run(args).close();
+            return;
+        }
         SpringApplication.run(WebConfig.class, args);
     }
 
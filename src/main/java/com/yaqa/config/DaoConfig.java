@@ -4,6 +4,7 @@ import com.yaqa.config.env.HerokuDatabaseConfig;
 import com.yaqa.config.env.JelasticDatabaseConfig;
 import com.yaqa.config.env.LocalDatabaseConfig;
 import com.yaqa.config.env.TestDatabaseConfig;
+import com.yaqa.dao.jdbc.InstrumentedDataSource;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
@@ -15,6 +16,7 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -24,6 +26,7 @@ import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 import java.net.MalformedURLException;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 @ComponentScan("com.yaqa.dao")
@@ -37,6 +40,9 @@ import java.util.Properties;
 public class DaoConfig {
     private static final Logger log = LoggerFactory.getLogger(DaoConfig.class);
 
+    // pools are registered in JMX by name, tests run several contexts at once
+    private static final AtomicInteger poolNumber = new AtomicInteger();
+
     @Autowired
     @Qualifier("dbUsername")
     private String dbUsername;
@@ -49,6 +55,9 @@ public class DaoConfig {
     @Qualifier("dbUrl")
     private String dbUrl;
 
+    @Autowired
+    private Environment environment;
+
     @Bean
     public DataSource dataSource() {
         log.info("DB Url: {}", dbUrl);
@@ -64,8 +73,10 @@ public class DaoConfig {
         config.setUsername(dbUsername);
         config.setPassword(dbPassword);
         config.setMaximumPoolSize(50);
+        config.setPoolName("yaqa-" + poolNumber.incrementAndGet());
+        config.setRegisterMbeans(true);
 
-        return new HikariDataSource(config);
+        return new InstrumentedDataSource(new HikariDataSource(config));
     }
 
     @Bean
@@ -83,6 +94,23 @@ public class DaoConfig {
         jpaProperties.setProperty("show_sql", "true");
         jpaProperties.setProperty("format_sql", "true");
         jpaProperties.setProperty("hibernate.hbm2ddl.auto", "update");
+        // statistics are gathered under a global lock in hibernate 4, enable them when the metrics are needed
+        jpaProperties.setProperty("hibernate.generate_statistics",
+                environment.getProperty("yaqa.metrics.hibernate-statistics", "false"));
+        // sequence generators with the pooled-lo optimizer: a sequence value is the first id of a block of
+        // allocationSize ids, so restarting a sequence above the last id is always safe, see IdSequenceMigration
+        jpaProperties.setProperty("hibernate.id.new_generator_mappings", "true");
+        jpaProperties.setProperty("hibernate.id.optimizer.pooled.prefer_lo", "true");
+        jpaProperties.setProperty("hibernate.jdbc.batch_size",
+                environment.getProperty("yaqa.jdbc.batch-size", "50"));
+        jpaProperties.setProperty("hibernate.order_inserts", "true");
+        jpaProperties.setProperty("hibernate.order_updates", "true");
+        // one cache manager per session factory, tests run several contexts at once
+        jpaProperties.setProperty("hibernate.cache.region.factory_class",
+                "org.hibernate.cache.ehcache.EhCacheRegionFactory");
+        jpaProperties.setProperty("net.sf.ehcache.configurationResourceName", "/ehcache.xml");
+        jpaProperties.setProperty("hibernate.cache.use_second_level_cache", "true");
+        jpaProperties.setProperty("hibernate.cache.use_query_cache", "true");
         factory.setJpaProperties(jpaProperties);
 
         return factory;
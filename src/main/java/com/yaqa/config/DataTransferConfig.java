@@ -0,0 +1,89 @@
+package com.yaqa.config;
+
+import com.yaqa.dao.transfer.DataExporter;
+import com.yaqa.dao.transfer.DataImporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Command line export and import of the data, without the web application:
+ * {@code --export=questions.ndjson.gz} or {@code --import=questions.ndjson.gz}, gzipped when the name ends with .gz.
+ * <p>
+ * Exporting images stored on the file system requires the {@code yaqa.images.directory} of the application.
+ * Running nodes don't see an import until they are restarted, see {@link DataImporter}.
+ */
+@Configuration
+@Import(DaoConfig.class)
+public class DataTransferConfig implements CommandLineRunner {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${export:}")
+    private String exportFile;
+
+    @Value("${import:}")
+    private String importFile;
+
+    @Value("${yaqa.images.directory:}")
+    private String imagesDirectory;
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+
+    public static boolean isTransferCommand(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--export=") || arg.startsWith("--import=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (!exportFile.isEmpty()) {
+            try (OutputStream out = openOutput(exportFile)) {
+                new DataExporter(dataSource, imagesDirectory.isEmpty() ? null : Paths.get(imagesDirectory)).export(out);
+            }
+        }
+        if (!importFile.isEmpty()) {
+            try (InputStream in = openInput(importFile)) {
+                new DataImporter(dataSource).importFrom(in);
+            }
+        }
+    }
+
+    private static OutputStream openOutput(String file) throws IOException {
+        final OutputStream out = Files.newOutputStream(Paths.get(file));
+        return file.endsWith(".gz")
+                ? new GZIPOutputStream(out, BUFFER_SIZE)
+                : new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    private static InputStream openInput(String file) throws IOException {
+        final InputStream in = Files.newInputStream(Paths.get(file));
+        return file.endsWith(".gz")
+                ? new GZIPInputStream(in, BUFFER_SIZE)
+                : new BufferedInputStream(in, BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,113 @@
+package com.yaqa.config;
+
+import com.yaqa.dao.CacheRegions;
+import com.yaqa.metrics.JvmMetrics;
+import com.yaqa.metrics.MetricsRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPoolMBean;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+import javax.management.JMX;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Binds the connection pool, hibernate and JVM metrics to the {@link MetricsRegistry}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void bindMetrics() throws MalformedObjectNameException, SQLException {
+        JvmMetrics.bind(metricsRegistry);
+        bindPoolMetrics();
+        bindHibernateMetrics();
+    }
+
+    /**
+     * Hikari exposes the state of the pool through JMX only.
+     */
+    private void bindPoolMetrics() throws MalformedObjectNameException, SQLException {
+        final String poolName = dataSource.unwrap(HikariDataSource.class).getPoolName();
+        final HikariPoolMBean pool = JMX.newMBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName("com.zaxxer.hikari:type=Pool (" + poolName + ")"), HikariPoolMBean.class);
+
+        metricsRegistry.gauge("yaqa_db_pool_connections", MetricsRegistry.label("state", "active"),
+                pool::getActiveConnections);
+        metricsRegistry.gauge("yaqa_db_pool_connections", MetricsRegistry.label("state", "idle"),
+                pool::getIdleConnections);
+        metricsRegistry.gauge("yaqa_db_pool_connections", MetricsRegistry.label("state", "total"),
+                pool::getTotalConnections);
+        metricsRegistry.gauge("yaqa_db_pool_waiting_threads", "", pool::getThreadsAwaitingConnection);
+    }
+
+    /**
+     * Only when hibernate gathers statistics, see yaqa.metrics.hibernate-statistics.
+     */
+    private void bindHibernateMetrics() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+
+        metricsRegistry.counter("yaqa_hibernate_sessions_opened_total", "", statistics::getSessionOpenCount);
+        metricsRegistry.counter("yaqa_hibernate_sessions_closed_total", "", statistics::getSessionCloseCount);
+        metricsRegistry.counter("yaqa_hibernate_transactions_total", "", statistics::getTransactionCount);
+        metricsRegistry.counter("yaqa_hibernate_flushes_total", "", statistics::getFlushCount);
+        metricsRegistry.counter("yaqa_hibernate_statements_prepared_total", "", statistics::getPrepareStatementCount);
+        metricsRegistry.counter("yaqa_hibernate_queries_total", "", statistics::getQueryExecutionCount);
+        metricsRegistry.gauge("yaqa_hibernate_query_max_seconds", "",
+                () -> statistics.getQueryExecutionMaxTime() / 1000.0);
+        metricsRegistry.counter("yaqa_hibernate_entities_loaded_total", "", statistics::getEntityLoadCount);
+        metricsRegistry.counter("yaqa_hibernate_entities_fetched_total", "", statistics::getEntityFetchCount);
+        metricsRegistry.counter("yaqa_hibernate_collections_fetched_total", "", statistics::getCollectionFetchCount);
+
+        for (String region : CacheRegions.ALL) {
+            bindCacheRegionMetrics(statistics, region);
+        }
+    }
+
+    /**
+     * Query cache regions are created on first use, so region statistics are looked up on every scrape.
+     */
+    private void bindCacheRegionMetrics(Statistics statistics, String region) {
+        final String labels = MetricsRegistry.label("region", region);
+        final ToLongFunction<ToLongFunction<SecondLevelCacheStatistics>> value = getter -> {
+            final SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+            return regionStatistics != null ? getter.applyAsLong(regionStatistics) : 0;
+        };
+
+        metricsRegistry.counter("yaqa_hibernate_cache_hits_total", labels,
+                () -> value.applyAsLong(SecondLevelCacheStatistics::getHitCount));
+        metricsRegistry.counter("yaqa_hibernate_cache_misses_total", labels,
+                () -> value.applyAsLong(SecondLevelCacheStatistics::getMissCount));
+        metricsRegistry.counter("yaqa_hibernate_cache_puts_total", labels,
+                () -> value.applyAsLong(SecondLevelCacheStatistics::getPutCount));
+        metricsRegistry.gauge("yaqa_hibernate_cache_elements", labels,
+                () -> value.applyAsLong(SecondLevelCacheStatistics::getElementCountInMemory));
+        metricsRegistry.gauge("yaqa_hibernate_cache_hit_ratio", labels, () -> {
+            final long hits = value.applyAsLong(SecondLevelCacheStatistics::getHitCount);
+            final long requests = hits + value.applyAsLong(SecondLevelCacheStatistics::getMissCount);
+            return requests > 0 ? (double) hits / requests : 0;
+        });
+    }
+}
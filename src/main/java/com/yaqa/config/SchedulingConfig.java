@@ -0,0 +1,15 @@
+package com.yaqa.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Tests call the scheduled maintenance tasks themselves, running them in the background would change
+ * the data under the tests.
+ */
+@Configuration
+@Profile("!test")
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,17 +1,26 @@
 package com.yaqa.config;
 
+import com.yaqa.metrics.MetricsRegistry;
+import com.yaqa.web.filter.RequestMetricsFilter;
 import com.yaqa.web.interceptor.RequestLoggingInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.boot.context.embedded.MultipartConfigFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 import org.springframework.web.servlet.mvc.WebContentInterceptor;
 
+import javax.servlet.MultipartConfigElement;
 import java.util.Properties;
 
 @Configuration
@@ -20,10 +29,18 @@ import java.util.Properties;
 @Import({
     DaoConfig.class,
     ServiceConfig.class,
+    MetricsConfig.class,
     WebSecurityConfig.class
 })
 @EnableAutoConfiguration
 public class WebConfig extends WebMvcConfigurerAdapter {
+    private static final long MULTIPART_OVERHEAD = 64 * 1024;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private Environment environment;
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
@@ -41,4 +58,31 @@ public class WebConfig extends WebMvcConfigurerAdapter {
     public HandlerInterceptor requestLoggingInterceptor() {
         return new RequestLoggingInterceptor();
     }
+
+    /**
+     * Runs ahead of the security filters, so that the statements they issue are accounted too.
+     */
+    @Bean
+    public FilterRegistrationBean requestMetricsFilter(
+            @Value("${yaqa.jdbc.statement-warn-threshold:25}") int statementWarnThreshold) {
+        final RequestMetricsFilter filter = new RequestMetricsFilter(metricsRegistry,
+                environment.acceptsProfiles("local", "test"), statementWarnThreshold);
+
+        final FilterRegistrationBean registration = new FilterRegistrationBean(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Uploaded parts are spooled to disk right away and oversized requests are rejected by the container
+     * before they are read.
+     */
+    @Bean
+    public MultipartConfigElement multipartConfigElement(@Value("${yaqa.images.max-size:10485760}") long maxImageSize) {
+        final MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setFileSizeThreshold(0);
+        factory.setMaxFileSize(maxImageSize);
+        factory.setMaxRequestSize(maxImageSize + MULTIPART_OVERHEAD);
+        return factory.createMultipartConfig();
+    }
 }
@@ -1,16 +1,29 @@
 package com.yaqa.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yaqa.exception.PasswordHashingBusyException;
+import com.yaqa.metrics.MetricsRegistry;
 import com.yaqa.model.User;
+import com.yaqa.service.AuthenticationService;
+import com.yaqa.service.PasswordHashingService;
 import com.yaqa.service.UserService;
+import com.yaqa.service.security.SignedRememberMeServices;
+import com.yaqa.web.ExceptionHandlers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.annotation.web.servlet.configuration.EnableWebMvcSecurity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.codec.Hex;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.rememberme.JdbcTokenRepositoryImpl;
@@ -21,24 +34,46 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.security.SecureRandom;
 
 @Configuration
 @EnableWebMvcSecurity
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
+    private static final Logger log = LoggerFactory.getLogger(WebSecurityConfig.class);
+
+    private static final String SIGNED_REMEMBER_ME = "signed";
 
     @Autowired
     private DataSource dataSource;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * "persistent" tokens are looked up in persistent_logins, "signed" ones are validated by their signature.
+     */
+    @Value("${yaqa.remember-me.mode:persistent}")
+    private String rememberMeMode;
+
+    /**
+     * Secret of the signed tokens, shared by all the nodes.
+     */
+    @Value("${yaqa.remember-me.key:}")
+    private String rememberMeKey;
+
+    @Value("${yaqa.remember-me.validity-seconds:2592000}")
+    private int rememberMeValiditySeconds;
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.jdbcAuthentication()
-                .passwordEncoder(passwordEncoder)
-                .dataSource(dataSource)
-                .usersByUsernameQuery("select username, password, 1 from users where username = ?")
-                .authoritiesByUsernameQuery("select ?, 'ROLE_USER'");
+        auth.userDetailsService(authenticationService)
+                .passwordEncoder(new LoginPasswordEncoder(passwordHashingService));
     }
 
     @Override
@@ -52,23 +87,58 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .and()
                 .authorizeRequests()
                 .antMatchers("/register/**", "/login").permitAll()
+                // authenticated by its own token, see MetricsController
+                .antMatchers("/metrics").permitAll()
                 .antMatchers("/question/**", "/user/**", "/tag/**", "/comment/**").hasRole("USER")
 
                 .and()
                 .formLogin()
                 .successHandler(successHandler())
-                .failureHandler((request, response, auth) -> response.setStatus(HttpServletResponse.SC_UNAUTHORIZED))
+                .failureHandler(WebSecurityConfig::onAuthenticationFailure)
                 .loginProcessingUrl("/login")
                 .usernameParameter("username")
                 .passwordParameter("password")
 
                 .and()
                 .headers().cacheControl()
-                .disable()
+                .disable();
+
+        if (SIGNED_REMEMBER_ME.equals(rememberMeMode)) {
+            final SignedRememberMeServices rememberMeServices = signedRememberMeServices();
+            http.rememberMe()
+                    .key(rememberMeServices.getKey())
+                    .rememberMeServices(rememberMeServices);
+        } else {
+            http.rememberMe()
+                    .userDetailsService(authenticationService)
+                    .tokenRepository(tokenRepository())
+                    .tokenValiditySeconds(Integer.MAX_VALUE);
+        }
+    }
+
+    private static void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+                                                AuthenticationException exception) {
+        if (exception.getCause() instanceof PasswordHashingBusyException) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, ExceptionHandlers.RETRY_AFTER_SECONDS);
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        } else {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        }
+    }
 
-                .rememberMe()
-                .tokenRepository(tokenRepository())
-                .tokenValiditySeconds(Integer.MAX_VALUE);
+    private SignedRememberMeServices signedRememberMeServices() {
+        String key = rememberMeKey;
+        if (key.isEmpty()) {
+            log.warn("yaqa.remember-me.key is not set, remember-me cookies are valid on this node until restart only");
+            final byte[] randomKey = new byte[32];
+            new SecureRandom().nextBytes(randomKey);
+            key = new String(Hex.encode(randomKey));
+        }
+
+        final SignedRememberMeServices rememberMeServices = new SignedRememberMeServices(key, authenticationService);
+        rememberMeServices.setTokenValiditySeconds(rememberMeValiditySeconds);
+        metricsRegistry.gauge("yaqa_remember_me_revoked_tokens", "", rememberMeServices::getRevokedTokenCount);
+        return rememberMeServices;
     }
 
     @Bean
@@ -83,6 +153,31 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         return new CustomAuthenticationSuccessHandler();
     }
 
+    /**
+     * Reports saturated hashing as an authentication service failure, so that the failure handler gets it.
+     */
+    private static class LoginPasswordEncoder implements PasswordEncoder {
+        private final PasswordHashingService passwordHashingService;
+
+        private LoginPasswordEncoder(PasswordHashingService passwordHashingService) {
+            this.passwordHashingService = passwordHashingService;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return passwordHashingService.encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            try {
+                return passwordHashingService.matches(rawPassword, encodedPassword);
+            } catch (PasswordHashingBusyException e) {
+                throw new AuthenticationServiceException(e.getMessage(), e);
+            }
+        }
+    }
+
     private static class CustomAuthenticationSuccessHandler implements AuthenticationSuccessHandler {
         private static final ObjectMapper om = new ObjectMapper();
 
@@ -92,6 +187,13 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         @Override
         public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
                                             Authentication authentication) throws IOException, ServletException {
+            try {
+                userService.rehashPasswordIfNeeded(request.getParameter("password"));
+            } catch (PasswordHashingBusyException e) {
+                // the old hash is still valid, the next login will try again
+                log.debug("Password of {} was not rehashed: {}", authentication.getName(), e.getMessage());
+            }
+
             final User currentUser = userService.getCurrentAuthenticatedUser();
             response.getWriter().write(om.writeValueAsString(currentUser));
         }
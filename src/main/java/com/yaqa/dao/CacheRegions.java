@@ -0,0 +1,18 @@
+package com.yaqa.dao;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Names of the hibernate second-level cache regions, their sizes and time to live are configured in ehcache.xml.
+ */
+public final class CacheRegions {
+    public static final String TAGS = "tags";
+    public static final String USERS = "users";
+    public static final String USERS_BY_NAME = "users-by-name";
+    public static final String IMAGE_METADATA = "image-metadata";
+
+    public static final List<String> ALL = Arrays.asList(TAGS, USERS, USERS_BY_NAME, IMAGE_METADATA);
+
+    private CacheRegions() { }
+}
@@ -2,6 +2,7 @@ package com.yaqa.dao;
 
 import com.yaqa.dao.entity.CommentEntity;
 import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.projection.TextProjection;
 
 import java.util.List;
 
@@ -10,5 +11,29 @@ public interface CommentDao extends GenericDao<CommentEntity> {
 
     List<CommentEntity> findByQuestion(QuestionEntity questionEntity);
 
-    Long getLikeCount(CommentEntity comment);
+    Long getLikeCount(Long commentId);
+
+    /**
+     * Locks the counters of the comment until the end of the transaction, likes of the comment are toggled one at a time.
+     *
+     * @return false if there is no comment with such id
+     */
+    boolean lockCounters(Long commentId);
+
+    /**
+     * @return false if there is no comment with such id
+     */
+    boolean incrementLikesCount(Long commentId, int delta);
+
+    /**
+     * Recomputes like counters of comments with ids in (fromId, toId] from the likes table.
+     *
+     * @return number of comments whose counters had drifted
+     */
+    int reconcileLikesCount(Long fromId, Long toId);
+
+    /**
+     * @return bodies of the comments with ids greater than afterId, in ascending id order
+     */
+    List<TextProjection> getTextsAfterId(Long afterId, int limit);
 }
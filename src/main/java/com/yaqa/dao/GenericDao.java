@@ -8,6 +8,8 @@ public interface GenericDao<T> {
 
     T getById(Long id);
 
+    T getReference(Long id);
+
     void save(T entity);
 
     void remove(T entity);
@@ -15,4 +17,6 @@ public interface GenericDao<T> {
     void refresh(T entity);
 
     T merge(T entity);
+
+    Long getMaxId();
 }
@@ -1,11 +1,23 @@
 package com.yaqa.dao;
 
 import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.projection.ImageMetadata;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface ImageDao extends GenericDao<ImageEntity> {
 
     List<ImageEntity> getByIds(List<Long> imageIds);
 
+    ImageMetadata getMetadataById(Long imageId);
+
+    byte[] getContentById(Long imageId);
+
+    /**
+     * @return the given content hashes which some image has
+     */
+    Set<String> getReferencedContentHashes(Collection<String> contentHashes);
+
 }
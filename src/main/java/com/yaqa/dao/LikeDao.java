@@ -2,5 +2,21 @@ package com.yaqa.dao;
 
 import com.yaqa.dao.entity.LikeEntity;
 
+import java.util.Set;
+
 public interface LikeDao extends GenericDao<LikeEntity> {
+
+    boolean isQuestionLiked(Long likerId, Long questionId);
+
+    Set<Long> getLikedCommentIds(Long likerId, Long questionId);
+
+    /**
+     * @return true if the question was liked by the liker and the like has been removed
+     */
+    boolean removeQuestionLike(Long likerId, Long questionId);
+
+    /**
+     * @return true if the comment was liked by the liker and the like has been removed
+     */
+    boolean removeCommentLike(Long likerId, Long commentId);
 }
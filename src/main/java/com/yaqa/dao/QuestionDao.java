@@ -2,13 +2,52 @@ package com.yaqa.dao;
 
 import com.yaqa.dao.entity.QuestionEntity;
 import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.projection.QuestionProjection;
+import com.yaqa.dao.projection.TextProjection;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface QuestionDao extends GenericDao<QuestionEntity> {
     List<QuestionEntity> getByTagName(String tagName);
 
-    Long getLikeCount(QuestionEntity question);
+    Long getLikeCount(Long questionId);
+
+    /**
+     * Locks the counters of the question until the end of the transaction, likes of the question are toggled one at a time.
+     *
+     * @return false if there is no question with such id
+     */
+    boolean lockCounters(Long questionId);
+
+    /**
+     * @return false if there is no question with such id
+     */
+    boolean incrementLikesCount(Long questionId, int delta);
+
+    void incrementCommentsCount(QuestionEntity question, int delta);
+
+    /**
+     * @return null if there is no question with such id
+     */
+    Long getRevision(Long questionId);
+
+    void incrementRevision(Long questionId);
+
+    void incrementRevisionByComment(Long commentId);
+
+    /**
+     * Bumps revisions of all questions showing the user, either as the author of the question or of a comment.
+     */
+    void incrementRevisionsByParticipant(Long userId);
+
+    /**
+     * Recomputes like and comment counters of questions with ids in (fromId, toId] from the likes and
+     * comments tables.
+     *
+     * @return number of questions whose counters had drifted
+     */
+    int reconcileCounters(Long fromId, Long toId);
 
     List<QuestionEntity> getByUserTagsLimited(UserEntity author, int limit);
 
@@ -25,4 +64,35 @@ public interface QuestionDao extends GenericDao<QuestionEntity> {
     List<QuestionEntity> getCommentedByAuthorLimited(UserEntity author, int limit);
 
     List<QuestionEntity> getCommentedByAuthorLimited(UserEntity author, Long lastId, int limit);
+
+    List<QuestionProjection> getAllProjections(Long viewerId);
+
+    List<QuestionProjection> getProjectionsByTagName(String tagName, Long viewerId);
+
+    List<QuestionProjection> getLastLimitedProjections(Long viewerId, int limit);
+
+    List<QuestionProjection> getBelowIdLimitedProjections(Long viewerId, Long lastId, int limit);
+
+    List<QuestionProjection> getByAuthorLimitedProjections(UserEntity author, Long viewerId, int limit);
+
+    List<QuestionProjection> getByAuthorLimitedProjections(UserEntity author, Long viewerId, Long lastId, int limit);
+
+    List<QuestionProjection> getCommentedByAuthorLimitedProjections(UserEntity author, Long viewerId, int limit);
+
+    List<QuestionProjection> getCommentedByAuthorLimitedProjections(UserEntity author, Long viewerId, Long lastId,
+                                                                    int limit);
+
+    List<QuestionProjection> getByUserTagsLimitedProjections(UserEntity user, int limit);
+
+    List<QuestionProjection> getByUserTagsLimitedProjections(UserEntity user, Long lastId, int limit);
+
+    /**
+     * Projections of the questions with the given ids, newest first. Missing ids are skipped.
+     */
+    List<QuestionProjection> getProjectionsByIds(Collection<Long> ids, Long viewerId);
+
+    /**
+     * @return bodies of the questions with ids greater than afterId, in ascending id order
+     */
+    List<TextProjection> getTextsAfterId(Long afterId, int limit);
 }
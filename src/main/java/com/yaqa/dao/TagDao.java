@@ -1,8 +1,10 @@
 package com.yaqa.dao;
 
 import com.yaqa.dao.entity.TagEntity;
+import com.yaqa.dao.projection.TagCount;
 import com.yaqa.model.Tag;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -12,6 +14,44 @@ public interface TagDao extends GenericDao<TagEntity> {
 
     TagEntity findByName(String tagName);
 
+    /**
+     * Resolves tags by name with at most one query, tags which don't exist are absent from the result.
+     */
+    Map<String, TagEntity> getByNames(Collection<String> tagNames);
+
+    /**
+     * Like {@link #getByNames}, but inserts the missing tags with a single batch. Tags inserted concurrently
+     * by other transactions are picked up instead of failing on the unique name constraint.
+     */
+    Map<String, TagEntity> getOrCreateByNames(Collection<String> tagNames);
+
     Map<Tag, TagEntity> mapTagsToEntities(List<Tag> tags);
 
+    /**
+     * @return tags with ids greater than afterId and their question counts
+     */
+    List<TagCount> getQuestionCounts(Long afterId);
+
+    long getCount();
+
+    /**
+     * @return tags ordered by descending question count and then by id
+     */
+    List<TagCount> getMostUsed(int offset, int limit);
+
+    /**
+     * Version of the tags and their question counts, incremented in the database by every transaction changing
+     * them, so that it also changes with writes of other nodes, imports and reconciliation.
+     */
+    long getMostUsedVersion();
+
+    void incrementQuestionsCount(Collection<Long> tagIds, int delta);
+
+    /**
+     * Recomputes question counters of tags with ids in (fromId, toId] from the question_tags table.
+     *
+     * @return number of tags whose counters had drifted
+     */
+    int reconcileQuestionsCount(Long fromId, Long toId);
+
 }
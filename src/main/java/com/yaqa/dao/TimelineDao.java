@@ -0,0 +1,54 @@
+package com.yaqa.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TimelineDao {
+
+    /**
+     * @return ids of the users subscribed to any of the tags
+     */
+    List<Long> getSubscriberIds(Collection<Long> tagIds);
+
+    /**
+     * Adds the question to the timelines of all the subscribers of the tags, unless it is there already.
+     *
+     * @return number of timelines the question was added to
+     */
+    int addToSubscriberTimelines(Long questionId, Collection<Long> tagIds);
+
+    /**
+     * @param lastId exclusive upper bound, null for the newest questions
+     * @return question ids, newest first
+     */
+    List<Long> getQuestionIds(Long userId, Long lastId, int limit);
+
+    void deleteByUser(Long userId);
+
+    /**
+     * Adds the question to the timelines of the subscribers of the tags which already hold an older question,
+     * unless it is there already. Timelines starting after the question are left alone.
+     *
+     * @return number of timelines the question was added to
+     */
+    int addToSubscriberTimelinesBelow(Long questionId, Collection<Long> tagIds);
+
+    /**
+     * Removes the question from the timelines of the users not subscribed to any of the tags.
+     *
+     * @return number of timelines the question was removed from
+     */
+    int removeFromUnsubscribedTimelines(Long questionId, Collection<Long> tagIds);
+
+    /**
+     * @return ids of the users whose timelines have more than the given number of questions
+     */
+    List<Long> getUsersOverSize(int size);
+
+    /**
+     * Removes all but the newest questions from the timeline of the user.
+     *
+     * @return number of removed questions
+     */
+    int trim(Long userId, int size);
+}
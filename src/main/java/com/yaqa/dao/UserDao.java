@@ -1,9 +1,16 @@
 package com.yaqa.dao;
 
 import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.projection.UserCredentials;
 
 public interface UserDao extends GenericDao<UserEntity> {
 
     UserEntity getByUsername(String username);
 
+    /**
+     * Always read from the database, unlike {@link #getByUsername} which goes through the second-level and query
+     * caches, which don't see the changes made by other nodes until they expire.
+     */
+    UserCredentials getCredentialsByUsername(String username);
+
 }
@@ -1,5 +1,6 @@
 package com.yaqa.dao.entity;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Type;
 import org.joda.time.DateTimeZone;
 import org.joda.time.LocalDateTime;
@@ -9,6 +10,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
 import javax.persistence.ManyToOne;
@@ -20,11 +22,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "comments")
+@Table(name = "comments", indexes = @Index(columnList = "question_id"))
 public class CommentEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "commentsIdSequence")
-    @SequenceGenerator(name = "commentsIdSequence", sequenceName = "COMMENTS_ID_SEQ")
+    @SequenceGenerator(name = "commentsIdSequence", sequenceName = "COMMENTS_ID_SEQ", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -38,6 +40,7 @@ public class CommentEntity {
     private LocalDateTime creationDate = LocalDateTime.now(DateTimeZone.UTC);
 
     @OneToMany(mappedBy = "comment")
+    @BatchSize(size = 50)
     private List<ImageEntity> images = new ArrayList<>();
 
     @NotNull
@@ -50,6 +53,13 @@ public class CommentEntity {
     @JoinColumn(name = "author")
     private UserEntity author;
 
+    /**
+     * Maintained by {@link com.yaqa.dao.CommentDao#incrementLikesCount} and periodically reconciled
+     * against the likes table, never written through the entity itself.
+     */
+    @Column(insertable = false, updatable = false, nullable = false, columnDefinition = "bigint default 0")
+    private Long likesCount = 0L;
+
     @OneToMany(mappedBy = "comment")
     private List<LikeEntity> likes = new ArrayList<>();
 
@@ -98,6 +108,14 @@ public class CommentEntity {
         this.likes = likes;
     }
 
+    public Long getLikesCount() {
+        return likesCount;
+    }
+
+    public void setLikesCount(Long likesCount) {
+        this.likesCount = likesCount;
+    }
+
     public QuestionEntity getQuestion() {
         return question;
     }
@@ -1,33 +1,56 @@
 package com.yaqa.dao.entity;
 
+import org.hibernate.engine.jdbc.BlobProxy;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
 import javax.persistence.Basic;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
 import javax.persistence.ManyToOne;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
+import java.sql.Blob;
 
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = @Index(columnList = "contentHash"))
 public class ImageEntity {
 
+    // property access lets proxies return the id without being initialized
     @Id
+    @Access(AccessType.PROPERTY)
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "imagesIdSequence")
-    @SequenceGenerator(name = "imagesIdSequence", sequenceName = "IMAGES_ID_SEQ")
+    @SequenceGenerator(name = "imagesIdSequence", sequenceName = "IMAGES_ID_SEQ", allocationSize = 20)
     private Long id;
 
     @NotNull
     private String contentType;
 
+    /**
+     * Filled only for images kept in the database. A blob rather than an array, so that an upload is bound
+     * to the insert as a stream.
+     */
     @Basic(fetch = FetchType.LAZY)
     @Lob
-    @NotNull
-    private byte[] content;
+    private Blob content;
+
+    /**
+     * Hex encoded SHA-256 of the content.
+     */
+    private String contentHash;
+
+    private Long size;
+
+    @Enumerated(EnumType.STRING)
+    private ImageStorageType storage;
 
     @ManyToOne(fetch = FetchType.LAZY)
     private QuestionEntity question;
@@ -46,7 +69,11 @@ public class ImageEntity {
     }
 
     public ImageEntity(byte[] content, String contentType) {
-        this.content = content;
+        this.content = BlobProxy.generateProxy(content);
+        this.contentType = contentType;
+    }
+
+    public ImageEntity(String contentType) {
         this.contentType = contentType;
     }
 
@@ -58,11 +85,11 @@ public class ImageEntity {
         this.id = id;
     }
 
-    public byte[] getContent() {
+    public Blob getContent() {
         return content;
     }
 
-    public void setContent(byte[] content) {
+    public void setContent(Blob content) {
         this.content = content;
     }
 
@@ -74,6 +101,30 @@ public class ImageEntity {
         this.contentType = contentType;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public ImageStorageType getStorage() {
+        return storage == null ? ImageStorageType.DATABASE : storage;
+    }
+
+    public void setStorage(ImageStorageType storage) {
+        this.storage = storage;
+    }
+
     public QuestionEntity getQuestion() {
         return question;
     }
@@ -0,0 +1,10 @@
+package com.yaqa.dao.entity;
+
+/**
+ * Where the content of an image is kept. Images stored before the type was introduced have no type
+ * and live in the database.
+ */
+public enum ImageStorageType {
+    DATABASE,
+    FILE_SYSTEM
+}
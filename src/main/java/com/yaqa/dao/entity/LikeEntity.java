@@ -4,18 +4,26 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 
 @Entity
-@Table(name = "likes")
+@Table(name = "likes", indexes = {
+        @Index(columnList = "question_id"),
+        @Index(columnList = "comment_id")
+}, uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"liker", "question_id"}),
+        @UniqueConstraint(columnNames = {"liker", "comment_id"})
+})
 public class LikeEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "likesIdSequence")
-    @SequenceGenerator(name = "likesIdSequence", sequenceName = "LIKES_ID_SEQ")
+    @SequenceGenerator(name = "likesIdSequence", sequenceName = "LIKES_ID_SEQ", allocationSize = 100)
     private Long id;
 
     @NotNull
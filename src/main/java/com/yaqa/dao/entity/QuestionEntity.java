@@ -9,6 +9,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.Lob;
@@ -26,7 +27,7 @@ import java.util.List;
 public class QuestionEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "questionsIdSequence")
-    @SequenceGenerator(name = "questionsIdSequence", sequenceName = "QUESTIONS_ID_SEQ")
+    @SequenceGenerator(name = "questionsIdSequence", sequenceName = "QUESTIONS_ID_SEQ", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -39,6 +40,27 @@ public class QuestionEntity {
     @Type(type = "org.jadira.usertype.dateandtime.joda.PersistentLocalDateTime")
     private LocalDateTime creationDate = LocalDateTime.now(DateTimeZone.UTC);
 
+    /**
+     * Maintained by {@link com.yaqa.dao.QuestionDao#incrementLikesCount} and periodically reconciled
+     * against the likes table, never written through the entity itself.
+     */
+    @Column(insertable = false, updatable = false, nullable = false, columnDefinition = "bigint default 0")
+    private Long likesCount = 0L;
+
+    /**
+     * Maintained by {@link com.yaqa.dao.QuestionDao#incrementCommentsCount} and periodically reconciled
+     * against the comments table, never written through the entity itself.
+     */
+    @Column(insertable = false, updatable = false, nullable = false, columnDefinition = "bigint default 0")
+    private Long commentsCount = 0L;
+
+    /**
+     * Bumped by every change visible on the question page and used as its entity tag. Like the counters it is
+     * written only by bulk updates of {@link com.yaqa.dao.QuestionDao}.
+     */
+    @Column(insertable = false, updatable = false, nullable = false, columnDefinition = "bigint default 0")
+    private Long revision = 0L;
+
     @OneToMany(mappedBy = "question")
     private List<LikeEntity> likes = new ArrayList<>();
 
@@ -56,7 +78,8 @@ public class QuestionEntity {
     @ManyToMany
     @JoinTable(name = "question_tags",
             joinColumns = @JoinColumn(name = "question_id"),
-            inverseJoinColumns = @JoinColumn(name = "tag_id")
+            inverseJoinColumns = @JoinColumn(name = "tag_id"),
+            indexes = @Index(columnList = "tag_id, question_id")
     )
     private List<TagEntity> tags = new ArrayList<>();
 
@@ -136,6 +159,30 @@ public class QuestionEntity {
         this.likes = likes;
     }
 
+    public Long getLikesCount() {
+        return likesCount;
+    }
+
+    public void setLikesCount(Long likesCount) {
+        this.likesCount = likesCount;
+    }
+
+    public Long getCommentsCount() {
+        return commentsCount;
+    }
+
+    public void setCommentsCount(Long commentsCount) {
+        this.commentsCount = commentsCount;
+    }
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
     public List<CommentEntity> getComments() {
         return comments;
     }
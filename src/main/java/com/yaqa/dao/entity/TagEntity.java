@@ -1,29 +1,48 @@
 package com.yaqa.dao.entity;
 
+import com.yaqa.dao.CacheRegions;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.ManyToMany;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "tags")
+@Table(name = "tags", uniqueConstraints = @UniqueConstraint(columnNames = "tagName"),
+        indexes = @Index(columnList = "questionsCount, id"))
+@BatchSize(size = 50)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.TAGS)
 public class TagEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tagsIdSequence")
-    @SequenceGenerator(name = "tagsIdSequence", sequenceName = "TAGS_ID_SEQ")
+    @SequenceGenerator(name = "tagsIdSequence", sequenceName = "TAGS_ID_SEQ", allocationSize = 20)
     private Long id;
 
     @NotNull
     @Size(max = 32)
     private String tagName;
 
+    /**
+     * Maintained by {@link com.yaqa.dao.TagDao#incrementQuestionsCount} and periodically reconciled
+     * against the question_tags table, never written through the entity itself.
+     * Those native updates evict the tags from the second-level cache.
+     */
+    @Column(insertable = false, updatable = false, nullable = false, columnDefinition = "bigint default 0")
+    private Long questionsCount = 0L;
+
     @ManyToMany(mappedBy = "tags")
     private List<QuestionEntity> taggedQuestions = new ArrayList<>();
 
@@ -0,0 +1,32 @@
+package com.yaqa.dao.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The only row counts the changes of the tags and their question counts, it is incremented by the transactions
+ * making them. Written with native updates only.
+ */
+@Entity
+@Table(name = "tag_list_version")
+public class TagListVersionEntity {
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Default constructor that is used by hibernate.
+     */
+    public TagListVersionEntity() {
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,31 @@
+package com.yaqa.dao.entity;
+
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * Question on the home timeline of a subscriber, written when the question is posted. Rows reference
+ * users and questions by id only, so that fan-out is a single insert.
+ */
+@Entity
+@Table(name = "timelines", indexes = @Index(columnList = "user_id, question_id"))
+public class TimelineEntryEntity {
+    @EmbeddedId
+    private TimelineEntryId id;
+
+    /**
+     * Default constructor that is used by hibernate.
+     */
+    public TimelineEntryEntity() {
+    }
+
+    public TimelineEntryEntity(TimelineEntryId id) {
+        this.id = id;
+    }
+
+    public TimelineEntryId getId() {
+        return id;
+    }
+}
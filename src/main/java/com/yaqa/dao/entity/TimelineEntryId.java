@@ -0,0 +1,48 @@
+package com.yaqa.dao.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+public class TimelineEntryId implements Serializable {
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "question_id")
+    private Long questionId;
+
+    /**
+     * Default constructor that is used by hibernate.
+     */
+    public TimelineEntryId() {
+    }
+
+    public TimelineEntryId(Long userId, Long questionId) {
+        this.userId = userId;
+        this.questionId = questionId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final TimelineEntryId that = (TimelineEntryId) o;
+        return Objects.equals(userId, that.userId) && Objects.equals(questionId, that.questionId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId, questionId);
+    }
+}
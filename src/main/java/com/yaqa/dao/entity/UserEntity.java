@@ -1,6 +1,12 @@
 package com.yaqa.dao.entity;
 
+import com.yaqa.dao.CacheRegions;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -17,11 +23,12 @@ import java.util.List;
 
 @Entity
 @Table(name = "users")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.USERS)
 public class UserEntity {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "usersIdSequence")
-    @SequenceGenerator(name = "usersIdSequence", sequenceName = "USERS_ID_SEQ")
+    @SequenceGenerator(name = "usersIdSequence", sequenceName = "USERS_ID_SEQ", allocationSize = 20)
     private Long id;
 
     @NotNull
@@ -30,13 +37,23 @@ public class UserEntity {
     @NotNull
     private String password;
 
+    /**
+     * Incremented when the user changes the password, but not when its hash is upgraded. Signed remember-me
+     * cookies depend on it, so that a new password revokes them.
+     */
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long passwordVersion = 0L;
+
     private String firstName;
 
     private String lastName;
 
     private String email;
 
-    @OneToOne
+    /**
+     * Lazy, so that users read from the second-level cache don't load the image, only its id is used.
+     */
+    @OneToOne(fetch = FetchType.LAZY)
     private ImageEntity profileImage;
 
     @OneToMany(mappedBy = "author")
@@ -156,4 +173,12 @@ public class UserEntity {
     public void setEmail(String email) {
         this.email = email;
     }
+
+    public Long getPasswordVersion() {
+        return passwordVersion;
+    }
+
+    public void setPasswordVersion(Long passwordVersion) {
+        this.passwordVersion = passwordVersion;
+    }
 }
@@ -3,6 +3,7 @@ package com.yaqa.dao.impl;
 import com.yaqa.dao.CommentDao;
 import com.yaqa.dao.entity.CommentEntity;
 import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.projection.TextProjection;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -24,13 +25,51 @@ public class CommentDaoImpl extends GenericDaoImpl<CommentEntity> implements Com
     }
 
     @Override
-    public Long getLikeCount(CommentEntity comment) {
-        return em.createQuery("select count(l) " +
+    public Long getLikeCount(Long commentId) {
+        return em.createQuery("select c.likesCount " +
                         " from CommentEntity c " +
-                        " inner join c.likes as l " +
-                        " where c = :comment",
+                        " where c.id = :commentId",
                 Long.class)
-                .setParameter("comment", comment)
+                .setParameter("commentId", commentId)
                 .getSingleResult();
     }
+
+    @Override
+    public boolean lockCounters(Long commentId) {
+        return lockRow("comments", commentId);
+    }
+
+    @Override
+    public boolean incrementLikesCount(Long commentId, int delta) {
+        return em.createQuery("update CommentEntity c " +
+                " set c.likesCount = c.likesCount + :delta " +
+                " where c.id = :commentId ")
+                .setParameter("delta", (long) delta)
+                .setParameter("commentId", commentId)
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    public int reconcileLikesCount(Long fromId, Long toId) {
+        lockRange("comments", fromId, toId);
+        return createNativeUpdate("update comments " +
+                " set likesCount = (select count(*) from likes l where l.comment_id = comments.id) " +
+                " where id > :fromId and id <= :toId " +
+                " and likesCount <> (select count(*) from likes l where l.comment_id = comments.id) ", CommentEntity.class)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<TextProjection> getTextsAfterId(Long afterId, int limit) {
+        return em.createQuery("select new com.yaqa.dao.projection.TextProjection(c.id, c.question.id, c.body) " +
+                        " from CommentEntity c " +
+                        " where c.id > :afterId " +
+                        " order by c.id",
+                TextProjection.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
 }
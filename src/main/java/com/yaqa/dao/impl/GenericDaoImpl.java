@@ -2,9 +2,11 @@ package com.yaqa.dao.impl;
 
 import com.yaqa.dao.GenericDao;
 import com.yaqa.exception.NotFoundException;
+import org.hibernate.SQLQuery;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import java.util.List;
 
 public class GenericDaoImpl<T> implements GenericDao<T> {
@@ -35,6 +37,11 @@ public class GenericDaoImpl<T> implements GenericDao<T> {
         return entity;
     }
 
+    @Override
+    public T getReference(Long id) {
+        return em.getReference(entityClass, id);
+    }
+
     @Override
     public void save(T entity) {
         em.persist(entity);
@@ -55,4 +62,59 @@ public class GenericDaoImpl<T> implements GenericDao<T> {
         return em.merge(entity);
     }
 
+    @Override
+    public Long getMaxId() {
+        final Long maxId = em.createQuery("select max(e.id) " +
+                        " from " + entityClass.getSimpleName() + " e",
+                Long.class)
+                .getSingleResult();
+        return maxId != null ? maxId : 0L;
+    }
+
+    /**
+     * Hibernate evicts the whole second-level cache after a native update, unless it is told
+     * which entities the statement modifies, their cache regions and the cached queries over their
+     * tables are evicted then. Hibernate flushes only the changes of those entities, while the
+     * statement may read others, so the session is flushed here.
+     */
+    protected Query createNativeUpdate(String sql, Class<?>... modifiedEntities) {
+        em.flush();
+        final Query query = em.createNativeQuery(sql);
+        final SQLQuery sqlQuery = query.unwrap(SQLQuery.class);
+        for (Class<?> modifiedEntity : modifiedEntities) {
+            sqlQuery.addSynchronizedEntityClass(modifiedEntity);
+        }
+        return query;
+    }
+
+    /**
+     * Locks the row until the end of the transaction.
+     *
+     * @return false if there is no row with such id
+     */
+    protected boolean lockRow(String table, Long id) {
+        return !em.createNativeQuery("select id " +
+                " from " + table +
+                " where id = :id " +
+                " for update")
+                .setParameter("id", id)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * Locks the rows of the id range until the end of the transaction. Counters are changed in the transaction
+     * which inserts or deletes the counted rows, so a statement run after this sees the counted rows of every
+     * change applied to the locked counters, and no change can be applied before it commits.
+     */
+    protected void lockRange(String table, Long fromId, Long toId) {
+        em.createNativeQuery("select id " +
+                " from " + table +
+                " where id > :fromId and id <= :toId " +
+                " for update")
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .getResultList();
+    }
+
 }
@@ -1,11 +1,20 @@
 package com.yaqa.dao.impl;
 
+import com.yaqa.dao.CacheRegions;
 import com.yaqa.dao.ImageDao;
 import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.projection.ImageMetadata;
+import com.yaqa.exception.NotFoundException;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 public class ImageDaoImpl extends GenericDaoImpl<ImageEntity> implements ImageDao {
@@ -26,4 +35,55 @@ public class ImageDaoImpl extends GenericDaoImpl<ImageEntity> implements ImageDa
                 .setParameter("imageIds", imageIds)
                 .getResultList();
     }
+
+    /**
+     * Images are not cached as entities because of their content, so the metadata query is cached instead.
+     */
+    @Override
+    public ImageMetadata getMetadataById(Long imageId) {
+        final List<ImageMetadata> result = em.createQuery("select new com.yaqa.dao.projection.ImageMetadata(" +
+                        "   i.id, i.contentType, i.contentHash, i.size, i.storage) " +
+                        " from ImageEntity i " +
+                        " where i.id = :imageId ",
+                ImageMetadata.class)
+                .setParameter("imageId", imageId)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, CacheRegions.IMAGE_METADATA)
+                .getResultList();
+
+        if (result.isEmpty()) {
+            throw new NotFoundException(ImageEntity.class, imageId);
+        }
+        return result.get(0);
+    }
+
+    @Override
+    public byte[] getContentById(Long imageId) {
+        final List<Blob> result = em.createQuery("select i.content " +
+                        " from ImageEntity i " +
+                        " where i.id = :imageId ",
+                Blob.class)
+                .setParameter("imageId", imageId)
+                .getResultList();
+
+        if (result.isEmpty() || result.get(0) == null) {
+            throw new NotFoundException(ImageEntity.class, imageId);
+        }
+        final Blob content = result.get(0);
+        try {
+            return content.getBytes(1, (int) content.length());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to read the content of image " + imageId, e);
+        }
+    }
+
+    @Override
+    public Set<String> getReferencedContentHashes(Collection<String> contentHashes) {
+        return new HashSet<>(em.createQuery("select distinct i.contentHash " +
+                        " from ImageEntity i " +
+                        " where i.contentHash in (:contentHashes) ",
+                String.class)
+                .setParameter("contentHashes", contentHashes)
+                .getResultList());
+    }
 }
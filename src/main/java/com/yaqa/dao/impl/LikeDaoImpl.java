@@ -4,9 +4,57 @@ import com.yaqa.dao.LikeDao;
 import com.yaqa.dao.entity.LikeEntity;
 import org.springframework.stereotype.Repository;
 
+import java.util.HashSet;
+import java.util.Set;
+
 @Repository
 public class LikeDaoImpl extends GenericDaoImpl<LikeEntity> implements LikeDao {
     public LikeDaoImpl() {
         super(LikeEntity.class);
     }
+
+    @Override
+    public boolean isQuestionLiked(Long likerId, Long questionId) {
+        return !em.createQuery("select l.id " +
+                        " from LikeEntity l " +
+                        " where l.liker.id = :likerId " +
+                        " and l.question.id = :questionId ",
+                Long.class)
+                .setParameter("likerId", likerId)
+                .setParameter("questionId", questionId)
+                .getResultList()
+                .isEmpty();
+    }
+
+    @Override
+    public Set<Long> getLikedCommentIds(Long likerId, Long questionId) {
+        return new HashSet<>(em.createQuery("select l.comment.id " +
+                        " from LikeEntity l " +
+                        " where l.liker.id = :likerId " +
+                        " and l.comment.question.id = :questionId ",
+                Long.class)
+                .setParameter("likerId", likerId)
+                .setParameter("questionId", questionId)
+                .getResultList());
+    }
+
+    @Override
+    public boolean removeQuestionLike(Long likerId, Long questionId) {
+        return em.createQuery("delete from LikeEntity l " +
+                " where l.liker.id = :likerId " +
+                " and l.question.id = :questionId ")
+                .setParameter("likerId", likerId)
+                .setParameter("questionId", questionId)
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    public boolean removeCommentLike(Long likerId, Long commentId) {
+        return em.createQuery("delete from LikeEntity l " +
+                " where l.liker.id = :likerId " +
+                " and l.comment.id = :commentId ")
+                .setParameter("likerId", likerId)
+                .setParameter("commentId", commentId)
+                .executeUpdate() > 0;
+    }
 }
@@ -2,14 +2,41 @@ package com.yaqa.dao.impl;
 
 import com.yaqa.dao.QuestionDao;
 import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.entity.TagEntity;
 import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.projection.QuestionProjection;
+import com.yaqa.dao.projection.TextProjection;
+import com.yaqa.model.Tag;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 public class QuestionDaoImpl extends GenericDaoImpl<QuestionEntity> implements QuestionDao {
+    private static final int PROJECTION_BATCH_SIZE = 500;
+    /**
+     * Subscribed tags per union query, so that users with many subscriptions don't produce unbounded statements.
+     */
+    private static final int SUBSCRIPTION_BATCH_SIZE = 50;
+
+    private static final String PROJECTION_QUERY = "select new com.yaqa.dao.projection.QuestionProjection(" +
+            " q.id, q.body, q.creationDate, " +
+            " a.id, a.username, a.firstName, a.lastName, a.email, pi.id, " +
+            " q.likesCount, q.commentsCount, " +
+            " (select count(vl) from LikeEntity vl where vl.question = q and vl.liker.id = :viewerId)) " +
+            " from QuestionEntity q " +
+            " inner join q.author a " +
+            " left join a.profileImage pi ";
 
     public QuestionDaoImpl() {
         super(QuestionEntity.class);
@@ -27,51 +54,115 @@ public class QuestionDaoImpl extends GenericDaoImpl<QuestionEntity> implements Q
     }
 
     @Override
-    public Long getLikeCount(QuestionEntity question) {
-        return em.createQuery("select count(l) " +
+    public Long getLikeCount(Long questionId) {
+        return em.createQuery("select q.likesCount " +
                         " from QuestionEntity q " +
-                        " inner join q.likes l " +
-                        " where q = :question ",
+                        " where q.id = :questionId ",
                 Long.class)
-                .setParameter("question", question)
+                .setParameter("questionId", questionId)
                 .getSingleResult();
     }
 
     @Override
-    public List<QuestionEntity> getByUserTagsLimited(UserEntity author, int limit) {
-        if (author.getSubscriptionTags().isEmpty()) {
-            return Collections.emptyList();
-        }
+    public boolean lockCounters(Long questionId) {
+        return lockRow("questions", questionId);
+    }
 
-        return em.createQuery("select q " +
+    @Override
+    public boolean incrementLikesCount(Long questionId, int delta) {
+        return em.createQuery("update QuestionEntity q " +
+                " set q.likesCount = q.likesCount + :delta, q.revision = q.revision + 1 " +
+                " where q.id = :questionId ")
+                .setParameter("delta", (long) delta)
+                .setParameter("questionId", questionId)
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    public void incrementCommentsCount(QuestionEntity question, int delta) {
+        em.createQuery("update QuestionEntity q " +
+                " set q.commentsCount = q.commentsCount + :delta, q.revision = q.revision + 1 " +
+                " where q.id = :questionId ")
+                .setParameter("delta", (long) delta)
+                .setParameter("questionId", question.getId())
+                .executeUpdate();
+
+        question.setCommentsCount(question.getCommentsCount() + delta);
+    }
+
+    @Override
+    public Long getRevision(Long questionId) {
+        final List<Long> result = em.createQuery("select q.revision " +
                         " from QuestionEntity q " +
-                        " inner join q.tags as t " +
-                        " where t in :tags " +
-                        " group by q.id " +
-                        " order by q.id desc",
-                QuestionEntity.class)
-                .setParameter("tags", author.getSubscriptionTags())
-                .setMaxResults(limit)
+                        " where q.id = :questionId ",
+                Long.class)
+                .setParameter("questionId", questionId)
                 .getResultList();
+
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    @Override
+    public void incrementRevision(Long questionId) {
+        em.createQuery("update QuestionEntity q " +
+                " set q.revision = q.revision + 1 " +
+                " where q.id = :questionId ")
+                .setParameter("questionId", questionId)
+                .executeUpdate();
+    }
+
+    @Override
+    public void incrementRevisionByComment(Long commentId) {
+        em.createQuery("update QuestionEntity q " +
+                " set q.revision = q.revision + 1 " +
+                " where q.id = (select c.question.id from CommentEntity c where c.id = :commentId) ")
+                .setParameter("commentId", commentId)
+                .executeUpdate();
+    }
+
+    @Override
+    public void incrementRevisionsByParticipant(Long userId) {
+        em.createQuery("update QuestionEntity q " +
+                " set q.revision = q.revision + 1 " +
+                " where q.author.id = :userId " +
+                " or q.id in (select c.question.id from CommentEntity c where c.author.id = :userId) ")
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    @Override
+    public int reconcileCounters(Long fromId, Long toId) {
+        lockRange("questions", fromId, toId);
+        return createNativeUpdate("update questions " +
+                " set likesCount = (select count(*) from likes l where l.question_id = questions.id), " +
+                " commentsCount = (select count(*) from comments c where c.question_id = questions.id), " +
+                " revision = revision + 1 " +
+                " where id > :fromId and id <= :toId " +
+                " and (likesCount <> (select count(*) from likes l where l.question_id = questions.id) " +
+                " or commentsCount <> (select count(*) from comments c where c.question_id = questions.id)) ", QuestionEntity.class)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<QuestionEntity> getByUserTagsLimited(UserEntity author, int limit) {
+        return getByUserTagsLimited(author, null, limit);
     }
 
     @Override
     public List<QuestionEntity> getByUserTagsLimited(UserEntity author, Long lastId, int limit) {
-        if (author.getSubscriptionTags().isEmpty()) {
+        final List<Long> ids = getSubscriptionIds(author, lastId, limit);
+        if (ids.isEmpty()) {
             return Collections.emptyList();
         }
 
         return em.createQuery("select q " +
                         " from QuestionEntity q " +
-                        " inner join q.tags as t " +
-                        " where t in :tags " +
-                        " and q.id < :lastId " +
-                        " group by q.id " +
+                        " where q.id in (:ids) " +
                         " order by q.id desc",
                 QuestionEntity.class)
-                .setParameter("tags", author.getSubscriptionTags())
-                .setParameter("lastId", lastId)
-                .setMaxResults(limit)
+                .setParameter("ids", ids)
                 .getResultList();
     }
 
@@ -152,4 +243,253 @@ public class QuestionDaoImpl extends GenericDaoImpl<QuestionEntity> implements Q
                 .setMaxResults(limit)
                 .getResultList();
     }
+
+    @Override
+    public List<QuestionProjection> getAllProjections(Long viewerId) {
+        return findProjections("", Collections.emptyMap(), viewerId, null);
+    }
+
+    @Override
+    public List<QuestionProjection> getProjectionsByTagName(String tagName, Long viewerId) {
+        return findProjections(" where q.id in (" +
+                        " select tq.id " +
+                        " from QuestionEntity tq " +
+                        " inner join tq.tags t " +
+                        " where t.tagName = :tagName) ",
+                Collections.singletonMap("tagName", tagName), viewerId, null);
+    }
+
+    @Override
+    public List<QuestionProjection> getLastLimitedProjections(Long viewerId, int limit) {
+        return findProjections("", Collections.emptyMap(), viewerId, limit);
+    }
+
+    @Override
+    public List<QuestionProjection> getBelowIdLimitedProjections(Long viewerId, Long lastId, int limit) {
+        return findProjections(" where q.id < :lastId ",
+                Collections.singletonMap("lastId", lastId), viewerId, limit);
+    }
+
+    @Override
+    public List<QuestionProjection> getByAuthorLimitedProjections(UserEntity author, Long viewerId, int limit) {
+        return findProjections(" where q.author = :author ",
+                Collections.singletonMap("author", author), viewerId, limit);
+    }
+
+    @Override
+    public List<QuestionProjection> getByAuthorLimitedProjections(UserEntity author, Long viewerId, Long lastId,
+                                                                  int limit) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("author", author);
+        params.put("lastId", lastId);
+
+        return findProjections(" where q.author = :author " +
+                        " and q.id < :lastId ",
+                params, viewerId, limit);
+    }
+
+    @Override
+    public List<QuestionProjection> getCommentedByAuthorLimitedProjections(UserEntity author, Long viewerId,
+                                                                           int limit) {
+        return findProjections(" where q.id in (" +
+                        " select c.question.id " +
+                        " from CommentEntity c " +
+                        " where c.author = :author) ",
+                Collections.singletonMap("author", author), viewerId, limit);
+    }
+
+    @Override
+    public List<QuestionProjection> getCommentedByAuthorLimitedProjections(UserEntity author, Long viewerId,
+                                                                           Long lastId, int limit) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("author", author);
+        params.put("lastId", lastId);
+
+        return findProjections(" where q.id in (" +
+                        " select c.question.id " +
+                        " from CommentEntity c " +
+                        " where c.author = :author) " +
+                        " and q.id < :lastId ",
+                params, viewerId, limit);
+    }
+
+    @Override
+    public List<QuestionProjection> getByUserTagsLimitedProjections(UserEntity user, int limit) {
+        return getByUserTagsLimitedProjections(user, null, limit);
+    }
+
+    @Override
+    public List<QuestionProjection> getByUserTagsLimitedProjections(UserEntity user, Long lastId, int limit) {
+        return getProjectionsByIds(getSubscriptionIds(user, lastId, limit), user.getId());
+    }
+
+    @Override
+    public List<QuestionProjection> getProjectionsByIds(Collection<Long> ids, Long viewerId) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return findProjections(" where q.id in (:ids) ", Collections.singletonMap("ids", ids), viewerId, null);
+    }
+
+    @Override
+    public List<TextProjection> getTextsAfterId(Long afterId, int limit) {
+        return em.createQuery("select new com.yaqa.dao.projection.TextProjection(q.id, q.id, q.body) " +
+                        " from QuestionEntity q " +
+                        " where q.id > :afterId " +
+                        " order by q.id",
+                TextProjection.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Ids of the newest questions with any of the user's tags, below lastId if it is given. Each tag
+     * contributes a descending stream of at most limit ids read from the (tag_id, question_id) index,
+     * all of them in one round trip, and the streams are merged here. Unlike joining and grouping, this
+     * never reads more than limit rows per tag, however broad the tags are.
+     */
+    private List<Long> getSubscriptionIds(UserEntity user, Long lastId, int limit) {
+        final List<TagEntity> tags = user.getSubscriptionTags();
+        if (tags.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Map<Long, List<Long>> streams = new HashMap<>();
+        for (int from = 0; from < tags.size(); from += SUBSCRIPTION_BATCH_SIZE) {
+            final List<TagEntity> batch = tags.subList(from, Math.min(tags.size(), from + SUBSCRIPTION_BATCH_SIZE));
+
+            final StringBuilder sql = new StringBuilder();
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    sql.append(" union all ");
+                }
+                sql.append("select * from (" +
+                        " select qt.tag_id, qt.question_id " +
+                        " from question_tags qt " +
+                        " where qt.tag_id = :tag").append(i)
+                        .append(lastId != null ? " and qt.question_id < :lastId " : " ")
+                        .append(" order by qt.question_id desc " +
+                                " limit :limit) s").append(i);
+            }
+
+            final Query query = em.createNativeQuery(sql.toString())
+                    .setParameter("limit", limit);
+            for (int i = 0; i < batch.size(); i++) {
+                query.setParameter("tag" + i, batch.get(i).getId());
+            }
+            if (lastId != null) {
+                query.setParameter("lastId", lastId);
+            }
+
+            for (Object row : query.getResultList()) {
+                final Object[] columns = (Object[]) row;
+                streams.computeIfAbsent(((Number) columns[0]).longValue(), tagId -> new ArrayList<>())
+                        .add(((Number) columns[1]).longValue());
+            }
+        }
+        return mergeDescending(streams.values(), limit);
+    }
+
+    /**
+     * K-way merge of descending id streams, dropping the ids found in several of them.
+     */
+    private static List<Long> mergeDescending(Collection<List<Long>> streams, int limit) {
+        final PriorityQueue<PeekingIterator> heads = new PriorityQueue<>(Math.max(1, streams.size()),
+                (first, second) -> Long.compare(second.peek(), first.peek()));
+        for (List<Long> stream : streams) {
+            // rows of a derived table come back in no particular order
+            stream.sort(Collections.reverseOrder());
+            if (!stream.isEmpty()) {
+                heads.add(new PeekingIterator(stream));
+            }
+        }
+
+        final List<Long> merged = new ArrayList<>();
+        while (!heads.isEmpty() && merged.size() < limit) {
+            final PeekingIterator head = heads.poll();
+            final Long id = head.next();
+            if (merged.isEmpty() || !merged.get(merged.size() - 1).equals(id)) {
+                merged.add(id);
+            }
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private static class PeekingIterator {
+        private final List<Long> values;
+        private int position;
+
+        private PeekingIterator(List<Long> values) {
+            this.values = values;
+        }
+
+        private boolean hasNext() {
+            return position < values.size();
+        }
+
+        private Long peek() {
+            return values.get(position);
+        }
+
+        private Long next() {
+            return values.get(position++);
+        }
+    }
+
+    /**
+     * Loads a page of projections in a fixed number of queries: one for the questions themselves
+     * (with the viewer's like flag computed by the database) plus one for tags and one for images per
+     * {@link #PROJECTION_BATCH_SIZE} questions.
+     */
+    private List<QuestionProjection> findProjections(String condition, Map<String, Object> params,
+                                                     Long viewerId, Integer limit) {
+        final TypedQuery<QuestionProjection> query = em.createQuery(PROJECTION_QUERY +
+                        condition +
+                        " order by q.id desc",
+                QuestionProjection.class)
+                .setParameter("viewerId", viewerId);
+
+        params.forEach(query::setParameter);
+        if (limit != null) {
+            query.setMaxResults(limit);
+        }
+
+        final List<QuestionProjection> projections = query.getResultList();
+
+        for (int from = 0; from < projections.size(); from += PROJECTION_BATCH_SIZE) {
+            fillTagsAndImages(projections.subList(from, Math.min(from + PROJECTION_BATCH_SIZE, projections.size())));
+        }
+
+        return projections;
+    }
+
+    private void fillTagsAndImages(List<QuestionProjection> projections) {
+        final Map<Long, QuestionProjection> projectionsById = projections.stream()
+                .collect(Collectors.toMap(QuestionProjection::getId, Function.identity()));
+        final List<Long> questionIds = new ArrayList<>(projectionsById.keySet());
+
+        em.createQuery("select q.id, t.id, t.tagName " +
+                        " from QuestionEntity q " +
+                        " inner join q.tags t " +
+                        " where q.id in :questionIds ",
+                Object[].class)
+                .setParameter("questionIds", questionIds)
+                .getResultList()
+                .forEach(row -> projectionsById.get((Long) row[0]).getTags()
+                        .add(new Tag((Long) row[1], (String) row[2])));
+
+        em.createQuery("select i.question.id, i.id " +
+                        " from ImageEntity i " +
+                        " where i.question.id in :questionIds " +
+                        " order by i.id ",
+                Object[].class)
+                .setParameter("questionIds", questionIds)
+                .getResultList()
+                .forEach(row -> projectionsById.get((Long) row[0]).getImageIds().add((Long) row[1]));
+    }
 }
@@ -2,55 +2,180 @@ package com.yaqa.dao.impl;
 
 import com.yaqa.dao.TagDao;
 import com.yaqa.dao.entity.TagEntity;
+import com.yaqa.dao.entity.TagListVersionEntity;
+import com.yaqa.dao.projection.TagCount;
 import com.yaqa.exception.NotFoundException;
 import com.yaqa.model.Tag;
+import com.yaqa.util.TransactionHooks;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
 import org.springframework.stereotype.Repository;
 
-import javax.persistence.NoResultException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
 
+/**
+ * Tags are never renamed or removed, so the ids of known tag names are kept in memory and resolved
+ * to entity references without touching the database. Uninitialized references are loaded in batches
+ * (see {@link TagEntity}) if their names are read later.
+ * <p>
+ * The dictionary learns names only from committed data, so it never holds ids of rolled back inserts.
+ */
 @Repository
 public class TagDaoImpl extends GenericDaoImpl<TagEntity> implements TagDao {
+    private static final int MAX_DICTIONARY_SIZE = 100_000;
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
+    private final ConcurrentMap<String, Long> tagIdsByName = new ConcurrentHashMap<>();
+
     public TagDaoImpl() {
         super(TagEntity.class);
     }
 
+    @Override
+    public void save(TagEntity entity) {
+        super.save(entity);
+        incrementMostUsedVersion();
+        remember(Collections.singletonList(entity));
+    }
+
     @Override
     public TagEntity getByName(String tagName) {
-        try {
-            return em.createQuery("select t " +
-                            " from TagEntity t " +
-                            " where t.tagName = :tagName",
-                    TagEntity.class)
-                    .setParameter("tagName", tagName)
-                    .getSingleResult();
-        } catch (NoResultException e) {
+        final TagEntity tag = findByName(tagName);
+        if (tag == null) {
             throw new NotFoundException(TagEntity.class, tagName);
         }
+        return tag;
     }
 
     @Override
     public TagEntity findByName(String tagName) {
-        try {
-            return em.createQuery("select t " +
+        return getByNames(Collections.singletonList(tagName)).get(tagName);
+    }
+
+    @Override
+    public Map<String, TagEntity> getByNames(Collection<String> tagNames) {
+        final Map<String, TagEntity> result = new HashMap<>();
+        final List<String> unknownNames = new ArrayList<>();
+
+        for (String tagName : tagNames) {
+            final Long tagId = tagIdsByName.get(tagName);
+            if (tagId != null) {
+                result.put(tagName, em.getReference(TagEntity.class, tagId));
+            } else {
+                unknownNames.add(tagName);
+            }
+        }
+
+        if (!unknownNames.isEmpty()) {
+            final List<TagEntity> found = em.createQuery("select t " +
                             " from TagEntity t " +
-                            " where t.tagName = :tagName",
+                            " where t.tagName in :tagNames",
                     TagEntity.class)
-                    .setParameter("tagName", tagName)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            return null;
+                    .setParameter("tagNames", unknownNames)
+                    .getResultList();
+
+            found.forEach(t -> result.put(t.getTagName(), t));
+            remember(found);
+        }
+
+        return result;
+    }
+
+    @Override
+    public Map<String, TagEntity> getOrCreateByNames(Collection<String> tagNames) {
+        final Map<String, TagEntity> result = getByNames(tagNames);
+        final int distinctNames = new HashSet<>(tagNames).size();
+
+        for (int attempt = 1; result.size() < distinctNames; attempt++) {
+            // sorted, so that concurrent inserts of overlapping names wait on each other instead of deadlocking
+            final List<String> missingNames = tagNames.stream()
+                    .filter(tagName -> !result.containsKey(tagName))
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList());
+
+            final Map<String, Long> newTagIds = insertTags(missingNames);
+            if (newTagIds != null) {
+                newTagIds.forEach((tagName, tagId) -> result.put(tagName, em.getReference(TagEntity.class, tagId)));
+                incrementMostUsedVersion();
+                rememberIds(newTagIds);
+            } else if (attempt < MAX_INSERT_ATTEMPTS) {
+                // some of the names were inserted by a concurrent transaction in the meantime
+                result.putAll(getByNames(missingNames));
+            } else {
+                throw new IllegalStateException("Unable to insert tags " + missingNames);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return ids of the inserted tags, or null if some of the names already exist and nothing was inserted
+     */
+    private Map<String, Long> insertTags(List<String> tagNames) {
+        final Session session = em.unwrap(Session.class);
+        final SessionImplementor sessionImplementor = (SessionImplementor) session;
+        final IdentifierGenerator idGenerator = sessionImplementor.getFactory()
+                .getIdentifierGenerator(TagEntity.class.getName());
+
+        final Map<String, Long> tagIds = new LinkedHashMap<>();
+        tagNames.forEach(tagName -> tagIds.put(tagName, (Long) idGenerator.generate(sessionImplementor, null)));
+
+        return session.doReturningWork(connection -> {
+            final Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "insert into tags (id, tagName) values (?, ?)")) {
+                for (Map.Entry<String, Long> tag : tagIds.entrySet()) {
+                    statement.setLong(1, tag.getValue());
+                    statement.setString(2, tag.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } catch (SQLException e) {
+                if (!isUniqueViolation(e)) {
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                return null;
+            }
+            connection.releaseSavepoint(savepoint);
+            return tagIds;
+        });
+    }
+
+    private static boolean isUniqueViolation(SQLException e) {
+        for (SQLException cause = e; cause != null; cause = cause.getNextException()) {
+            if (UNIQUE_VIOLATION_SQL_STATE.equals(cause.getSQLState())) {
+                return true;
+            }
         }
+        return false;
     }
 
     @Override
     public Map<Tag, TagEntity> mapTagsToEntities(List<Tag> tags) {
-        final Map<Tag, TagEntity> map = new HashMap<>();
+        final Map<String, TagEntity> entitiesByName = getByNames(
+                tags.stream().map(Tag::getTagName).collect(Collectors.toList()));
 
+        final Map<Tag, TagEntity> map = new HashMap<>();
         for (Tag tag : tags) {
-            final TagEntity tagEntity = findByName(tag.getTagName());
+            final TagEntity tagEntity = entitiesByName.get(tag.getTagName());
             if (tagEntity != null) {
                 map.put(tag, tagEntity);
             }
@@ -58,4 +183,130 @@ public class TagDaoImpl extends GenericDaoImpl<TagEntity> implements TagDao {
 
         return map;
     }
+
+    @Override
+    public List<TagCount> getQuestionCounts(Long afterId) {
+        return em.createQuery("select new com.yaqa.dao.projection.TagCount(t.id, t.tagName, t.questionsCount) " +
+                        " from TagEntity t " +
+                        " where t.id > :afterId",
+                TagCount.class)
+                .setParameter("afterId", afterId)
+                .getResultList();
+    }
+
+    @Override
+    public long getCount() {
+        return em.createQuery("select count(t) from TagEntity t", Long.class)
+                .getSingleResult();
+    }
+
+    @Override
+    public List<TagCount> getMostUsed(int offset, int limit) {
+        return em.createQuery("select new com.yaqa.dao.projection.TagCount(t.id, t.tagName, t.questionsCount) " +
+                        " from TagEntity t " +
+                        " order by t.questionsCount desc, t.id",
+                TagCount.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long getMostUsedVersion() {
+        final List<Long> version = em.createQuery("select v.version " +
+                        " from TagListVersionEntity v " +
+                        " where v.id = :id",
+                Long.class)
+                .setParameter("id", TagListVersionEntity.ID)
+                .getResultList();
+        return version.isEmpty() ? 0 : version.get(0);
+    }
+
+    @Override
+    public void incrementQuestionsCount(Collection<Long> tagIds, int delta) {
+        if (tagIds.isEmpty()) {
+            return;
+        }
+
+        createNativeUpdate("update tags " +
+                " set questionsCount = questionsCount + :delta " +
+                " where id in (:tagIds) ", TagEntity.class)
+                .setParameter("delta", (long) delta)
+                .setParameter("tagIds", tagIds)
+                .executeUpdate();
+        incrementMostUsedVersion();
+    }
+
+    @Override
+    public int reconcileQuestionsCount(Long fromId, Long toId) {
+        lockRange("tags", fromId, toId);
+        final int reconciled = createNativeUpdate("update tags " +
+                " set questionsCount = (select count(*) from question_tags qt where qt.tag_id = tags.id) " +
+                " where id > :fromId and id <= :toId " +
+                " and questionsCount <> (select count(*) from question_tags qt where qt.tag_id = tags.id) ",
+                TagEntity.class)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .executeUpdate();
+        if (reconciled > 0) {
+            incrementMostUsedVersion();
+        }
+        return reconciled;
+    }
+
+    /**
+     * Holds the lock of the version row until the end of the transaction, so the changes of tags are serialized.
+     */
+    private void incrementMostUsedVersion() {
+        final String increment = "update tag_list_version set version = version + 1 where id = :id";
+        if (createNativeUpdate(increment, TagListVersionEntity.class)
+                .setParameter("id", TagListVersionEntity.ID)
+                .executeUpdate() > 0) {
+            return;
+        }
+
+        // the first change of the database, unless a concurrent transaction has inserted the row meanwhile
+        final boolean inserted = em.unwrap(Session.class).doReturningWork(connection -> {
+            final Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "insert into tag_list_version (id, version) values (?, 1)")) {
+                statement.setLong(1, TagListVersionEntity.ID);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                if (!isUniqueViolation(e)) {
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                return false;
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        });
+        if (!inserted) {
+            createNativeUpdate(increment, TagListVersionEntity.class)
+                    .setParameter("id", TagListVersionEntity.ID)
+                    .executeUpdate();
+        }
+    }
+
+    private void remember(List<TagEntity> tags) {
+        final Map<String, Long> entries = new HashMap<>();
+        tags.forEach(t -> entries.put(t.getTagName(), t.getId()));
+        rememberIds(entries);
+    }
+
+    private void rememberIds(Map<String, Long> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        TransactionHooks.afterCommit(() -> putAll(entries));
+    }
+
+    private void putAll(Map<String, Long> entries) {
+        if (tagIdsByName.size() + entries.size() > MAX_DICTIONARY_SIZE) {
+            tagIdsByName.clear();
+        }
+        tagIdsByName.putAll(entries);
+    }
 }
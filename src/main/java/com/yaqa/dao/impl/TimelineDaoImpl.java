@@ -0,0 +1,153 @@
+package com.yaqa.dao.impl;
+
+import com.yaqa.dao.TimelineDao;
+import org.hibernate.SQLQuery;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Repository
+public class TimelineDaoImpl implements TimelineDao {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<Long> getSubscriberIds(Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return toLongs(em.createNativeQuery("select distinct ut.user_id " +
+                " from user_tags ut " +
+                " where ut.tag_id in (:tagIds)")
+                .setParameter("tagIds", tagIds)
+                .getResultList());
+    }
+
+    @Override
+    public int addToSubscriberTimelines(Long questionId, Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return 0;
+        }
+
+        em.flush();
+        final Query query = em.createNativeQuery("insert into timelines (user_id, question_id) " +
+                " select distinct ut.user_id, :questionId " +
+                " from user_tags ut " +
+                " where ut.tag_id in (:tagIds) " +
+                " and not exists (select 1 from timelines t " +
+                "   where t.user_id = ut.user_id and t.question_id = :questionId)")
+                .setParameter("questionId", questionId)
+                .setParameter("tagIds", tagIds);
+        // otherwise every new question would evict the whole second-level cache
+        query.unwrap(SQLQuery.class).addSynchronizedQuerySpace("timelines");
+        return query.executeUpdate();
+    }
+
+    @Override
+    public List<Long> getQuestionIds(Long userId, Long lastId, int limit) {
+        final TypedQuery<Long> query = em.createQuery("select t.id.questionId " +
+                        " from TimelineEntryEntity t " +
+                        " where t.id.userId = :userId " +
+                        (lastId != null ? " and t.id.questionId < :lastId " : "") +
+                        " order by t.id.questionId desc",
+                Long.class)
+                .setParameter("userId", userId)
+                .setMaxResults(limit);
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public void deleteByUser(Long userId) {
+        em.createQuery("delete from TimelineEntryEntity t where t.id.userId = :userId")
+                .setParameter("userId", userId)
+                .executeUpdate();
+    }
+
+    @Override
+    public int addToSubscriberTimelinesBelow(Long questionId, Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return 0;
+        }
+
+        em.flush();
+        final Query query = em.createNativeQuery("insert into timelines (user_id, question_id) " +
+                " select distinct ut.user_id, :questionId " +
+                " from user_tags ut " +
+                " where ut.tag_id in (:tagIds) " +
+                " and exists (select 1 from timelines t " +
+                "   where t.user_id = ut.user_id and t.question_id < :questionId) " +
+                " and not exists (select 1 from timelines t " +
+                "   where t.user_id = ut.user_id and t.question_id = :questionId)")
+                .setParameter("questionId", questionId)
+                .setParameter("tagIds", tagIds);
+        query.unwrap(SQLQuery.class).addSynchronizedQuerySpace("timelines");
+        return query.executeUpdate();
+    }
+
+    @Override
+    public int removeFromUnsubscribedTimelines(Long questionId, Collection<Long> tagIds) {
+        em.flush();
+        final Query query = em.createNativeQuery("delete from timelines " +
+                " where question_id = :questionId " +
+                (tagIds.isEmpty() ? "" : " and not exists (select 1 from user_tags ut " +
+                        "   where ut.user_id = timelines.user_id and ut.tag_id in (:tagIds))"))
+                .setParameter("questionId", questionId);
+        if (!tagIds.isEmpty()) {
+            query.setParameter("tagIds", tagIds);
+        }
+        query.unwrap(SQLQuery.class).addSynchronizedQuerySpace("timelines");
+        return query.executeUpdate();
+    }
+
+    @Override
+    public List<Long> getUsersOverSize(int size) {
+        return em.createQuery("select t.id.userId " +
+                        " from TimelineEntryEntity t " +
+                        " group by t.id.userId " +
+                        " having count(t) > :size",
+                Long.class)
+                .setParameter("size", (long) size)
+                .getResultList();
+    }
+
+    @Override
+    public int trim(Long userId, int size) {
+        final List<Long> oldestKept = em.createQuery("select t.id.questionId " +
+                        " from TimelineEntryEntity t " +
+                        " where t.id.userId = :userId " +
+                        " order by t.id.questionId desc",
+                Long.class)
+                .setParameter("userId", userId)
+                .setFirstResult(size - 1)
+                .setMaxResults(1)
+                .getResultList();
+        if (oldestKept.isEmpty()) {
+            return 0;
+        }
+
+        return em.createQuery("delete from TimelineEntryEntity t " +
+                " where t.id.userId = :userId " +
+                " and t.id.questionId < :questionId")
+                .setParameter("userId", userId)
+                .setParameter("questionId", oldestKept.get(0))
+                .executeUpdate();
+    }
+
+    private static List<Long> toLongs(List<?> values) {
+        return values.stream()
+                .map(value -> ((Number) value).longValue())
+                .collect(Collectors.toList());
+    }
+}
@@ -1,7 +1,10 @@
 package com.yaqa.dao.impl;
 
+import com.yaqa.dao.CacheRegions;
 import com.yaqa.dao.UserDao;
 import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.projection.UserCredentials;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -17,6 +20,19 @@ public class UserDaoImpl extends GenericDaoImpl<UserEntity> implements UserDao {
                         " where u.username = :username",
                 UserEntity.class)
                 .setParameter("username", username)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, CacheRegions.USERS_BY_NAME)
+                .getSingleResult();
+    }
+
+    @Override
+    public UserCredentials getCredentialsByUsername(String username) {
+        return em.createQuery("select new com.yaqa.dao.projection.UserCredentials(" +
+                        "   u.id, u.password, u.passwordVersion) " +
+                        " from UserEntity u " +
+                        " where u.username = :username",
+                UserCredentials.class)
+                .setParameter("username", username)
                 .getSingleResult();
     }
 }
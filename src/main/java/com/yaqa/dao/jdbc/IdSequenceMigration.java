@@ -0,0 +1,141 @@
+package com.yaqa.dao.jdbc;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Makes the increment of every id sequence match the allocation size of its pooled-lo generator, which takes
+ * the ids from a sequence value up to the next one.
+ * <p>
+ * The sequences of databases created with the legacy hi/lo generator are incremented by one, and their values
+ * were multiplied by the block size, so they are restarted above the ids handed out that way. Runs at startup,
+ * nodes still running the legacy generator have to be stopped first.
+ * <p>
+ * Nodes starting at once would each restart the sequences, above the values they read before the others restarted
+ * them, and hand out the same ids. On postgres the migration holds an advisory lock, and the increments are read
+ * under it, so the nodes after the first find the sequences migrated. Other databases are only used embedded, by
+ * a single node.
+ */
+@Component
+public class IdSequenceMigration {
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceMigration.class);
+
+    /**
+     * Ids taken from a sequence value by the legacy hi/lo generator, with the default allocation size.
+     */
+    private static final long LEGACY_HILO_BLOCK_SIZE = 50;
+
+    /**
+     * Key of the advisory lock, any constant not used by another lock of the database.
+     */
+    private static final long LOCK_KEY = 0x79617161L;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @PostConstruct
+    public void migrate() throws SQLException {
+        final SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        final Dialect dialect = sessionFactory.getDialect();
+        final boolean locked = dialect instanceof PostgreSQL81Dialect;
+        try (Connection connection = dataSource.getConnection()) {
+            if (locked) {
+                advisoryLock(connection, "pg_advisory_lock");
+            }
+            try {
+                for (String entityName : sessionFactory.getAllClassMetadata().keySet()) {
+                    final IdentifierGenerator generator = sessionFactory.getIdentifierGenerator(entityName);
+                    final EntityPersister persister = sessionFactory.getEntityPersister(entityName);
+                    if (generator instanceof SequenceStyleGenerator && persister instanceof AbstractEntityPersister) {
+                        migrate(connection, dialect, ((SequenceStyleGenerator) generator).getDatabaseStructure(),
+                                (AbstractEntityPersister) persister);
+                    }
+                }
+            } finally {
+                if (locked) {
+                    advisoryLock(connection, "pg_advisory_unlock");
+                }
+            }
+        }
+    }
+
+    /**
+     * A session lock, the connection is in auto-commit mode.
+     */
+    private static void advisoryLock(Connection connection, String function) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select " + function + "(?)")) {
+            statement.setLong(1, LOCK_KEY);
+            statement.executeQuery().close();
+        }
+    }
+
+    private static void migrate(Connection connection, Dialect dialect, DatabaseStructure sequence,
+                                AbstractEntityPersister persister) throws SQLException {
+        final String sequenceName = sequence.getName();
+        final Long increment = readIncrement(connection, sequenceName);
+        if (increment == null) {
+            log.warn("Sequence {} not found, ids of {} are not checked", sequenceName, persister.getEntityName());
+            return;
+        }
+        if (increment == sequence.getIncrementSize()) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            // takes the block following the values handed out, nobody else can get it
+            final long nextValue = queryLong(statement, dialect.getSequenceNextValString(sequenceName));
+            final long maxId = queryLong(statement, "select coalesce(max(" + persister.getIdentifierColumnNames()[0] +
+                    "), 0) from " + persister.getTableName());
+
+            final long firstId = Math.max(maxId + 1, increment == 1 ? nextValue * LEGACY_HILO_BLOCK_SIZE : nextValue);
+            statement.execute("alter sequence " + sequenceName +
+                    " restart with " + firstId +
+                    " increment by " + sequence.getIncrementSize());
+            log.info("Sequence {} restarted with {} and incremented by {} instead of {}",
+                    sequenceName, firstId, sequence.getIncrementSize(), increment);
+        }
+    }
+
+    /**
+     * @return increment of the sequence, null if there is no such sequence
+     */
+    private static Long readIncrement(Connection connection, String sequenceName) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select increment " +
+                " from information_schema.sequences " +
+                " where upper(sequence_name) = upper(?)")) {
+            statement.setString(1, sequenceName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : null;
+            }
+        }
+    }
+
+    private static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
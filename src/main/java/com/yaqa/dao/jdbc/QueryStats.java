@@ -0,0 +1,93 @@
+package com.yaqa.dao.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Statements executed on the current thread through {@link InstrumentedDataSource} between {@link #begin()}
+ * and {@link #close()}. Scopes may be nested, a statement is counted by every open scope of the thread.
+ */
+public final class QueryStats implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(QueryStats.class);
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final QueryStats parent;
+
+    private int statementCount;
+    private long totalNanos;
+    private long slowestNanos;
+    private String slowestSql;
+
+    private QueryStats(QueryStats parent) {
+        this.parent = parent;
+    }
+
+    public static QueryStats begin() {
+        final QueryStats stats = new QueryStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void record(String sql, long nanos) {
+        for (QueryStats stats = CURRENT.get(); stats != null; stats = stats.parent) {
+            stats.statementCount++;
+            stats.totalNanos += nanos;
+            if (nanos > stats.slowestNanos) {
+                stats.slowestNanos = nanos;
+                stats.slowestSql = sql;
+            }
+        }
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getSlowestNanos() {
+        return slowestNanos;
+    }
+
+    /**
+     * @return null if nothing has been executed
+     */
+    public String getSlowestSql() {
+        return slowestSql;
+    }
+
+    /**
+     * Also closes the nested scopes that have been left open, a warning is logged for them.
+     * Closing a scope twice has no effect.
+     */
+    @Override
+    public void close() {
+        final QueryStats current = CURRENT.get();
+        int leaked = 0;
+        QueryStats scope = current;
+        while (scope != null && scope != this) {
+            leaked++;
+            scope = scope.parent;
+        }
+        if (scope == null) {
+            return;
+        }
+        if (leaked > 0) {
+            log.warn("{} nested scope(s) were not closed, last one counted {}", leaked, current);
+        }
+
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return statementCount + " statements in " + totalNanos / 1_000_000 + " ms";
+    }
+}
@@ -0,0 +1,53 @@
+package com.yaqa.dao.projection;
+
+import com.yaqa.dao.entity.ImageStorageType;
+
+/**
+ * Everything about an image except its content, so that serving an image never loads the lob column.
+ */
+public class ImageMetadata {
+    private final Long id;
+    private final String contentType;
+    private final String contentHash;
+    private final Long size;
+    private final ImageStorageType storage;
+
+    public ImageMetadata(Long id, String contentType, String contentHash, Long size, ImageStorageType storage) {
+        this.id = id;
+        this.contentType = contentType;
+        this.contentHash = contentHash;
+        this.size = size;
+        this.storage = storage == null ? ImageStorageType.DATABASE : storage;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public ImageStorageType getStorage() {
+        return storage;
+    }
+
+    /**
+     * Identifies the content: its hash, or the id for images stored before hashing was introduced.
+     */
+    public String getContentKey() {
+        return contentHash != null ? contentHash : "id" + id;
+    }
+
+    public String getETag() {
+        return "\"" + getContentKey() + "\"";
+    }
+}
@@ -0,0 +1,105 @@
+package com.yaqa.dao.projection;
+
+import com.yaqa.model.Tag;
+import org.joda.time.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flat read-only view of a question used by feed queries, so that pages can be rendered
+ * without hydrating the likes, comments, tags and images collections of {@link com.yaqa.dao.entity.QuestionEntity}.
+ */
+public class QuestionProjection {
+    private final Long id;
+    private final String body;
+    private final LocalDateTime creationDate;
+
+    private final Long authorId;
+    private final String authorUsername;
+    private final String authorFirstName;
+    private final String authorLastName;
+    private final String authorEmail;
+    private final Long authorProfileImageId;
+
+    private final Long likesCount;
+    private final Long commentsCount;
+    private final boolean likedByViewer;
+
+    private final List<Tag> tags = new ArrayList<>();
+    private final List<Long> imageIds = new ArrayList<>();
+
+    public QuestionProjection(Long id, String body, LocalDateTime creationDate,
+                              Long authorId, String authorUsername, String authorFirstName, String authorLastName,
+                              String authorEmail, Long authorProfileImageId,
+                              Long likesCount, Long commentsCount, Long viewerLikesCount) {
+        this.id = id;
+        this.body = body;
+        this.creationDate = creationDate;
+        this.authorId = authorId;
+        this.authorUsername = authorUsername;
+        this.authorFirstName = authorFirstName;
+        this.authorLastName = authorLastName;
+        this.authorEmail = authorEmail;
+        this.authorProfileImageId = authorProfileImageId;
+        this.likesCount = likesCount;
+        this.commentsCount = commentsCount;
+        this.likedByViewer = viewerLikesCount != null && viewerLikesCount > 0;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public String getAuthorUsername() {
+        return authorUsername;
+    }
+
+    public String getAuthorFirstName() {
+        return authorFirstName;
+    }
+
+    public String getAuthorLastName() {
+        return authorLastName;
+    }
+
+    public String getAuthorEmail() {
+        return authorEmail;
+    }
+
+    public Long getAuthorProfileImageId() {
+        return authorProfileImageId;
+    }
+
+    public Long getLikesCount() {
+        return likesCount;
+    }
+
+    public Long getCommentsCount() {
+        return commentsCount;
+    }
+
+    public boolean isLikedByViewer() {
+        return likedByViewer;
+    }
+
+    public List<Tag> getTags() {
+        return tags;
+    }
+
+    public List<Long> getImageIds() {
+        return imageIds;
+    }
+}
@@ -0,0 +1,28 @@
+package com.yaqa.dao.projection;
+
+/**
+ * Tag with the number of questions tagged with it.
+ */
+public class TagCount {
+    private final Long id;
+    private final String tagName;
+    private final Long questionsCount;
+
+    public TagCount(Long id, String tagName, Long questionsCount) {
+        this.id = id;
+        this.tagName = tagName;
+        this.questionsCount = questionsCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTagName() {
+        return tagName;
+    }
+
+    public Long getQuestionsCount() {
+        return questionsCount;
+    }
+}
@@ -0,0 +1,28 @@
+package com.yaqa.dao.projection;
+
+/**
+ * Body of a question or a comment with the id of the question, as read for building the search index.
+ */
+public class TextProjection {
+    private final Long id;
+    private final Long questionId;
+    private final String body;
+
+    public TextProjection(Long id, Long questionId, String body) {
+        this.id = id;
+        this.questionId = questionId;
+        this.body = body;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getQuestionId() {
+        return questionId;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,28 @@
+package com.yaqa.dao.projection;
+
+/**
+ * What a user is authenticated with.
+ */
+public class UserCredentials {
+    private final Long id;
+    private final String password;
+    private final Long passwordVersion;
+
+    public UserCredentials(Long id, String password, Long passwordVersion) {
+        this.id = id;
+        this.password = password;
+        this.passwordVersion = passwordVersion;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public Long getPasswordVersion() {
+        return passwordVersion;
+    }
+}
@@ -0,0 +1,298 @@
+package com.yaqa.dao.transfer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yaqa.dao.entity.ImageStorageType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the content of the database as newline delimited JSON, a header with the id range of every table
+ * followed by one record per row. Tables are read in id order, a batch at a time, so the memory used doesn't
+ * depend on the size of the database.
+ * <p>
+ * Only the rows up to the maximal ids found at the start are exported. Image contents are written inline,
+ * one image at a time, and the images are exported as stored in the database: the blobs of the file system
+ * are read from the images directory, an image whose blob can't be read fails the export.
+ */
+public class DataExporter {
+    private static final Logger log = LoggerFactory.getLogger(DataExporter.class);
+    private static final int BATCH_SIZE = 1_000;
+    private static final String CONTENT_FIELD = "content";
+
+    private final DataSource dataSource;
+    private final Path imagesDirectory;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * @param imagesDirectory {@code yaqa.images.directory}, or null if images are not stored on the file system
+     */
+    public DataExporter(DataSource dataSource, Path imagesDirectory) {
+        this.dataSource = dataSource;
+        this.imagesDirectory = imagesDirectory;
+    }
+
+    /**
+     * @return number of records written, the header excluded
+     */
+    public long export(OutputStream out) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection();
+             JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            // a single snapshot where supported, so that the counters match the exported rows
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+
+            final Map<TransferTable, long[]> ranges = readIdRanges(connection);
+            writeHeader(generator, ranges);
+
+            long records = 0;
+            for (Map.Entry<TransferTable, long[]> range : ranges.entrySet()) {
+                records += exportTable(connection, generator, range.getKey(), range.getValue()[1]);
+            }
+            if (ranges.containsKey(TransferTable.USERS)) {
+                records += exportProfileImages(connection, generator, ranges.get(TransferTable.USERS)[1]);
+            }
+
+            generator.writeRaw('\n');
+            connection.commit();
+            log.info("Exported {} records", records);
+            return records;
+        }
+    }
+
+    /**
+     * @return minimal and maximal id of the non empty tables
+     */
+    private static Map<TransferTable, long[]> readIdRanges(Connection connection) throws SQLException {
+        final Map<TransferTable, long[]> ranges = new EnumMap<>(TransferTable.class);
+        try (Statement statement = connection.createStatement()) {
+            for (TransferTable table : TransferTable.values()) {
+                try (ResultSet resultSet = statement.executeQuery(
+                        "select min(id), max(id) from " + table.getTableName())) {
+                    resultSet.next();
+                    final long maxId = resultSet.getLong(2);
+                    if (!resultSet.wasNull()) {
+                        ranges.put(table, new long[]{resultSet.getLong(1), maxId});
+                    }
+                }
+            }
+        }
+        return ranges;
+    }
+
+    private void writeHeader(JsonGenerator generator, Map<TransferTable, long[]> ranges) throws IOException {
+        final ObjectNode header = mapper.createObjectNode();
+        header.put("type", TransferTable.HEADER_RECORD);
+        header.put("formatVersion", TransferTable.FORMAT_VERSION);
+
+        final ObjectNode tables = header.putObject("tables");
+        ranges.forEach((table, range) -> tables.putObject(table.getTableName())
+                .put("minId", range[0])
+                .put("maxId", range[1]));
+
+        mapper.writeTree(generator, header);
+    }
+
+    private long exportTable(Connection connection, JsonGenerator generator, TransferTable table, long maxId)
+            throws SQLException, IOException {
+        final String sql = "select id, " +
+                table.getColumns().stream()
+                        .filter(column -> column.getType() != TransferTable.ColumnType.BINARY)
+                        .map(TransferTable.Column::getName)
+                        .collect(Collectors.joining(", ")) +
+                " from " + table.getTableName() +
+                " where id > ? and id <= ? " +
+                " order by id limit " + BATCH_SIZE;
+
+        long count = 0;
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             PreparedStatement contentStatement = table == TransferTable.IMAGES
+                     ? connection.prepareStatement("select content from images where id = ?")
+                     : null) {
+            long lastId = Long.MIN_VALUE;
+            while (true) {
+                statement.setLong(1, lastId);
+                statement.setLong(2, maxId);
+
+                final List<ObjectNode> records = new ArrayList<>(BATCH_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        records.add(toRecord(table, resultSet));
+                    }
+                }
+                if (records.isEmpty()) {
+                    break;
+                }
+
+                if (table.getTagsTableName() != null) {
+                    addTagIds(connection, table, records, lastId);
+                }
+                for (ObjectNode record : records) {
+                    if (contentStatement != null) {
+                        addImageContent(contentStatement, record);
+                    }
+                    mapper.writeTree(generator, record);
+                    record.remove(CONTENT_FIELD);
+                }
+
+                count += records.size();
+                lastId = records.get(records.size() - 1).get("id").asLong();
+            }
+        }
+
+        log.info("Exported {} {}", count, table.getTableName());
+        return count;
+    }
+
+    private ObjectNode toRecord(TransferTable table, ResultSet resultSet) throws SQLException {
+        final ObjectNode record = mapper.createObjectNode();
+        record.put("type", table.getRecordType());
+        record.put("id", resultSet.getLong(1));
+
+        int index = 2;
+        for (TransferTable.Column column : table.getColumns()) {
+            switch (column.getType()) {
+                case BINARY:
+                    // not selected
+                    continue;
+                case NUMBER:
+                case REFERENCE:
+                    final long value = resultSet.getLong(index);
+                    if (resultSet.wasNull()) {
+                        record.putNull(column.getName());
+                    } else {
+                        record.put(column.getName(), value);
+                    }
+                    break;
+                case TIMESTAMP:
+                    // the local representation, the columns hold local date times
+                    final Timestamp timestamp = resultSet.getTimestamp(index);
+                    record.put(column.getName(), timestamp != null ? timestamp.toString() : null);
+                    break;
+                default:
+                    record.put(column.getName(), resultSet.getString(index));
+            }
+            index++;
+        }
+        return record;
+    }
+
+    /**
+     * The imported image keeps its content in the database, whatever the storage it is exported from.
+     */
+    private void addImageContent(PreparedStatement contentStatement, ObjectNode record)
+            throws SQLException, IOException {
+        final long id = record.get("id").asLong();
+        final byte[] content;
+        if (ImageStorageType.FILE_SYSTEM.name().equals(record.path("storage").asText())) {
+            content = readImageFile(id, record.path("contentHash").asText());
+        } else {
+            contentStatement.setLong(1, id);
+            try (ResultSet resultSet = contentStatement.executeQuery()) {
+                final Blob blob = resultSet.next() ? resultSet.getBlob(1) : null;
+                content = blob != null ? blob.getBytes(1, (int) blob.length()) : null;
+            }
+        }
+        record.put(CONTENT_FIELD, content);
+        record.put("storage", ImageStorageType.DATABASE.name());
+    }
+
+    private byte[] readImageFile(long id, String contentHash) throws IOException {
+        if (imagesDirectory == null) {
+            throw new IllegalStateException("Image " + id + " is stored on the file system, " +
+                    "yaqa.images.directory is required to export it");
+        }
+        // the layout of FileSystemImageStorage
+        final Path file = imagesDirectory.resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            throw new IllegalStateException("The content of image " + id + " is missing, no file " + file, e);
+        }
+    }
+
+    /**
+     * @param afterId the records are the rows following this id
+     */
+    private static void addTagIds(Connection connection, TransferTable table, List<ObjectNode> records, long afterId)
+            throws SQLException {
+        final Map<Long, ObjectNode> recordsById = new HashMap<>();
+        for (ObjectNode record : records) {
+            record.putArray(TransferTable.TAG_IDS_FIELD);
+            recordsById.put(record.get("id").asLong(), record);
+        }
+
+        final String ownerColumn = table.getOwnerColumn();
+        try (PreparedStatement statement = connection.prepareStatement("select " + ownerColumn + ", tag_id " +
+                " from " + table.getTagsTableName() +
+                " where " + ownerColumn + " > ? and " + ownerColumn + " <= ? " +
+                " order by " + ownerColumn + ", tag_id")) {
+            statement.setLong(1, afterId);
+            statement.setLong(2, records.get(records.size() - 1).get("id").asLong());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    final ObjectNode record = recordsById.get(resultSet.getLong(1));
+                    if (record != null) {
+                        record.withArray(TransferTable.TAG_IDS_FIELD).add(resultSet.getLong(2));
+                    }
+                }
+            }
+        }
+    }
+
+    private long exportProfileImages(Connection connection, JsonGenerator generator, long maxUserId)
+            throws SQLException, IOException {
+        long count = 0;
+        try (PreparedStatement statement = connection.prepareStatement("select id, profileImage_id " +
+                " from users " +
+                " where id > ? and id <= ? and profileImage_id is not null " +
+                " order by id limit " + BATCH_SIZE)) {
+            long lastId = Long.MIN_VALUE;
+            int batchCount;
+            do {
+                statement.setLong(1, lastId);
+                statement.setLong(2, maxUserId);
+                batchCount = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        lastId = resultSet.getLong(1);
+                        final ObjectNode record = mapper.createObjectNode();
+                        record.put("type", TransferTable.PROFILE_IMAGE_RECORD);
+                        record.put("id", lastId);
+                        record.put("profileImage_id", resultSet.getLong(2));
+                        mapper.writeTree(generator, record);
+                        batchCount++;
+                    }
+                }
+                count += batchCount;
+            } while (batchCount == BATCH_SIZE);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,428 @@
+package com.yaqa.dao.transfer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the output of {@link DataExporter} into a database, with JDBC batches of inserts committed at once.
+ * <p>
+ * The ids of every table are shifted above the ids already used, the whole range is reserved from the id sequence
+ * before the first insert, and references are shifted alike. Tags are merged by name, the exported users must not
+ * exist yet.
+ * <p>
+ * The import is meant to run while the application is stopped, the nodes must be restarted after it otherwise:
+ * the rows are written behind the back of hibernate, so the second level and query caches (a username looked up
+ * before may stay unknown), the tag ids by name and the timelines held in memory don't see them. The timelines
+ * persisted by subscribers of the imported questions' tags are deleted, as the imported questions are newer
+ * than them; their feeds are taken from the subscriptions until the next fan-out. The search index catches up
+ * with the imported texts at startup.
+ */
+public class DataImporter {
+    private static final Logger log = LoggerFactory.getLogger(DataImporter.class);
+    private static final int BATCH_SIZE = 1_000;
+    private static final int PROGRESS_INTERVAL = 100_000;
+    /**
+     * Images are flushed before a full batch once their contents take this much memory.
+     */
+    private static final int MAX_PENDING_CONTENT_BYTES = 16 * 1024 * 1024;
+
+    private final DataSource dataSource;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public DataImporter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return number of records read, the header excluded
+     */
+    public long importFrom(InputStream in) throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection();
+             MappingIterator<ObjectNode> records = mapper.reader(ObjectNode.class).readValues(in)) {
+            if (!records.hasNext()) {
+                throw new IllegalArgumentException("Empty import");
+            }
+            final ObjectNode header = records.next();
+            if (!TransferTable.HEADER_RECORD.equals(header.path("type").asText())) {
+                throw new IllegalArgumentException("The import doesn't start with a header");
+            }
+            if (header.path("formatVersion").asInt() != TransferTable.FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported format version " + header.path("formatVersion"));
+            }
+
+            connection.setAutoCommit(true);
+            final Map<TransferTable, Long> offsets = reserveIds(connection, header.path("tables"));
+
+            connection.setAutoCommit(false);
+            try (Batches batches = new Batches(connection, offsets)) {
+                final long count = batches.addAll(records);
+                recountTagQuestions(connection);
+                if (offsets.containsKey(TransferTable.QUESTIONS)) {
+                    resetTimelines(connection, header.path("tables").path(TransferTable.QUESTIONS.getTableName())
+                            .path("minId").asLong() + offsets.get(TransferTable.QUESTIONS));
+                }
+                connection.commit();
+                log.info("Imported {} records, restart the running nodes to clear their caches", count);
+                return count;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Restarts the id sequences above the imported ids, before the first insert, so that the rows created meanwhile
+     * can't take them. The sequences are not restored if the import fails, which only leaves a gap.
+     *
+     * @return difference between the imported and the exported ids of every table
+     */
+    private static Map<TransferTable, Long> reserveIds(Connection connection, JsonNode ranges) throws SQLException {
+        final Map<TransferTable, Long> offsets = new EnumMap<>(TransferTable.class);
+        try (Statement statement = connection.createStatement()) {
+            for (TransferTable table : TransferTable.values()) {
+                final JsonNode range = ranges.get(table.getTableName());
+                if (range == null) {
+                    continue;
+                }
+                final long minId = range.path("minId").asLong();
+                final long maxId = range.path("maxId").asLong();
+
+                final long firstId;
+                try (ResultSet resultSet = statement.executeQuery(
+                        "select coalesce(max(id), 0) + 1 from " + table.getTableName())) {
+                    resultSet.next();
+                    firstId = resultSet.getLong(1);
+                }
+                offsets.put(table, firstId - minId);
+
+                // whatever the id generator does with a sequence value, it never goes below it
+                statement.execute("alter sequence " + table.getSequenceName() +
+                        " restart with " + (firstId + maxId - minId + 1));
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * Also increments the version of the tags, so that the running nodes drop the tag pages they cached.
+     */
+    private static void recountTagQuestions(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("update tags set questionsCount = " +
+                    " (select count(*) from question_tags qt where qt.tag_id = tags.id)");
+            if (statement.executeUpdate("update tag_list_version set version = version + 1") == 0) {
+                statement.executeUpdate("insert into tag_list_version (id, version) values (1, 1)");
+            }
+        }
+    }
+
+    /**
+     * Deletes the timelines that would hide the imported questions.
+     */
+    private static void resetTimelines(Connection connection, long firstQuestionId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("delete from timelines " +
+                " where user_id in (select ut.user_id from user_tags ut " +
+                "   where ut.tag_id in (select qt.tag_id from question_tags qt where qt.question_id >= ?))")) {
+            statement.setLong(1, firstQuestionId);
+            final int deleted = statement.executeUpdate();
+            if (deleted > 0) {
+                log.info("Deleted {} timeline entries of the subscribers of the imported questions", deleted);
+            }
+        }
+    }
+
+    /**
+     * Pending inserts of every table. A table is flushed before its join table, and all the tables are flushed
+     * when the records of the next table start, so that rows are always inserted after the rows they reference.
+     */
+    private static class Batches implements AutoCloseable {
+        private final Connection connection;
+        private final Map<TransferTable, Long> offsets;
+        private final Map<TransferTable, PreparedStatement> inserts = new EnumMap<>(TransferTable.class);
+        private final Map<TransferTable, PreparedStatement> tagInserts = new EnumMap<>(TransferTable.class);
+        private final Map<TransferTable, Integer> pending = new EnumMap<>(TransferTable.class);
+        private final List<String> pendingUsernames = new ArrayList<>(BATCH_SIZE);
+        private PreparedStatement profileImageUpdate;
+        private int pendingProfileImages;
+        private long pendingContentBytes;
+
+        /**
+         * Exported tag id to the id of the tag with the same name
+         */
+        private final Map<Long, Long> tagIds = new HashMap<>();
+        private final Map<String, Long> existingTagIds = new HashMap<>();
+        private long nextTagId;
+
+        Batches(Connection connection, Map<TransferTable, Long> offsets) throws SQLException {
+            this.connection = connection;
+            this.offsets = offsets;
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("select id, tagName from tags")) {
+                while (resultSet.next()) {
+                    existingTagIds.put(resultSet.getString(2), resultSet.getLong(1));
+                }
+            }
+            nextTagId = existingTagIds.values().stream().mapToLong(Long::longValue).max().orElse(0) + 1;
+        }
+
+        long addAll(Iterator<ObjectNode> records) throws SQLException {
+            TransferTable current = null;
+            long count = 0;
+            while (records.hasNext()) {
+                final ObjectNode record = records.next();
+                final String type = record.path("type").asText();
+
+                if (TransferTable.PROFILE_IMAGE_RECORD.equals(type)) {
+                    if (current != null) {
+                        flushAll();
+                        current = null;
+                    }
+                    addProfileImage(record);
+                } else {
+                    final TransferTable table = TransferTable.byRecordType(type);
+                    if (table == null) {
+                        throw new IllegalArgumentException("Unknown record type " + type);
+                    }
+                    if (table != current) {
+                        flushAll();
+                        current = table;
+                    }
+                    add(table, record);
+                }
+
+                if (++count % PROGRESS_INTERVAL == 0) {
+                    log.info("Imported {} records", count);
+                }
+            }
+            flushAll();
+            return count;
+        }
+
+        private void add(TransferTable table, ObjectNode record) throws SQLException {
+            final long id;
+            if (table == TransferTable.TAGS) {
+                final Long existingId = existingTagIds.get(record.path("tagName").asText());
+                final long exportedId = record.path("id").asLong();
+                if (existingId != null) {
+                    tagIds.put(exportedId, existingId);
+                    return;
+                }
+                id = nextTagId++;
+                tagIds.put(exportedId, id);
+            } else {
+                id = record.path("id").asLong() + offset(table);
+            }
+
+            final PreparedStatement insert = inserts.computeIfAbsent(table, this::prepareInsert);
+            insert.setLong(1, id);
+            int index = 2;
+            for (TransferTable.Column column : table.getColumns()) {
+                bind(insert, index++, column, record.get(column.getName()));
+            }
+            insert.addBatch();
+
+            if (table == TransferTable.USERS) {
+                pendingUsernames.add(record.path("username").asText());
+            }
+            if (table.getTagsTableName() != null) {
+                final PreparedStatement tagInsert = tagInserts.computeIfAbsent(table, this::prepareTagInsert);
+                for (JsonNode tagId : record.path(TransferTable.TAG_IDS_FIELD)) {
+                    final Long mappedTagId = tagIds.get(tagId.asLong());
+                    if (mappedTagId == null) {
+                        throw new IllegalArgumentException("Unknown tag " + tagId + " of " + table.getRecordType() +
+                                " " + record.path("id"));
+                    }
+                    tagInsert.setLong(1, id);
+                    tagInsert.setLong(2, mappedTagId);
+                    tagInsert.addBatch();
+                }
+            }
+
+            if (pending.merge(table, 1, Integer::sum) >= BATCH_SIZE
+                    || pendingContentBytes >= MAX_PENDING_CONTENT_BYTES) {
+                flush(table);
+            }
+        }
+
+        private void bind(PreparedStatement statement, int index, TransferTable.Column column, JsonNode value)
+                throws SQLException {
+            final boolean isNull = value == null || value.isNull();
+            switch (column.getType()) {
+                case NUMBER:
+                    if (isNull) {
+                        statement.setNull(index, Types.BIGINT);
+                    } else {
+                        statement.setLong(index, value.asLong());
+                    }
+                    break;
+                case REFERENCE:
+                    if (isNull) {
+                        statement.setNull(index, Types.BIGINT);
+                    } else {
+                        statement.setLong(index, value.asLong() + offset(TransferTable.referencedBy(column.getName())));
+                    }
+                    break;
+                case TIMESTAMP:
+                    if (isNull) {
+                        statement.setNull(index, Types.TIMESTAMP);
+                    } else {
+                        statement.setTimestamp(index, Timestamp.valueOf(value.asText()));
+                    }
+                    break;
+                case BINARY:
+                    if (isNull) {
+                        statement.setNull(index, Types.BLOB);
+                    } else {
+                        // bound as hibernate binds a lob, a large object on postgres
+                        final byte[] bytes = decode(value);
+                        statement.setBlob(index, new ByteArrayInputStream(bytes), bytes.length);
+                        pendingContentBytes += bytes.length;
+                    }
+                    break;
+                default:
+                    if (isNull) {
+                        statement.setNull(index, Types.VARCHAR);
+                    } else {
+                        statement.setString(index, value.asText());
+                    }
+            }
+        }
+
+        private static byte[] decode(JsonNode value) {
+            try {
+                return value.binaryValue();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid base64 value " + value, e);
+            }
+        }
+
+        private void addProfileImage(ObjectNode record) throws SQLException {
+            if (profileImageUpdate == null) {
+                profileImageUpdate = connection.prepareStatement("update users set profileImage_id = ? where id = ?");
+            }
+            profileImageUpdate.setLong(1, record.path("profileImage_id").asLong() + offset(TransferTable.IMAGES));
+            profileImageUpdate.setLong(2, record.path("id").asLong() + offset(TransferTable.USERS));
+            profileImageUpdate.addBatch();
+
+            if (++pendingProfileImages >= BATCH_SIZE) {
+                profileImageUpdate.executeBatch();
+                pendingProfileImages = 0;
+            }
+        }
+
+        private long offset(TransferTable table) {
+            final Long offset = offsets.get(table);
+            if (offset == null) {
+                throw new IllegalArgumentException("The header has no id range of " + table.getTableName());
+            }
+            return offset;
+        }
+
+        private void flushAll() throws SQLException {
+            for (TransferTable table : TransferTable.values()) {
+                flush(table);
+            }
+            if (pendingProfileImages > 0) {
+                profileImageUpdate.executeBatch();
+                pendingProfileImages = 0;
+            }
+        }
+
+        private void flush(TransferTable table) throws SQLException {
+            if (pending.getOrDefault(table, 0) == 0) {
+                return;
+            }
+            if (table == TransferTable.USERS) {
+                checkUsernamesAreFree();
+            }
+            inserts.get(table).executeBatch();
+            final PreparedStatement tagInsert = tagInserts.get(table);
+            if (tagInsert != null) {
+                tagInsert.executeBatch();
+            }
+            pending.put(table, 0);
+            if (table == TransferTable.IMAGES) {
+                pendingContentBytes = 0;
+            }
+        }
+
+        /**
+         * Usernames are not unique in the schema, a duplicate would only show up at the next login.
+         */
+        private void checkUsernamesAreFree() throws SQLException {
+            final String placeholders = String.join(", ", Collections.nCopies(pendingUsernames.size(), "?"));
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "select username from users where username in (" + placeholders + ")")) {
+                int index = 1;
+                for (String username : pendingUsernames) {
+                    statement.setString(index++, username);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        throw new IllegalStateException("User " + resultSet.getString(1) + " already exists");
+                    }
+                }
+            }
+            pendingUsernames.clear();
+        }
+
+        private PreparedStatement prepareInsert(TransferTable table) {
+            final List<String> columns = table.getColumns().stream()
+                    .map(TransferTable.Column::getName)
+                    .collect(Collectors.toList());
+            return prepare("insert into " + table.getTableName() + " (id, " + String.join(", ", columns) + ") " +
+                    " values (?" + String.join("", Collections.nCopies(columns.size(), ", ?")) + ")");
+        }
+
+        private PreparedStatement prepareTagInsert(TransferTable table) {
+            return prepare("insert into " + table.getTagsTableName() + " (" + table.getOwnerColumn() + ", tag_id) " +
+                    " values (?, ?)");
+        }
+
+        private PreparedStatement prepare(String sql) {
+            try {
+                return connection.prepareStatement(sql);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Can't prepare " + sql, e);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            final List<PreparedStatement> statements = new ArrayList<>(inserts.values());
+            statements.addAll(tagInserts.values());
+            if (profileImageUpdate != null) {
+                statements.add(profileImageUpdate);
+            }
+            for (PreparedStatement statement : statements) {
+                statement.close();
+            }
+        }
+    }
+}
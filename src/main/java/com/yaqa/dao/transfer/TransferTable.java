@@ -0,0 +1,158 @@
+package com.yaqa.dao.transfer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tables moved by {@link DataExporter} and {@link DataImporter}, in the order their records are written,
+ * so that rows are imported after the rows they reference. Records are named after the columns.
+ * <p>
+ * Counters are copied as they are, except the question counts of tags, which are recounted after an import
+ * because tags are merged by name.
+ */
+public enum TransferTable {
+    TAGS("tag", "tags", "TAGS_ID_SEQ", null,
+            Column.string("tagName")),
+    USERS("user", "users", "USERS_ID_SEQ", "user_tags",
+            Column.string("username"), Column.string("password"), Column.number("passwordVersion"),
+            Column.string("firstName"), Column.string("lastName"), Column.string("email")),
+    QUESTIONS("question", "questions", "QUESTIONS_ID_SEQ", "question_tags",
+            Column.string("body"), Column.timestamp("creationDate"), Column.reference("author"),
+            Column.number("likesCount"), Column.number("commentsCount"), Column.number("revision")),
+    COMMENTS("comment", "comments", "COMMENTS_ID_SEQ", null,
+            Column.string("body"), Column.timestamp("creationDate"), Column.reference("question_id"),
+            Column.reference("author"), Column.number("likesCount")),
+    LIKES("like", "likes", "LIKES_ID_SEQ", null,
+            Column.reference("liker"), Column.reference("question_id"), Column.reference("comment_id")),
+    IMAGES("image", "images", "IMAGES_ID_SEQ", null,
+            Column.string("contentType"), Column.binary("content"), Column.string("contentHash"), Column.number("size"),
+            Column.string("storage"), Column.reference("question_id"), Column.reference("comment_id"),
+            Column.reference("user_id"));
+
+    public static final String HEADER_RECORD = "header";
+    /**
+     * Users reference their profile images, which are imported after them, so the references follow the images.
+     */
+    public static final String PROFILE_IMAGE_RECORD = "profileImage";
+    public static final String TAG_IDS_FIELD = "tagIds";
+    public static final int FORMAT_VERSION = 1;
+
+    private final String recordType;
+    private final String tableName;
+    private final String sequenceName;
+    private final String tagsTableName;
+    private final List<Column> columns;
+
+    TransferTable(String recordType, String tableName, String sequenceName, String tagsTableName,
+                  Column... columns) {
+        this.recordType = recordType;
+        this.tableName = tableName;
+        this.sequenceName = sequenceName;
+        this.tagsTableName = tagsTableName;
+        this.columns = Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    public String getRecordType() {
+        return recordType;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    /**
+     * @return join table with the subscribed or assigned tags, keyed by {@link #getOwnerColumn()}, or null
+     */
+    public String getTagsTableName() {
+        return tagsTableName;
+    }
+
+    public String getOwnerColumn() {
+        return recordType + "_id";
+    }
+
+    /**
+     * @return columns besides the id
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public static TransferTable byRecordType(String recordType) {
+        for (TransferTable table : values()) {
+            if (table.recordType.equals(recordType)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return table referenced by the column, the reference columns are named alike in every table
+     */
+    public static TransferTable referencedBy(String columnName) {
+        switch (columnName) {
+            case "author":
+            case "liker":
+            case "user_id":
+                return USERS;
+            case "question_id":
+                return QUESTIONS;
+            case "comment_id":
+                return COMMENTS;
+            default:
+                throw new IllegalArgumentException("Unknown reference column " + columnName);
+        }
+    }
+
+    public enum ColumnType {
+        NUMBER, STRING, TIMESTAMP, REFERENCE,
+        /**
+         * Base64 in the records. Read a row at a time by the exporter, the values may be large.
+         */
+        BINARY
+    }
+
+    public static class Column {
+        private final String name;
+        private final ColumnType type;
+
+        private Column(String name, ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        static Column number(String name) {
+            return new Column(name, ColumnType.NUMBER);
+        }
+
+        static Column string(String name) {
+            return new Column(name, ColumnType.STRING);
+        }
+
+        static Column timestamp(String name) {
+            return new Column(name, ColumnType.TIMESTAMP);
+        }
+
+        static Column reference(String name) {
+            return new Column(name, ColumnType.REFERENCE);
+        }
+
+        static Column binary(String name) {
+            return new Column(name, ColumnType.BINARY);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.yaqa.exception;
+
+public class InvalidCursorException extends YaqaBaseException {
+    public InvalidCursorException(String s) {
+        super(s);
+    }
+}
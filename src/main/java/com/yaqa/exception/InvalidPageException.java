@@ -0,0 +1,7 @@
+package com.yaqa.exception;
+
+public class InvalidPageException extends YaqaBaseException {
+    public InvalidPageException(String s) {
+        super(s);
+    }
+}
@@ -0,0 +1,7 @@
+package com.yaqa.exception;
+
+public class PasswordHashingBusyException extends YaqaBaseException {
+    public PasswordHashingBusyException(String s) {
+        super(s);
+    }
+}
@@ -0,0 +1,24 @@
+package com.yaqa.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Monotonic counter updated by the application, see {@link MetricsRegistry#counter(String, String)}.
+ */
+public class Counter implements DoubleSupplier {
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void increment(long amount) {
+        value.add(amount);
+    }
+
+    @Override
+    public double getAsDouble() {
+        return value.sum();
+    }
+}
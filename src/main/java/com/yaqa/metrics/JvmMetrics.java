@@ -0,0 +1,74 @@
+package com.yaqa.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Garbage collection, allocation and heap metrics of the running JVM.
+ */
+public final class JvmMetrics {
+
+    private JvmMetrics() {
+    }
+
+    public static void bind(MetricsRegistry registry) {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            final String labels = MetricsRegistry.label("gc", collector.getName());
+            registry.counter("yaqa_jvm_gc_collections_total", labels, collector::getCollectionCount);
+            registry.counter("yaqa_jvm_gc_seconds_total", labels, () -> collector.getCollectionTime() / 1000.0);
+        }
+
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        registry.gauge("yaqa_jvm_heap_used_bytes", "", () -> memory.getHeapMemoryUsage().getUsed());
+        registry.gauge("yaqa_jvm_heap_committed_bytes", "", () -> memory.getHeapMemoryUsage().getCommitted());
+        registry.gauge("yaqa_jvm_heap_max_bytes", "", () -> memory.getHeapMemoryUsage().getMax());
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        registry.gauge("yaqa_jvm_threads", "", threads::getThreadCount);
+
+        if (threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            registry.counter("yaqa_jvm_allocated_bytes_total", "",
+                    new AllocatedBytes((com.sun.management.ThreadMXBean) threads));
+        }
+    }
+
+    /**
+     * Sum of the bytes allocated by live threads, accumulated from scrape to scrape, so that the counter
+     * does not go down when a thread terminates. What a thread allocated since the last scrape before it
+     * terminated is missed.
+     */
+    private static class AllocatedBytes implements DoubleSupplier {
+        private final com.sun.management.ThreadMXBean threads;
+        private final Map<Long, Long> lastAllocatedBytes = new HashMap<>();
+        private long total;
+
+        private AllocatedBytes(com.sun.management.ThreadMXBean threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public synchronized double getAsDouble() {
+            final long[] threadIds = threads.getAllThreadIds();
+            final long[] allocatedBytes = threads.getThreadAllocatedBytes(threadIds);
+
+            final Map<Long, Long> current = new HashMap<>();
+            for (int i = 0; i < threadIds.length; i++) {
+                if (allocatedBytes[i] < 0) {
+                    continue;
+                }
+                total += allocatedBytes[i] - lastAllocatedBytes.getOrDefault(threadIds[i], 0L);
+                current.put(threadIds[i], allocatedBytes[i]);
+            }
+
+            lastAllocatedBytes.clear();
+            lastAllocatedBytes.putAll(current);
+            return total;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.yaqa.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Metrics of the application, by metric name and by label set. Label sets are kept in their
+ * rendered form, e.g. {@code route="GET /question/{id}"}, see {@link #label}.
+ * <p>
+ * Counters and gauges may also be backed by values maintained elsewhere (the pool, hibernate, the JVM),
+ * those are read only when the metrics are collected.
+ */
+public class MetricsRegistry {
+    private final ConcurrentMap<String, ConcurrentSkipListMap<String, Histogram>> histograms =
+            new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, ConcurrentSkipListMap<String, DoubleSupplier>> counters =
+            new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, ConcurrentSkipListMap<String, DoubleSupplier>> gauges =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * @param bounds used only when the histogram does not exist yet
+     */
+    public Histogram histogram(String name, String labels, double... bounds) {
+        return histograms
+                .computeIfAbsent(name, key -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(labels, key -> new Histogram(bounds));
+    }
+
+    /**
+     * @throws IllegalArgumentException if a counter maintained elsewhere is registered with the same name and labels
+     */
+    public Counter counter(String name, String labels) {
+        final DoubleSupplier counter = counters
+                .computeIfAbsent(name, key -> new ConcurrentSkipListMap<>())
+                .computeIfAbsent(labels, key -> new Counter());
+        if (!(counter instanceof Counter)) {
+            throw new IllegalArgumentException("Counter " + name + '{' + labels + "} is maintained elsewhere");
+        }
+        return (Counter) counter;
+    }
+
+    /**
+     * Registers a counter maintained elsewhere, replacing any previous one with the same name and labels.
+     */
+    public void counter(String name, String labels, DoubleSupplier value) {
+        counters.computeIfAbsent(name, key -> new ConcurrentSkipListMap<>()).put(labels, value);
+    }
+
+    /**
+     * Registers a gauge, replacing any previous one with the same name and labels.
+     */
+    public void gauge(String name, String labels, DoubleSupplier value) {
+        gauges.computeIfAbsent(name, key -> new ConcurrentSkipListMap<>()).put(labels, value);
+    }
+
+    /**
+     * @return histograms by name and labels, both sorted
+     */
+    public Map<String, ? extends SortedMap<String, Histogram>> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    public Map<String, ? extends SortedMap<String, DoubleSupplier>> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    public Map<String, ? extends SortedMap<String, DoubleSupplier>> getGauges() {
+        return Collections.unmodifiableMap(gauges);
+    }
+
+    public static String label(String name, String value) {
+        return name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+    }
+
+    public static String labels(String firstName, String firstValue, String secondName, String secondValue) {
+        return label(firstName, firstValue) + ',' + label(secondName, secondValue);
+    }
+}
@@ -0,0 +1,80 @@
+package com.yaqa.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Writes a {@link MetricsRegistry} in the Prometheus text exposition format, version 0.0.4.
+ */
+public final class PrometheusTextFormat {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private PrometheusTextFormat() {
+    }
+
+    public static void write(MetricsRegistry registry, Writer out) throws IOException {
+        for (Map.Entry<String, ? extends SortedMap<String, DoubleSupplier>> family : registry.getCounters().entrySet()) {
+            writeValues(out, family.getKey(), "counter", family.getValue());
+        }
+        for (Map.Entry<String, ? extends SortedMap<String, DoubleSupplier>> family : registry.getGauges().entrySet()) {
+            writeValues(out, family.getKey(), "gauge", family.getValue());
+        }
+        for (Map.Entry<String, ? extends SortedMap<String, Histogram>> family : registry.getHistograms().entrySet()) {
+            writeHistograms(out, family.getKey(), family.getValue());
+        }
+    }
+
+    private static void writeValues(Writer out, String name, String type, SortedMap<String, DoubleSupplier> values)
+            throws IOException {
+        out.write("# TYPE " + name + ' ' + type + '\n');
+        for (Map.Entry<String, DoubleSupplier> value : values.entrySet()) {
+            writeSample(out, name, value.getKey(), value.getValue().getAsDouble());
+        }
+    }
+
+    private static void writeHistograms(Writer out, String name, SortedMap<String, Histogram> histograms)
+            throws IOException {
+        out.write("# TYPE " + name + " histogram\n");
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            final String labels = entry.getKey();
+            final Histogram histogram = entry.getValue();
+
+            // bounds and counts are read first, so that the buckets are consistent with each other
+            final double[] bounds = histogram.getBounds();
+            final long[] counts = histogram.getCumulativeCounts();
+            final String bucketLabels = labels.isEmpty() ? "" : labels + ',';
+            for (int i = 0; i < bounds.length; i++) {
+                writeSample(out, name + "_bucket", bucketLabels + "le=\"" + format(bounds[i]) + '"', counts[i]);
+            }
+            writeSample(out, name + "_bucket", bucketLabels + "le=\"+Inf\"", counts[bounds.length]);
+            writeSample(out, name + "_sum", labels, histogram.getSum());
+            writeSample(out, name + "_count", labels, counts[bounds.length]);
+        }
+    }
+
+    private static void writeSample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty()) {
+            out.write('{' + labels + '}');
+        }
+        out.write(' ');
+        out.write(format(value));
+        out.write('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -2,7 +2,6 @@ package com.yaqa.model;
 
 import com.yaqa.dao.entity.CommentEntity;
 import com.yaqa.dao.entity.ImageEntity;
-import com.yaqa.dao.entity.UserEntity;
 import org.joda.time.LocalDateTime;
 
 import java.util.List;
@@ -17,17 +16,13 @@ public class Comment {
     private final LikeResult.Type likeType;
     private final List<Long> imageIds;
 
-    public static Comment of(CommentEntity commentEntity, UserEntity currentUser) {
-        boolean likedByCurrentUser = commentEntity.getLikes()
-                .stream()
-                .anyMatch(l -> l.getLiker().getId().equals(currentUser.getId()));
-
+    public static Comment of(CommentEntity commentEntity, boolean likedByCurrentUser) {
         return new Comment(
                 commentEntity.getId(),
                 commentEntity.getBody(),
                 commentEntity.getCreationDate(),
                 User.of(commentEntity.getAuthor()),
-                commentEntity.getLikes().size(),
+                commentEntity.getLikesCount().intValue(),
                 likedByCurrentUser ? LikeResult.Type.LIKE : LikeResult.Type.DISLIKE,
                 commentEntity.getImages().stream().map(ImageEntity::getId).collect(Collectors.toList())
         );
@@ -9,14 +9,6 @@ public class Image {
     private final String contentType;
     private final Optional<byte[]> content;
 
-    public static Image of(ImageEntity imageEntity) {
-        return new Image(
-                imageEntity.getId(),
-                imageEntity.getContentType(),
-                imageEntity.getContent()
-        );
-    }
-
     public static Image ofWithoutContent(ImageEntity imageEntity) {
         return new Image(
                 imageEntity.getId(),
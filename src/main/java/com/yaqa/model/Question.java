@@ -2,7 +2,7 @@ package com.yaqa.model;
 
 import com.yaqa.dao.entity.ImageEntity;
 import com.yaqa.dao.entity.QuestionEntity;
-import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.projection.QuestionProjection;
 import org.joda.time.LocalDateTime;
 
 import java.util.List;
@@ -19,24 +19,41 @@ public class Question {
     private final List<Tag> tags;
     private final List<Long> imageIds;
 
-    public static Question of(QuestionEntity questionEntity, UserEntity currentUser) {
-        boolean likedByCurrentUser = questionEntity.getLikes()
-                .stream()
-                .anyMatch(l -> l.getLiker().getId().equals(currentUser.getId()));
-
+    public static Question of(QuestionEntity questionEntity, boolean likedByCurrentUser) {
         return new Question(
                 questionEntity.getId(),
                 questionEntity.getBody(),
                 questionEntity.getCreationDate(),
                 User.of(questionEntity.getAuthor()),
-                questionEntity.getLikes().size(),
+                questionEntity.getLikesCount().intValue(),
                 likedByCurrentUser ? LikeResult.Type.LIKE : LikeResult.Type.DISLIKE,
-                questionEntity.getComments().size(),
+                questionEntity.getCommentsCount().intValue(),
                 questionEntity.getTags().stream().map(Tag::of).collect(Collectors.toList()),
                 questionEntity.getImages().stream().map(ImageEntity::getId).collect(Collectors.toList())
         );
     }
 
+    public static Question of(QuestionProjection projection) {
+        return new Question(
+                projection.getId(),
+                projection.getBody(),
+                projection.getCreationDate(),
+                new User(
+                        projection.getAuthorId(),
+                        projection.getAuthorUsername(),
+                        projection.getAuthorFirstName(),
+                        projection.getAuthorLastName(),
+                        projection.getAuthorEmail(),
+                        projection.getAuthorProfileImageId()
+                ),
+                projection.getLikesCount().intValue(),
+                projection.isLikedByViewer() ? LikeResult.Type.LIKE : LikeResult.Type.DISLIKE,
+                projection.getCommentsCount().intValue(),
+                projection.getTags(),
+                projection.getImageIds()
+        );
+    }
+
     public Question(String body, List<Tag> tags) {
         this(null, body, null, null, null, null, null, tags, null);
     }
@@ -1,21 +1,22 @@
 package com.yaqa.model;
 
 import com.yaqa.dao.entity.QuestionEntity;
-import com.yaqa.dao.entity.UserEntity;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class QuestionWithComments {
     private final Question question;
     private final List<Comment> comments;
 
-    public static QuestionWithComments of(QuestionEntity questionEntity, UserEntity currentUser) {
+    public static QuestionWithComments of(QuestionEntity questionEntity, boolean questionLikedByCurrentUser,
+                                          Set<Long> commentIdsLikedByCurrentUser) {
         return new QuestionWithComments(
-                Question.of(questionEntity, currentUser),
+                Question.of(questionEntity, questionLikedByCurrentUser),
                 questionEntity.getComments()
                         .stream()
-                        .map(c -> Comment.of(c, currentUser))
+                        .map(c -> Comment.of(c, commentIdsLikedByCurrentUser.contains(c.getId())))
                         .collect(Collectors.toList())
         );
     }
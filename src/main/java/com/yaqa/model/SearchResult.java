@@ -0,0 +1,24 @@
+package com.yaqa.model;
+
+import java.util.List;
+
+public class SearchResult {
+    private final List<Question> questions;
+    private final String nextCursor;
+
+    public SearchResult(List<Question> questions, String nextCursor) {
+        this.questions = questions;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Question> getQuestions() {
+        return questions;
+    }
+
+    /**
+     * @return null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
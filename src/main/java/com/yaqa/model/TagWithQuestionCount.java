@@ -0,0 +1,34 @@
+package com.yaqa.model;
+
+import com.yaqa.dao.projection.TagCount;
+
+/**
+ * A {@link Tag} with the number of questions tagged with it.
+ */
+public class TagWithQuestionCount {
+    private final Long id;
+    private final String tagName;
+    private final Long questionsCount;
+
+    public static TagWithQuestionCount of(TagCount tagCount) {
+        return new TagWithQuestionCount(tagCount.getId(), tagCount.getTagName(), tagCount.getQuestionsCount());
+    }
+
+    public TagWithQuestionCount(Long id, String tagName, Long questionsCount) {
+        this.id = id;
+        this.tagName = tagName;
+        this.questionsCount = questionsCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTagName() {
+        return tagName;
+    }
+
+    public Long getQuestionsCount() {
+        return questionsCount;
+    }
+}
@@ -0,0 +1,14 @@
+package com.yaqa.service;
+
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+/**
+ * Loads principals for form and remember-me logins, recently loaded ones are served from memory.
+ */
+public interface AuthenticationService extends UserDetailsService {
+
+    /**
+     * Forgets the cached principal, e.g. after the password has been changed.
+     */
+    void evict(String username);
+}
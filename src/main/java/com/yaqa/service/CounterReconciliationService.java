@@ -0,0 +1,6 @@
+package com.yaqa.service;
+
+public interface CounterReconciliationService {
+
+    void reconcileCounters();
+}
@@ -0,0 +1,21 @@
+package com.yaqa.service;
+
+import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.model.User;
+
+/**
+ * Resolves the authenticated user at most once per HTTP request.
+ */
+public interface CurrentUserResolver {
+
+    Long getCurrentUserId();
+
+    User getCurrentUser();
+
+    UserEntity getCurrentUserEntity();
+
+    /**
+     * Forgets the user resolved for the current request, e.g. after the profile has been changed.
+     */
+    void evict();
+}
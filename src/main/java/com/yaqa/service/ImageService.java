@@ -1,10 +1,27 @@
 package com.yaqa.service;
 
 import com.yaqa.model.Image;
+import com.yaqa.service.image.ImageBlob;
+import com.yaqa.service.image.ImageVariant;
+
+import java.io.InputStream;
 
 public interface ImageService {
 
-    Image saveImage(byte[] imageContent);
+    Image saveImage(InputStream imageContent);
 
     Image getById(Long imageId);
+
+    ImageBlob getContentById(Long imageId);
+
+    ImageBlob getContentById(Long imageId, ImageVariant variant);
+
+    /**
+     * Entity tag of the image or its variant, resolved from the metadata only.
+     *
+     * @param variant may be null for the original
+     */
+    String getETag(Long imageId, ImageVariant variant);
+
+    long getMaxImageSize();
 }
@@ -0,0 +1,15 @@
+package com.yaqa.service;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Hashes and verifies passwords off the request threads, throws
+ * {@link com.yaqa.exception.PasswordHashingBusyException} when too many are waiting.
+ */
+public interface PasswordHashingService extends PasswordEncoder {
+
+    /**
+     * @return true if the hash was made with other settings than the current ones and should be replaced
+     */
+    boolean needsRehash(String encodedPassword);
+}
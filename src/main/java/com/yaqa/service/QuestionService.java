@@ -3,6 +3,7 @@ package com.yaqa.service;
 import com.yaqa.model.LikeResult;
 import com.yaqa.model.Question;
 import com.yaqa.model.QuestionWithComments;
+import com.yaqa.model.SearchResult;
 import com.yaqa.web.model.CreateQuestionRequest;
 import com.yaqa.web.model.PostCommentRequest;
 
@@ -16,6 +17,13 @@ public interface QuestionService {
 
     QuestionWithComments getByIdWithComments(Long id);
 
+    /**
+     * Entity tag of {@link #getByIdWithComments} for the current user, resolved without loading the question.
+     *
+     * @return null if there is no question with such id
+     */
+    String getETag(Long id);
+
     List<Question> getByTagName(String tagName);
 
     QuestionWithComments createNewQuestion(CreateQuestionRequest request);
@@ -42,5 +50,12 @@ public interface QuestionService {
 
     List<Question> getUserSubscriptionLimited(Long lastId, int limit);
 
+    /**
+     * Questions whose body or comments match the query, best matches first.
+     *
+     * @param cursor next cursor of the previous page, null for the first page
+     */
+    SearchResult search(String query, String cursor, int limit);
+
     QuestionWithComments updateQuestion(Long questionId, CreateQuestionRequest request);
 }
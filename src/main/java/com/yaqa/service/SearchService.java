@@ -0,0 +1,27 @@
+package com.yaqa.service;
+
+import com.yaqa.service.search.SearchHit;
+
+import java.util.List;
+
+/**
+ * Full-text search over the bodies of questions and their comments. The index is updated asynchronously
+ * once the changes are committed.
+ */
+public interface SearchService {
+
+    void indexQuestion(Long questionId, String body);
+
+    void indexComment(Long commentId, Long questionId, String body);
+
+    /**
+     * @param after last hit of the previous page, null for the first page
+     * @return question hits, best first
+     */
+    List<SearchHit> search(String query, SearchHit after, int limit);
+
+    /**
+     * Writes a snapshot of the index to disk if it changed.
+     */
+    void compact();
+}
@@ -1,10 +1,40 @@
 package com.yaqa.service;
 
 import com.yaqa.model.Tag;
+import com.yaqa.model.TagWithQuestionCount;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TagService {
 
-    List<Tag> getAll();
+    /**
+     * @return page of tags, most used first
+     */
+    List<TagWithQuestionCount> getMostUsed(int page, int pageSize);
+
+    /**
+     * @return number of tags, as of the current {@link #getMostUsed} pages
+     */
+    long getTagCount();
+
+    /**
+     * Entity tag of a {@link #getMostUsed} page, changes whenever tags or their counts change.
+     */
+    String getMostUsedETag(int page, int pageSize);
+
+    /**
+     * @return tags whose names start with the prefix ignoring case, most used first
+     */
+    List<Tag> autocomplete(String prefix, int limit);
+
+    /**
+     * Updates the question counts of the tags of a question that was created or retagged.
+     */
+    void questionTagsChanged(Collection<Long> addedTagIds, Collection<Long> removedTagIds);
+
+    /**
+     * Reloads all tags and their question counts.
+     */
+    void refreshAutocomplete();
 }
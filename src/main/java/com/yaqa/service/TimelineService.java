@@ -0,0 +1,48 @@
+package com.yaqa.service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Precomputed home timelines: questions are pushed to the subscribers of their tags when they are posted
+ * ({@code yaqa.timeline.fanout=true}), so that reading a page of the subscription feed does not have to
+ * look at the subscriptions at all.
+ */
+public interface TimelineService {
+
+    boolean isEnabled();
+
+    /**
+     * Adds the question to the timelines of the subscribers of the tags, does nothing unless enabled.
+     */
+    void fanOut(Long questionId, Collection<Long> tagIds);
+
+    /**
+     * A timeline only goes back to when fan-out was enabled, the user changed subscriptions or the timeline was
+     * last trimmed, older questions have to be taken from the subscriptions.
+     *
+     * @param lastId exclusive upper bound, null for the newest questions
+     * @return question ids, newest first, fewer than the limit when the timeline ends
+     */
+    List<Long> getQuestionIds(Long userId, Long lastId, int limit);
+
+    /**
+     * Drops the timeline of a user whose subscriptions changed.
+     */
+    void reset(Long userId);
+
+    /**
+     * Removes the retagged question from the timelines of the users no longer subscribed to any of its tags and
+     * adds it to the timelines of the subscribers of the added tags which go back further than the question.
+     * Timelines starting after the question don't get it, it is taken from the subscriptions once they end.
+     *
+     * @param tagIds all the tags of the question
+     */
+    void questionTagsChanged(Long questionId, Collection<Long> tagIds,
+                             Collection<Long> addedTagIds, Collection<Long> removedTagIds);
+
+    /**
+     * Keeps only the newest {@code yaqa.timeline.size} questions of every timeline.
+     */
+    void trimTimelines();
+}
@@ -13,5 +13,10 @@ public interface UserService {
 
     User getCurrentAuthenticatedUser();
 
+    /**
+     * Replaces the password hash of the current user if it was made with outdated settings.
+     */
+    void rehashPasswordIfNeeded(String rawPassword);
+
     UserWithTags getById(Long userId);
 }
@@ -0,0 +1,40 @@
+package com.yaqa.service.image;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+public class ByteArrayImageBlob implements ImageBlob {
+    private final String contentType;
+    private final byte[] content;
+    private final String eTag;
+
+    public ByteArrayImageBlob(String contentType, byte[] content, String eTag) {
+        this.contentType = contentType;
+        this.content = content;
+        this.eTag = eTag;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public long getSize() {
+        return content.length;
+    }
+
+    @Override
+    public String getETag() {
+        return eTag;
+    }
+
+    @Override
+    public void transferTo(WritableByteChannel target) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(content);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.yaqa.service.image;
+
+import com.yaqa.dao.ImageDao;
+import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.entity.ImageStorageType;
+import com.yaqa.dao.projection.ImageMetadata;
+import org.hibernate.engine.jdbc.BlobProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Blob;
+import java.sql.SQLException;
+
+/**
+ * Keeps the content in the lob column of the images table, the way all images were stored originally.
+ */
+@Component
+public class DatabaseImageStorage implements ImageStorage {
+    private static final Logger log = LoggerFactory.getLogger(DatabaseImageStorage.class);
+
+    @Autowired
+    private ImageDao imageDao;
+
+    @Override
+    public ImageStorageType getType() {
+        return ImageStorageType.DATABASE;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * The content is spooled to a temporary file, as its hash and size go into the same insert, and the insert
+     * streams the file into the lob. The file is deleted once the blob is {@link #release(ImageEntity) released}.
+     */
+    @Override
+    public void store(ImageEntity image, ImageContentStream content) {
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("image", null);
+            Files.copy(content, spool, StandardCopyOption.REPLACE_EXISTING);
+            final InputStream spooled = Files.newInputStream(spool, StandardOpenOption.DELETE_ON_CLOSE);
+            spool = null;
+
+            image.setContent(BlobProxy.generateProxy(spooled, content.getSize()));
+            image.setContentHash(content.getContentHash());
+            image.setSize(content.getSize());
+            image.setStorage(ImageStorageType.DATABASE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read image", e);
+        } finally {
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException e) {
+                    log.warn("Unable to delete temporary file {}", spool, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void release(ImageEntity image) {
+        final Blob content = image.getContent();
+        if (content != null) {
+            try {
+                content.free();
+            } catch (SQLException e) {
+                log.warn("Unable to release the content of image {}", image.getId(), e);
+            }
+        }
+    }
+
+    @Override
+    public ImageBlob open(ImageMetadata image) {
+        return new ByteArrayImageBlob(image.getContentType(), imageDao.getContentById(image.getId()), image.getETag());
+    }
+}
@@ -0,0 +1,275 @@
+package com.yaqa.service.image;
+
+import com.yaqa.dao.ImageDao;
+import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.entity.ImageStorageType;
+import com.yaqa.dao.projection.ImageMetadata;
+import com.yaqa.exception.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content addressed store on the local file system. Every blob is kept once under its SHA-256 hash
+ * (<code>ab/cd/abcd...</code>), so identical uploads share a file and a written file never changes.
+ * <p>
+ * Disabled unless {@code yaqa.images.directory} is set, the local disk of a node may not outlive it.
+ */
+@Component
+public class FileSystemImageStorage implements ImageStorage {
+    private static final Logger log = LoggerFactory.getLogger(FileSystemImageStorage.class);
+
+    private static final int ORPHAN_BATCH_SIZE = 500;
+    private static final int CONTENT_HASH_LENGTH = 64;
+
+    @Autowired
+    private ImageDao imageDao;
+
+    @Value("${yaqa.images.directory:}")
+    private String directory;
+
+    @Value("${yaqa.images.orphan-grace-minutes:60}")
+    private long orphanGraceMinutes;
+
+    private Path root;
+    private Path tmp;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (directory.isEmpty()) {
+            log.info("Images are not stored on the file system, yaqa.images.directory is not set");
+            return;
+        }
+        root = Paths.get(directory).toAbsolutePath();
+        tmp = root.resolve("tmp");
+        Files.createDirectories(tmp);
+        log.info("Images are stored in {}", root);
+    }
+
+    @Override
+    public ImageStorageType getType() {
+        return ImageStorageType.FILE_SYSTEM;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return root != null;
+    }
+
+    /**
+     * The content is streamed to a temporary file first, as its hash and so its final place are known
+     * only after it has been read completely.
+     */
+    @Override
+    public void store(ImageEntity image, ImageContentStream content) {
+        if (root == null) {
+            throw new IllegalStateException("yaqa.images.directory is not set");
+        }
+
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(tmp, "upload", null);
+            Files.copy(content, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+
+            final String contentHash = content.getContentHash();
+            final Path target = resolve(contentHash);
+            if (Files.exists(target)) {
+                Files.delete(tmpFile);
+                // the shared file must not look orphaned until the image is committed
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            } else {
+                Files.createDirectories(target.getParent());
+                publish(tmpFile, target);
+            }
+
+            image.setContentHash(contentHash);
+            image.setSize(content.getSize());
+            image.setStorage(ImageStorageType.FILE_SYSTEM);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to store image", e);
+        } finally {
+            deleteQuietly(tmpFile);
+        }
+    }
+
+    /**
+     * Nothing to free, the blob is published by {@link #store}.
+     */
+    @Override
+    public void release(ImageEntity image) {
+    }
+
+    @Override
+    public ImageBlob open(ImageMetadata image) {
+        if (root == null) {
+            log.warn("Image {} is stored on the file system, but yaqa.images.directory is not set", image.getId());
+            throw new NotFoundException(ImageEntity.class, image.getId());
+        }
+
+        final Path file = resolve(image.getContentHash());
+        if (!Files.isReadable(file)) {
+            throw new NotFoundException(ImageEntity.class, image.getId());
+        }
+
+        return new ImageBlob() {
+            @Override
+            public String getContentType() {
+                return image.getContentType();
+            }
+
+            @Override
+            public long getSize() {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public String getETag() {
+                return image.getETag();
+            }
+
+            @Override
+            public void transferTo(WritableByteChannel target) throws IOException {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    final long size = channel.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += channel.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Deletes the files no image refers to: blobs of uploads whose transaction failed and temporary files
+     * of interrupted uploads. Files changed within the grace period are kept, their images may not be
+     * committed yet.
+     *
+     * @return number of deleted files
+     */
+    @Scheduled(initialDelay = 30 * 60 * 1000, fixedDelay = 60 * 60 * 1000)
+    public int collectOrphans() {
+        if (root == null) {
+            return 0;
+        }
+
+        final FileTime threshold = FileTime.from(Instant.now().minus(orphanGraceMinutes, ChronoUnit.MINUTES));
+        int deleted = 0;
+        final List<Path> blobs = new ArrayList<>(ORPHAN_BATCH_SIZE);
+        try (Stream<Path> files = Files.walk(root)) {
+            final Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                final Path file = iterator.next();
+                final Path relative = root.relativize(file);
+                if (!Files.isRegularFile(file) || !isOlderThan(file, threshold)) {
+                    continue;
+                }
+
+                if (file.startsWith(tmp)) {
+                    deleted += Files.deleteIfExists(file) ? 1 : 0;
+                } else if (relative.getNameCount() == 3 &&
+                        relative.getFileName().toString().length() == CONTENT_HASH_LENGTH) {
+                    blobs.add(file);
+                    if (blobs.size() == ORPHAN_BATCH_SIZE) {
+                        deleted += deleteUnreferenced(blobs, threshold);
+                        blobs.clear();
+                    }
+                }
+            }
+            deleted += deleteUnreferenced(blobs, threshold);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Unable to collect orphaned images in {}", root, e);
+        }
+
+        if (deleted > 0) {
+            log.info("Deleted {} orphaned image files", deleted);
+        }
+        return deleted;
+    }
+
+    private int deleteUnreferenced(List<Path> blobs, FileTime threshold) throws IOException {
+        if (blobs.isEmpty()) {
+            return 0;
+        }
+
+        final Set<String> referenced = imageDao.getReferencedContentHashes(blobs.stream()
+                .map(blob -> blob.getFileName().toString())
+                .collect(Collectors.toList()));
+
+        int deleted = 0;
+        for (Path blob : blobs) {
+            // checked again, an upload of the same content touches the file before its image is committed
+            if (!referenced.contains(blob.getFileName().toString()) && isOlderThan(blob, threshold)) {
+                deleted += Files.deleteIfExists(blob) ? 1 : 0;
+            }
+        }
+        return deleted;
+    }
+
+    private static boolean isOlderThan(Path file, FileTime threshold) throws IOException {
+        return Files.getLastModifiedTime(file).compareTo(threshold) < 0;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Unable to delete temporary file {}", file, e);
+            }
+        }
+    }
+
+    private Path resolve(String contentHash) {
+        return root.resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+    }
+
+    /**
+     * Moves a fully written temporary file to its final place, so readers never see a partially written blob.
+     * A concurrent upload of the same content may win the race, which is fine as both files are equal.
+     */
+    private void publish(Path tmpFile, Path target) throws IOException {
+        try {
+            Files.move(tmpFile, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(tmpFile, target);
+            } catch (FileAlreadyExistsException ignored) {
+                Files.deleteIfExists(tmpFile);
+            }
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.yaqa.service.image;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Content of a stored image, ready to be written to a client.
+ */
+public interface ImageBlob {
+
+    String getContentType();
+
+    long getSize();
+
+    /**
+     * Strong entity tag of the content, images never change so it is derived from the content hash.
+     */
+    String getETag();
+
+    /**
+     * Files are written with {@link java.nio.channels.FileChannel#transferTo}, which avoids copying through
+     * the heap only for file and socket targets. The channel of a servlet response is neither, so responses
+     * are a buffered copy.
+     */
+    void transferTo(WritableByteChannel target) throws IOException;
+}
@@ -0,0 +1,106 @@
+package com.yaqa.service.image;
+
+import com.yaqa.exception.InvalidImageException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Stream of an uploaded image which hashes and counts the content while it is read, and fails as soon as
+ * more than {@code maxSize} bytes have been read. Hash and size are known once the stream is exhausted.
+ */
+public class ImageContentStream extends FilterInputStream {
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private final long maxSize;
+    private final MessageDigest digest;
+    private long size;
+
+    public ImageContentStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = in.read();
+        if (b != -1) {
+            digest.update((byte) b);
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int read = in.read(b, off, len);
+        if (read > 0) {
+            digest.update(b, off, read);
+            count(read);
+        }
+        return read;
+    }
+
+    /**
+     * Skipped content is read all the same, it is part of the hash and the size.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        final byte[] buffer = new byte[(int) Math.min(SKIP_BUFFER_SIZE, Math.max(n, 0))];
+        long skipped = 0;
+        while (skipped < n) {
+            final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // not supported, re-read content would be hashed twice
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Hex encoded SHA-256 of the content, may be called only once after the stream has been read to the end.
+     */
+    public String getContentHash() {
+        final byte[] hash = digest.digest();
+        final StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private void count(int read) {
+        size += read;
+        if (size > maxSize) {
+            throw new InvalidImageException("image is larger than " + maxSize + " bytes");
+        }
+    }
+}
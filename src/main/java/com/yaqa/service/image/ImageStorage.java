@@ -0,0 +1,31 @@
+package com.yaqa.service.image;
+
+import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.entity.ImageStorageType;
+import com.yaqa.dao.projection.ImageMetadata;
+
+/**
+ * Backend keeping the content of images. The images table always holds the metadata, the content goes
+ * wherever the storage decides.
+ */
+public interface ImageStorage {
+
+    ImageStorageType getType();
+
+    /**
+     * @return false if the storage is not configured and can't store content
+     */
+    boolean isEnabled();
+
+    /**
+     * Reads the content to the end and stores it for a not yet persisted image, filling its hash and size.
+     */
+    void store(ImageEntity image, ImageContentStream content);
+
+    /**
+     * Frees what {@link #store} kept for the insert, called once the image is persisted or has failed to be.
+     */
+    void release(ImageEntity image);
+
+    ImageBlob open(ImageMetadata image);
+}
@@ -0,0 +1,31 @@
+package com.yaqa.service.image;
+
+import com.yaqa.exception.InvalidImageException;
+
+/**
+ * Downscaled renditions of an image, bounded by the longest side.
+ */
+public enum ImageVariant {
+    SMALL(64),
+    MEDIUM(256),
+    LARGE(1024);
+
+    private final int maxDimension;
+
+    ImageVariant(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    public static ImageVariant of(String name) {
+        for (ImageVariant variant : values()) {
+            if (variant.name().equalsIgnoreCase(name)) {
+                return variant;
+            }
+        }
+        throw new InvalidImageException("unknown image size: " + name);
+    }
+}
@@ -0,0 +1,283 @@
+package com.yaqa.service.image;
+
+import com.yaqa.dao.projection.ImageMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Produces downscaled variants of images and keeps them next to the originals on the file system,
+ * with the most requested ones additionally held in memory. Without {@code yaqa.images.directory} variants
+ * are only kept in memory.
+ * <p>
+ * Variants are rendered on a small bounded pool. When the pool is saturated or rendering takes too long
+ * the original is served instead, rendering continues in the background and the next request gets the variant.
+ */
+@Component
+public class ImageVariantStore {
+    private static final Logger log = LoggerFactory.getLogger(ImageVariantStore.class);
+    private static final float JPEG_QUALITY = 0.85f;
+
+    @Value("${yaqa.images.directory:}")
+    private String directory;
+
+    @Value("${yaqa.images.variants.threads:2}")
+    private int threads;
+
+    @Value("${yaqa.images.variants.queue-size:64}")
+    private int queueSize;
+
+    @Value("${yaqa.images.variants.timeout-millis:5000}")
+    private long timeoutMillis;
+
+    @Value("${yaqa.images.variants.cache-size:67108864}")
+    private long cacheSize;
+
+    private Path root;
+    private Path tmp;
+    private ThreadPoolExecutor executor;
+
+    private final ConcurrentMap<String, Future<ByteArrayImageBlob>> rendering = new ConcurrentHashMap<>();
+
+    // guarded by this
+    private final LinkedHashMap<String, ByteArrayImageBlob> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!directory.isEmpty()) {
+            root = Paths.get(directory).toAbsolutePath().resolve("variants");
+            tmp = root.resolve("tmp");
+            Files.createDirectories(tmp);
+        }
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "image-variants-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param original supplies the original content, called only when the variant is rendered or the original
+     *                 is served instead, possibly from the rendering thread
+     */
+    public ImageBlob getVariant(ImageMetadata image, ImageVariant variant, Supplier<ImageBlob> original) {
+        final String key = variantKey(image, variant);
+
+        final ByteArrayImageBlob cached = getCached(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final Path file = root != null ? resolve(key) : null;
+        if (file != null && Files.exists(file)) {
+            try {
+                final ByteArrayImageBlob blob = new ByteArrayImageBlob(image.getContentType(),
+                        Files.readAllBytes(file), toETag(key));
+                putCached(key, blob);
+                return blob;
+            } catch (IOException e) {
+                log.warn("Unable to read image variant {}", file, e);
+            }
+        }
+
+        final Future<ByteArrayImageBlob> future;
+        try {
+            future = rendering.computeIfAbsent(key, k -> executor.submit(() -> {
+                try {
+                    return render(key, image, original.get(), variant);
+                } finally {
+                    rendering.remove(key);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            log.debug("Image variant rendering is saturated, serving original of image {}", image.getId());
+            return original.get();
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Image variant {} is not rendered yet, serving original", key);
+            return original.get();
+        } catch (ExecutionException e) {
+            log.warn("Unable to render image variant {}", key, e.getCause());
+            return original.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return original.get();
+        }
+    }
+
+    private ByteArrayImageBlob render(String key, ImageMetadata image, ImageBlob original, ImageVariant variant)
+            throws IOException {
+        final ByteArrayOutputStream originalContent = new ByteArrayOutputStream((int) original.getSize());
+        original.transferTo(Channels.newChannel(originalContent));
+
+        final BufferedImage source = ImageIO.read(new ByteArrayInputStream(originalContent.toByteArray()));
+        if (source == null) {
+            throw new IOException("Image can't be decoded");
+        }
+
+        final byte[] content;
+        final int longestSide = Math.max(source.getWidth(), source.getHeight());
+        if (longestSide <= variant.getMaxDimension()) {
+            content = originalContent.toByteArray();
+        } else {
+            final double scale = (double) variant.getMaxDimension() / longestSide;
+            final BufferedImage scaled = scale(source,
+                    Math.max(1, (int) Math.round(source.getWidth() * scale)),
+                    Math.max(1, (int) Math.round(source.getHeight() * scale)));
+            content = encode(scaled, image.getContentType());
+        }
+
+        if (root != null) {
+            final Path tmpFile = Files.createTempFile(tmp, "variant", null);
+            try {
+                Files.write(tmpFile, content);
+                final Path file = resolve(key);
+                Files.createDirectories(file.getParent());
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmpFile);
+            }
+        }
+
+        final ByteArrayImageBlob blob = new ByteArrayImageBlob(image.getContentType(), content, toETag(key));
+        putCached(key, blob);
+        return blob;
+    }
+
+    /**
+     * Halves the image until it is close to the target size, a single bilinear step loses too much detail
+     * on large reductions.
+     */
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        final int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+
+            final BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+            final Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String contentType) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (MediaType.IMAGE_JPEG_VALUE.equals(contentType)) {
+            final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+                final ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.setOutput(ios);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+        } else {
+            ImageIO.write(image, "png", out);
+        }
+        return out.toByteArray();
+    }
+
+    private synchronized ByteArrayImageBlob getCached(String key) {
+        return cache.get(key);
+    }
+
+    private synchronized void putCached(String key, ByteArrayImageBlob blob) {
+        if (blob.getSize() > cacheSize) {
+            return;
+        }
+
+        final ByteArrayImageBlob previous = cache.put(key, blob);
+        if (previous != null) {
+            cachedBytes -= previous.getSize();
+        }
+        cachedBytes += blob.getSize();
+
+        final Iterator<ByteArrayImageBlob> eldest = cache.values().iterator();
+        while (cachedBytes > cacheSize && eldest.hasNext()) {
+            cachedBytes -= eldest.next().getSize();
+            eldest.remove();
+        }
+    }
+
+    public static String toETag(ImageMetadata image, ImageVariant variant) {
+        return toETag(variantKey(image, variant));
+    }
+
+    private static String toETag(String variantKey) {
+        return "\"" + variantKey + "\"";
+    }
+
+    /**
+     * Variants of deduplicated images are shared.
+     */
+    private static String variantKey(ImageMetadata image, ImageVariant variant) {
+        return image.getContentKey() + "-" + variant.name().toLowerCase(Locale.ROOT);
+    }
+
+    private Path resolve(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key);
+    }
+}
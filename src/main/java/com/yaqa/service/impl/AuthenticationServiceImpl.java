@@ -0,0 +1,119 @@
+package com.yaqa.service.impl;
+
+import com.yaqa.dao.UserDao;
+import com.yaqa.dao.projection.UserCredentials;
+import com.yaqa.service.AuthenticationService;
+import com.yaqa.service.security.AuthenticatedUser;
+import com.yaqa.util.TransactionHooks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.NoResultException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Principals are cached by username for a limited time. A new principal is returned on every call, because
+ * spring security erases the credentials of the principal once it has been authenticated.
+ * <p>
+ * The cache of the node changing a password is evicted on commit, the other nodes accept the old password or
+ * remember-me cookies until their principals expire, after {@code yaqa.auth.cache-ttl-seconds} at most. The
+ * principals are read past the second-level cache, which would add its own expiry to that.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AuthenticationServiceImpl implements AuthenticationService {
+
+    @Value("${yaqa.auth.cache-size:10000}")
+    private int cacheSize;
+
+    // how long the other nodes keep accepting a changed password
+    @Value("${yaqa.auth.cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    @Autowired
+    private UserDao userDao;
+
+    /**
+     * Incremented on eviction, a principal loaded while a user changed may be stale and is not cached.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    private Map<String, CachedPrincipal> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, CachedPrincipal>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPrincipal> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        final long now = System.nanoTime();
+
+        CachedPrincipal principal = cache.get(username);
+        if (principal == null || principal.isExpired(now)) {
+            final long evictionsBefore = evictions.get();
+            principal = load(username, now);
+            cache.put(username, principal);
+            if (evictions.get() != evictionsBefore) {
+                cache.remove(username);
+            }
+        }
+
+        return new AuthenticatedUser(principal.userId, username, principal.password, principal.passwordVersion);
+    }
+
+    @Override
+    public void evict(String username) {
+        TransactionHooks.afterCommit(() -> remove(username));
+    }
+
+    private void remove(String username) {
+        evictions.incrementAndGet();
+        cache.remove(username);
+    }
+
+    private CachedPrincipal load(String username, long now) {
+        final UserCredentials user;
+        try {
+            user = userDao.getCredentialsByUsername(username);
+        } catch (EmptyResultDataAccessException | NoResultException e) {
+            // translated only where the persistence exception translation is set up, i.e. not in tests
+            throw new UsernameNotFoundException("User was not found by username = " + username);
+        }
+        return new CachedPrincipal(user.getId(), user.getPassword(), user.getPasswordVersion(),
+                now + TimeUnit.SECONDS.toNanos(cacheTtlSeconds));
+    }
+
+    private static class CachedPrincipal {
+        private final Long userId;
+        private final String password;
+        private final long passwordVersion;
+        private final long expiresAt;
+
+        private CachedPrincipal(Long userId, String password, long passwordVersion, long expiresAt) {
+            this.userId = userId;
+            this.password = password;
+            this.passwordVersion = passwordVersion;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
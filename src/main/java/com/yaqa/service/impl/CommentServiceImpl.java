@@ -2,14 +2,14 @@ package com.yaqa.service.impl;
 
 import com.yaqa.dao.CommentDao;
 import com.yaqa.dao.LikeDao;
+import com.yaqa.dao.QuestionDao;
 import com.yaqa.dao.UserDao;
 import com.yaqa.dao.entity.CommentEntity;
 import com.yaqa.dao.entity.LikeEntity;
-import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.exception.NotFoundException;
 import com.yaqa.model.LikeResult;
-import com.yaqa.model.User;
 import com.yaqa.service.CommentService;
-import com.yaqa.service.UserService;
+import com.yaqa.service.CurrentUserResolver;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,65 +24,32 @@ public class CommentServiceImpl implements CommentService {
     @Autowired
     private LikeDao likeDao;
 
+    @Autowired
+    private QuestionDao questionDao;
+
     @Autowired
     private UserDao userDao;
 
     @Autowired
-    private UserService userService;
+    private CurrentUserResolver currentUserResolver;
 
     @Override
     @Transactional
     public LikeResult likeComment(Long commentId) {
-        final User currentAuthenticatedUser = userService.getCurrentAuthenticatedUser();
-        final UserEntity currentUserEntity = userDao.getById(currentAuthenticatedUser.getId());
-
-        final CommentEntity comment = commentDao.getById(commentId);
-
-        final boolean likedByCurrentUser = currentUserEntity.getLikes()
-                .stream()
-                .anyMatch(l -> {
-                    CommentEntity c = l.getComment();
-                    return c != null && c.getId().equals(commentId);
-                });
+        final Long currentUserId = currentUserResolver.getCurrentUserId();
 
-        LikeResult.Type likeType = LikeResult.Type.LIKE;
-        if (!likedByCurrentUser) {
-            likeComment(comment, currentUserEntity);
-        } else {
-            dislikeComment(comment, currentUserEntity);
-            likeType = LikeResult.Type.DISLIKE;
+        // concurrent toggles of a user would both find no like to remove and insert it twice
+        if (!commentDao.lockCounters(commentId)) {
+            throw new NotFoundException(CommentEntity.class, commentId);
+        }
+        final boolean disliked = likeDao.removeCommentLike(currentUserId, commentId);
+        commentDao.incrementLikesCount(commentId, disliked ? -1 : 1);
+        questionDao.incrementRevisionByComment(commentId);
+        if (!disliked) {
+            likeDao.save(new LikeEntity(userDao.getReference(currentUserId), commentDao.getReference(commentId)));
         }
 
-        return new LikeResult(commentDao.getLikeCount(comment), likeType);
-    }
-
-    private void likeComment(CommentEntity comment, UserEntity user) {
-        final LikeEntity like = new LikeEntity(user, comment);
-        likeDao.save(like);
-
-        comment.getLikes().add(like);
-        user.getLikes().add(like);
-
-        commentDao.merge(comment);
-        userDao.merge(user);
-    }
-
-    private void dislikeComment(CommentEntity comment, UserEntity user) {
-        final LikeEntity like = comment.getLikes()
-                .stream()
-                .filter(l -> {
-                    UserEntity liker = l.getLiker();
-                    return liker != null && liker.getId().equals(user.getId());
-                })
-                .findFirst()
-                .get();
-
-        comment.getLikes().remove(like);
-        user.getLikes().remove(like);
-
-        commentDao.merge(comment);
-        userDao.merge(user);
-
-        likeDao.remove(like);
+        return new LikeResult(commentDao.getLikeCount(commentId),
+                disliked ? LikeResult.Type.DISLIKE : LikeResult.Type.LIKE);
     }
 }
@@ -0,0 +1,73 @@
+package com.yaqa.service.impl;
+
+import com.yaqa.dao.CommentDao;
+import com.yaqa.dao.QuestionDao;
+import com.yaqa.dao.TagDao;
+import com.yaqa.service.CounterReconciliationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Repairs drift of the denormalized like, comment and question counters (e.g. after manual data fixes or
+ * counters that were added to already populated tables). Every batch of ids is reconciled in its
+ * own short transaction so that concurrent likes are never blocked for long. The counters of a batch are
+ * locked before they are recounted, so that a like or comment applied meanwhile is not overwritten.
+ */
+@Service
+public class CounterReconciliationServiceImpl implements CounterReconciliationService {
+    private static final Logger log = LoggerFactory.getLogger(CounterReconciliationServiceImpl.class);
+
+    private static final long BATCH_SIZE = 1000;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private TagDao tagDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    @Scheduled(initialDelay = 60 * 1000, fixedDelay = 10 * 60 * 1000)
+    public void reconcileCounters() {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        int repairedQuestions = 0;
+        final long maxQuestionId = transactionTemplate.execute(status -> questionDao.getMaxId());
+        for (long fromId = 0; fromId < maxQuestionId; fromId += BATCH_SIZE) {
+            final long batchFromId = fromId;
+            repairedQuestions += transactionTemplate.execute(status ->
+                    questionDao.reconcileCounters(batchFromId, batchFromId + BATCH_SIZE));
+        }
+
+        int repairedComments = 0;
+        final long maxCommentId = transactionTemplate.execute(status -> commentDao.getMaxId());
+        for (long fromId = 0; fromId < maxCommentId; fromId += BATCH_SIZE) {
+            final long batchFromId = fromId;
+            repairedComments += transactionTemplate.execute(status ->
+                    commentDao.reconcileLikesCount(batchFromId, batchFromId + BATCH_SIZE));
+        }
+
+        int repairedTags = 0;
+        final long maxTagId = transactionTemplate.execute(status -> tagDao.getMaxId());
+        for (long fromId = 0; fromId < maxTagId; fromId += BATCH_SIZE) {
+            final long batchFromId = fromId;
+            repairedTags += transactionTemplate.execute(status ->
+                    tagDao.reconcileQuestionsCount(batchFromId, batchFromId + BATCH_SIZE));
+        }
+
+        if (repairedQuestions > 0 || repairedComments > 0 || repairedTags > 0) {
+            log.info("Repaired counters of {} questions, {} comments and {} tags",
+                    repairedQuestions, repairedComments, repairedTags);
+        }
+    }
+}
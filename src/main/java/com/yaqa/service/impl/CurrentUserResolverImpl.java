@@ -0,0 +1,81 @@
+package com.yaqa.service.impl;
+
+import com.yaqa.dao.UserDao;
+import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.model.User;
+import com.yaqa.service.CurrentUserResolver;
+import com.yaqa.service.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Keeps the resolved user in the attributes of the current request, so that every service taking part in
+ * the request shares a single lookup. Outside of a request (e.g. in tests) the user is resolved on every call.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CurrentUserResolverImpl implements CurrentUserResolver {
+    private static final String CURRENT_USER_ATTRIBUTE = CurrentUserResolverImpl.class.getName() + ".CURRENT_USER";
+
+    @Autowired
+    private UserDao userDao;
+
+    @Override
+    public Long getCurrentUserId() {
+        final Object principal = getPrincipal();
+        if (principal instanceof AuthenticatedUser) {
+            return ((AuthenticatedUser) principal).getUserId();
+        }
+        return getCurrentUser().getId();
+    }
+
+    @Override
+    public User getCurrentUser() {
+        final Object principal = getPrincipal();
+        final String username = ((org.springframework.security.core.userdetails.User) principal).getUsername();
+
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            final Object cachedUser = requestAttributes.getAttribute(CURRENT_USER_ATTRIBUTE,
+                    RequestAttributes.SCOPE_REQUEST);
+            if (cachedUser != null && ((User) cachedUser).getUsername().equals(username)) {
+                return (User) cachedUser;
+            }
+        }
+
+        // users are kept in the second-level cache, the lookup by id needs no query
+        final User user = User.of(principal instanceof AuthenticatedUser
+                ? userDao.getById(((AuthenticatedUser) principal).getUserId())
+                : userDao.getByUsername(username));
+        if (requestAttributes != null) {
+            requestAttributes.setAttribute(CURRENT_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return user;
+    }
+
+    @Override
+    public UserEntity getCurrentUserEntity() {
+        // served from the persistence context of the calling transaction once loaded in it, otherwise from
+        // the users region of the second-level cache
+        return userDao.getById(getCurrentUserId());
+    }
+
+    @Override
+    public void evict() {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null) {
+            requestAttributes.removeAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private Object getPrincipal() {
+        final Authentication currentAuthentication = SecurityContextHolder.getContext().getAuthentication();
+        return currentAuthentication.getPrincipal();
+    }
+}
@@ -2,35 +2,99 @@ package com.yaqa.service.impl;
 
 import com.yaqa.dao.ImageDao;
 import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.entity.ImageStorageType;
+import com.yaqa.dao.projection.ImageMetadata;
+import com.yaqa.exception.InvalidImageException;
 import com.yaqa.exception.InvalidImageFormatException;
 import com.yaqa.model.Image;
 import com.yaqa.service.ImageService;
+import com.yaqa.service.image.ImageBlob;
+import com.yaqa.service.image.ImageContentStream;
+import com.yaqa.service.image.ImageStorage;
+import com.yaqa.service.image.ImageVariant;
+import com.yaqa.service.image.ImageVariantStore;
 import com.yaqa.util.ParamUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
-import javax.imageio.stream.ImageInputStream;
-import java.io.ByteArrayInputStream;
+import javax.annotation.PostConstruct;
 import java.io.IOException;
-import java.util.Iterator;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @Transactional(readOnly = true)
 public class ImageServiceImpl implements ImageService {
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xff, (byte) 0xd8, (byte) 0xff};
+
     @Autowired
     private ImageDao imageDao;
 
+    @Autowired
+    private List<ImageStorage> storages;
+
+    @Autowired
+    private ImageVariantStore imageVariantStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${yaqa.images.storage:DATABASE}")
+    private ImageStorageType uploadStorageType;
+
+    @Value("${yaqa.images.max-size:10485760}")
+    private long maxImageSize;
+
+    private final Map<ImageStorageType, ImageStorage> storagesByType = new EnumMap<>(ImageStorageType.class);
+
+    @PostConstruct
+    public void init() {
+        storages.forEach(storage -> storagesByType.put(storage.getType(), storage));
+        if (!storagesByType.get(uploadStorageType).isEnabled()) {
+            throw new IllegalStateException("Images can't be stored in " + uploadStorageType +
+                    ", yaqa.images.directory is not set");
+        }
+    }
+
+    @Override
+    public long getMaxImageSize() {
+        return maxImageSize;
+    }
+
+    /**
+     * The content is stored before the transaction is opened, so a slow upload doesn't hold a connection.
+     */
     @Override
-    @Transactional
-    public Image saveImage(byte[] imageContent) {
-        final String contentType = determineImageFormat(imageContent);
-        final ImageEntity imageEntity = new ImageEntity(imageContent, contentType);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Image saveImage(InputStream imageContent) {
+        final PushbackInputStream content = new PushbackInputStream(imageContent, PNG_SIGNATURE.length);
+        final ImageEntity imageEntity = new ImageEntity(determineImageFormat(content));
 
-        imageDao.save(imageEntity);
+        final ImageStorage storage = storagesByType.get(uploadStorageType);
+        storage.store(imageEntity, new ImageContentStream(content, maxImageSize));
+        try {
+            if (imageEntity.getSize() == 0) {
+                throw new InvalidImageException("image is empty");
+            }
+
+            new TransactionTemplate(transactionManager).execute(status -> {
+                imageDao.save(imageEntity);
+                return null;
+            });
+        } finally {
+            storage.release(imageEntity);
+        }
 
         return Image.ofWithoutContent(imageEntity);
     }
@@ -39,38 +103,67 @@ public class ImageServiceImpl implements ImageService {
     public Image getById(Long imageId) {
         ParamUtils.assertPositive(imageId, "imageId");
 
-        return Image.of(imageDao.getById(imageId));
+        final ImageMetadata image = imageDao.getMetadataById(imageId);
+        return new Image(image.getId(), image.getContentType());
     }
 
-    private String determineImageFormat(byte[] imageContent) {
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(imageContent);
-             ImageInputStream iis = ImageIO.createImageInputStream(bis)) {
+    @Override
+    public ImageBlob getContentById(Long imageId) {
+        ParamUtils.assertPositive(imageId, "imageId");
 
-            final Iterator<ImageReader> imageReaders = ImageIO.getImageReaders(iis);
-            if (!imageReaders.hasNext()) {
-                throw new InvalidImageFormatException();
-            }
+        final ImageMetadata image = imageDao.getMetadataById(imageId);
+        return storagesByType.get(image.getStorage()).open(image);
+    }
 
-            String format = imageReaders.next().getFormatName();
-            if (format == null) {
-                throw new InvalidImageFormatException();
-            }
+    @Override
+    public String getETag(Long imageId, ImageVariant variant) {
+        ParamUtils.assertPositive(imageId, "imageId");
 
-            format = format.toLowerCase();
-            switch (format) {
-                case "png":
-                    return MediaType.IMAGE_PNG_VALUE;
+        final ImageMetadata image = imageDao.getMetadataById(imageId);
+        return variant == null ? image.getETag() : ImageVariantStore.toETag(image, variant);
+    }
 
-                case "jpg":
-                case "jpeg":
-                    return MediaType.IMAGE_JPEG_VALUE;
+    @Override
+    public ImageBlob getContentById(Long imageId, ImageVariant variant) {
+        ParamUtils.assertPositive(imageId, "imageId");
+        ParamUtils.assertNotNull(variant, "variant");
 
-                default:
-                    throw new InvalidImageFormatException();
-            }
+        final ImageMetadata image = imageDao.getMetadataById(imageId);
+        final ImageStorage storage = storagesByType.get(image.getStorage());
+        return imageVariantStore.getVariant(image, variant, () -> storage.open(image));
+    }
 
+    /**
+     * Recognizes the format by the signature at the start of the content and pushes the signature back.
+     */
+    private String determineImageFormat(PushbackInputStream content) {
+        final byte[] signature = new byte[PNG_SIGNATURE.length];
+        try {
+            int read = 0;
+            int count;
+            while (read < signature.length && (count = content.read(signature, read, signature.length - read)) != -1) {
+                read += count;
+            }
+            content.unread(signature, 0, read);
         } catch (IOException e) {
-            throw new InvalidImageFormatException();
+            throw new UncheckedIOException("Unable to read image", e);
+        }
+
+        if (startsWith(signature, PNG_SIGNATURE)) {
+            return MediaType.IMAGE_PNG_VALUE;
+        }
+        if (startsWith(signature, JPEG_SIGNATURE)) {
+            return MediaType.IMAGE_JPEG_VALUE;
+        }
+        throw new InvalidImageFormatException();
+    }
+
+    private static boolean startsWith(byte[] content, byte[] signature) {
+        for (int i = 0; i < signature.length; i++) {
+            if (content[i] != signature[i]) {
+                return false;
+            }
         }
+        return true;
     }
 }
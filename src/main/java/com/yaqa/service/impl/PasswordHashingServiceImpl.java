@@ -0,0 +1,142 @@
+package com.yaqa.service.impl;
+
+import com.yaqa.exception.PasswordHashingBusyException;
+import com.yaqa.metrics.Counter;
+import com.yaqa.metrics.MetricsRegistry;
+import com.yaqa.service.PasswordHashingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt on a bounded pool. A hash costs a lot of CPU, so a login storm would otherwise occupy all the
+ * request threads; with the pool the excess requests are rejected right away and get a 503.
+ */
+@Service
+public class PasswordHashingServiceImpl implements PasswordHashingService {
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingServiceImpl.class);
+
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+    private static final double[] SECONDS_BUCKETS = {0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    @Value("${yaqa.password.bcrypt-cost:11}")
+    private int cost;
+
+    /**
+     * 0 for one thread per processor.
+     */
+    @Value("${yaqa.password.threads:0}")
+    private int threads;
+
+    @Value("${yaqa.password.queue-size:32}")
+    private int queueSize;
+
+    @Value("${yaqa.password.timeout-millis:5000}")
+    private long timeoutMillis;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+    private Counter rejected;
+
+    @PostConstruct
+    public void init() {
+        encoder = new BCryptPasswordEncoder(cost);
+
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        rejected = metricsRegistry.counter("yaqa_password_hash_rejected_total", "");
+        metricsRegistry.gauge("yaqa_password_hash_queue_size", "", () -> executor.getQueue().size());
+        metricsRegistry.gauge("yaqa_password_hash_active_threads", "", executor::getActiveCount);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute("encode", () -> encoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute("matches", () -> encoder.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        final Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != cost;
+    }
+
+    private <T> T execute(String operation, Supplier<T> hashing) {
+        final String labels = MetricsRegistry.label("operation", operation);
+        final long submitted = System.nanoTime();
+
+        final Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                final long started = System.nanoTime();
+                metricsRegistry.histogram("yaqa_password_hash_wait_seconds", labels, SECONDS_BUCKETS)
+                        .observe((started - submitted) / 1e9);
+                try {
+                    return hashing.get();
+                } finally {
+                    metricsRegistry.histogram("yaqa_password_hash_seconds", labels, SECONDS_BUCKETS)
+                            .observe((System.nanoTime() - started) / 1e9);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Too many password checks in progress, try again later");
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // not started yet, don't waste the CPU on it
+            future.cancel(false);
+            rejected.increment();
+            throw new PasswordHashingBusyException("Password check took too long, try again later");
+        } catch (ExecutionException e) {
+            log.error("Unable to {} password", operation, e.getCause());
+            throw new IllegalStateException("Unable to " + operation + " password", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new IllegalStateException("Interrupted while waiting for password " + operation, e);
+        }
+    }
+}
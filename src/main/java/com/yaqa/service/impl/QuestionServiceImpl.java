@@ -12,16 +12,22 @@ import com.yaqa.dao.entity.LikeEntity;
 import com.yaqa.dao.entity.QuestionEntity;
 import com.yaqa.dao.entity.TagEntity;
 import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.projection.QuestionProjection;
 import com.yaqa.exception.InvalidImageIdException;
+import com.yaqa.exception.InvalidTagException;
 import com.yaqa.exception.NotAnAuthorException;
 import com.yaqa.exception.NotFoundException;
 import com.yaqa.model.LikeResult;
 import com.yaqa.model.Question;
 import com.yaqa.model.QuestionWithComments;
+import com.yaqa.model.SearchResult;
 import com.yaqa.model.Tag;
-import com.yaqa.model.User;
+import com.yaqa.service.CurrentUserResolver;
 import com.yaqa.service.QuestionService;
-import com.yaqa.service.UserService;
+import com.yaqa.service.SearchService;
+import com.yaqa.service.TagService;
+import com.yaqa.service.TimelineService;
+import com.yaqa.service.search.SearchHit;
 import com.yaqa.web.model.CreateQuestionRequest;
 import com.yaqa.web.model.PostCommentRequest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,13 +36,17 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class QuestionServiceImpl implements QuestionService {
+    private static final int MAX_TAG_NAME_LENGTH = 32;
 
     @Autowired
     private QuestionDao questionDao;
@@ -57,30 +67,48 @@ public class QuestionServiceImpl implements QuestionService {
     private ImageDao imageDao;
 
     @Autowired
-    private UserService userService;
+    private CurrentUserResolver currentUserResolver;
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private TagService tagService;
 
     @Override
     public List<Question> getAll() {
-        return questionDao.getAll().stream()
-                .map(q -> Question.of(q, getCurrentUser()))
-                .collect(Collectors.toList());
+        return toQuestions(questionDao.getAllProjections(getCurrentUser().getId()));
     }
 
     @Override
     public Question getById(Long id) {
-        return Question.of(questionDao.getById(id), getCurrentUser());
+        return Question.of(questionDao.getById(id), likeDao.isQuestionLiked(getCurrentUser().getId(), id));
     }
 
     @Override
     public QuestionWithComments getByIdWithComments(Long id) {
-        return QuestionWithComments.of(questionDao.getById(id), getCurrentUser());
+        return withComments(questionDao.getById(id), getCurrentUser());
+    }
+
+    /**
+     * The page shows whether the viewer liked the question and its comments, so the viewer is part of the tag.
+     */
+    @Override
+    public String getETag(Long id) {
+        final Long revision = questionDao.getRevision(id);
+        if (revision == null) {
+            return null;
+        }
+
+        return "\"" + id + "-" + revision + "-" + currentUserResolver.getCurrentUserId() + "\"";
     }
 
     @Override
     public List<Question> getByTagName(String tagName) {
-        return questionDao.getByTagName(tagName).stream()
-                .map(q -> Question.of(q, getCurrentUser()))
-                .collect(Collectors.toList());
+        return toQuestions(questionDao.getProjectionsByTagName(tagName, getCurrentUser().getId()));
     }
 
     @Override
@@ -91,21 +119,7 @@ public class QuestionServiceImpl implements QuestionService {
         // extract question tags
         List<TagEntity> questionTags = new ArrayList<>();
         if (request.getTags() != null && !request.getTags().isEmpty()) {
-            final Map<Tag, TagEntity> existingEntities = tagDao.mapTagsToEntities(request.getTags());
-            final List<Tag> notExistingTags = request.getTags()
-                    .stream()
-                    .filter(t -> !existingEntities.keySet().contains(t))
-                    .collect(Collectors.toList());
-
-            final List<TagEntity> newTagEntities = notExistingTags.stream()
-                    .map(t -> {
-                        TagEntity tagEntity = new TagEntity(t.getTagName());
-                        tagDao.save(tagEntity);
-                        return tagEntity;
-                    }).collect(Collectors.toList());
-
-            questionTags.addAll(newTagEntities);
-            questionTags.addAll(existingEntities.values());
+            questionTags.addAll(getOrCreateTags(request.getTags()));
         }
 
         // extract question images
@@ -134,7 +148,11 @@ public class QuestionServiceImpl implements QuestionService {
             imageDao.save(i);
         });
 
-        return QuestionWithComments.of(questionEntity, currentUser);
+        timelineService.fanOut(questionEntity.getId(), getIds(questionTags));
+        tagService.questionTagsChanged(getIds(questionTags), Collections.emptyList());
+        searchService.indexQuestion(questionEntity.getId(), questionEntity.getBody());
+
+        return withComments(questionEntity, currentUser);
     }
 
     @Override
@@ -160,13 +178,16 @@ public class QuestionServiceImpl implements QuestionService {
         questionEntity.getComments().add(commentEntity);
         questionDao.merge(questionEntity);
         commentDao.save(commentEntity);
+        questionDao.incrementCommentsCount(questionEntity, 1);
 
         images.stream().forEach(i -> {
             i.setComment(commentEntity);
             imageDao.save(i);
         });
 
-        return QuestionWithComments.of(questionEntity, currentUser);
+        searchService.indexComment(commentEntity.getId(), questionEntity.getId(), commentEntity.getBody());
+
+        return withComments(questionEntity, currentUser);
     }
 
     @Override
@@ -199,141 +220,115 @@ public class QuestionServiceImpl implements QuestionService {
 
         commentEntity.setBody(request.getBody());
         commentDao.merge(commentEntity);
+        questionDao.incrementRevision(commentEntity.getQuestion().getId());
+        searchService.indexComment(commentId, commentEntity.getQuestion().getId(), commentEntity.getBody());
 
-        return QuestionWithComments.of(commentEntity.getQuestion(), currentUser);
+        return withComments(commentEntity.getQuestion(), currentUser);
     }
 
     @Override
     @Transactional
     public LikeResult likeQuestion(Long id) {
-        final UserEntity currentUserEntity = getCurrentUser();
-
-        final QuestionEntity question = questionDao.getById(id);
+        final Long currentUserId = currentUserResolver.getCurrentUserId();
 
-        final boolean currentUserLiked = currentUserEntity.getLikes()
-                .stream()
-                .anyMatch(l -> {
-                    QuestionEntity q = l.getQuestion();
-                    return q != null && q.getId().equals(id);
-                });
-
-        LikeResult.Type likeType = LikeResult.Type.LIKE;
-        if (!currentUserLiked) {
-            likeQuestion(question, currentUserEntity);
-        } else {
-            dislikeQuestion(question, currentUserEntity);
-            likeType = LikeResult.Type.DISLIKE;
+        // concurrent toggles of a user would both find no like to remove and insert it twice
+        if (!questionDao.lockCounters(id)) {
+            throw new NotFoundException(QuestionEntity.class, id);
+        }
+        final boolean disliked = likeDao.removeQuestionLike(currentUserId, id);
+        questionDao.incrementLikesCount(id, disliked ? -1 : 1);
+        if (!disliked) {
+            likeDao.save(new LikeEntity(userDao.getReference(currentUserId), questionDao.getReference(id)));
         }
 
-        return new LikeResult(questionDao.getLikeCount(question), likeType);
-    }
-
-    private void likeQuestion(QuestionEntity question, UserEntity currentUserEntity) {
-        final LikeEntity like = new LikeEntity(currentUserEntity, question);
-        likeDao.save(like);
-
-        question.getLikes().add(like);
-        currentUserEntity.getLikes().add(like);
-
-        questionDao.merge(question);
-        userDao.merge(currentUserEntity);
-    }
-
-    private void dislikeQuestion(QuestionEntity question, UserEntity currentUserEntity) {
-        final LikeEntity like = question.getLikes()
-                .stream()
-                .filter(l -> {
-                    UserEntity liker = l.getLiker();
-                    return liker != null && liker.getId().equals(currentUserEntity.getId());
-                })
-                .findFirst()
-                .get();
-
-        question.getLikes().remove(like);
-        currentUserEntity.getLikes().remove(like);
-
-        userDao.merge(currentUserEntity);
-        questionDao.merge(question);
-
-        likeDao.remove(like);
+        return new LikeResult(questionDao.getLikeCount(id),
+                disliked ? LikeResult.Type.DISLIKE : LikeResult.Type.LIKE);
     }
 
-
     @Override
     public List<Question> getLastLimited(int limit) {
-
-        return questionDao.getLastLimited(limit)
-                .stream()
-                .map(q -> Question.of(q, getCurrentUser()))
-                .collect(Collectors.toList());
+        return toQuestions(questionDao.getLastLimitedProjections(getCurrentUser().getId(), limit));
     }
 
     @Override
     public List<Question> getBelowIdLimited(Long lastId, int limit) {
-        return questionDao.getBelowIdLimited(lastId, limit)
-                .stream()
-                .map(q -> Question.of(q, getCurrentUser()))
-                .collect(Collectors.toList());
+        return toQuestions(questionDao.getBelowIdLimitedProjections(getCurrentUser().getId(), lastId, limit));
     }
 
     @Override
     public List<Question> getUserQuestionsLimited(int limit) {
-        final UserEntity currentUserEntity = getCurrentUser();
+        final UserEntity currentUser = getCurrentUser();
 
-        return questionDao.getByAuthorLimited(currentUserEntity, limit)
-                .stream()
-                .map(q -> Question.of(q, currentUserEntity))
-                .collect(Collectors.toList());
+        return toQuestions(questionDao.getByAuthorLimitedProjections(currentUser, currentUser.getId(), limit));
     }
 
     @Override
     public List<Question> getUserQuestionsLimited(Long lastId, int limit) {
         final UserEntity currentUser = getCurrentUser();
 
-        return questionDao.getByAuthorLimited(currentUser, lastId, limit)
-                .stream()
-                .map(q -> Question.of(q, currentUser))
-                .collect(Collectors.toList());
+        return toQuestions(questionDao.getByAuthorLimitedProjections(currentUser, currentUser.getId(), lastId, limit));
     }
 
     @Override
     public List<Question> getCommentedByCurrentUserLimited(int limit) {
         final UserEntity currentUser = getCurrentUser();
 
-        return questionDao.getCommentedByAuthorLimited(currentUser, limit)
-                .stream()
-                .map(q -> Question.of(q, currentUser))
-                .collect(Collectors.toList());
+        return toQuestions(questionDao.getCommentedByAuthorLimitedProjections(currentUser, currentUser.getId(), limit));
     }
 
     @Override
     public List<Question> getCommentedByCurrentUserLimited(Long lastId, int limit) {
         final UserEntity currentUser = getCurrentUser();
 
-        return questionDao.getCommentedByAuthorLimited(currentUser, lastId, limit)
-                .stream()
-                .map(q -> Question.of(q, currentUser))
-                .collect(Collectors.toList());
+        return toQuestions(
+                questionDao.getCommentedByAuthorLimitedProjections(currentUser, currentUser.getId(), lastId, limit));
     }
 
     @Override
     public List<Question> getUserSubscriptionLimited(int limit) {
-        final UserEntity currentUser = getCurrentUser();
-
-        return questionDao.getByUserTagsLimited(currentUser, limit)
-                .stream()
-                .map(q -> Question.of(q, currentUser))
-                .collect(Collectors.toList());
+        return getUserSubscriptionLimited(null, limit);
     }
 
     @Override
     public List<Question> getUserSubscriptionLimited(Long lastId, int limit) {
         final UserEntity currentUser = getCurrentUser();
+        if (!timelineService.isEnabled()) {
+            return toQuestions(questionDao.getByUserTagsLimitedProjections(currentUser, lastId, limit));
+        }
 
-        return questionDao.getByUserTagsLimited(currentUser, lastId, limit)
+        // the timeline is the newest part of the feed, older questions are taken from the subscriptions
+        final List<Long> ids = timelineService.getQuestionIds(currentUser.getId(), lastId, limit);
+        final List<QuestionProjection> projections =
+                new ArrayList<>(questionDao.getProjectionsByIds(ids, currentUser.getId()));
+        if (ids.size() < limit) {
+            final Long belowId = ids.isEmpty() ? lastId : ids.get(ids.size() - 1);
+            projections.addAll(
+                    questionDao.getByUserTagsLimitedProjections(currentUser, belowId, limit - ids.size()));
+        }
+        return toQuestions(projections);
+    }
+
+    @Override
+    public SearchResult search(String query, String cursor, int limit) {
+        final List<SearchHit> hits = searchService.search(query, SearchHit.fromCursor(cursor), limit);
+        if (hits.isEmpty()) {
+            return new SearchResult(Collections.emptyList(), null);
+        }
+
+        final List<Long> ids = hits.stream()
+                .map(SearchHit::getQuestionId)
+                .collect(Collectors.toList());
+        final Map<Long, QuestionProjection> projections = questionDao.getProjectionsByIds(ids, getCurrentUser().getId())
                 .stream()
-                .map(q -> Question.of(q, currentUser))
+                .collect(Collectors.toMap(QuestionProjection::getId, Function.identity()));
+
+        final List<Question> questions = ids.stream()
+                .map(projections::get)
+                .filter(Objects::nonNull)
+                .map(Question::of)
                 .collect(Collectors.toList());
+        final String nextCursor = hits.size() == limit ? hits.get(hits.size() - 1).toCursor() : null;
+        return new SearchResult(questions, nextCursor);
     }
 
     @Override
@@ -369,32 +364,70 @@ public class QuestionServiceImpl implements QuestionService {
         }
 
         if (request.getTags() != null) {
-            try {
-                final List<TagEntity> tags = request.getTags()
-                        .stream()
-                        .map(t -> {
-                            TagEntity entity = tagDao.findByName(t.getTagName());
-                            if (entity == null) {
-                                entity = new TagEntity(t.getTagName());
-                                tagDao.save(entity);
-                            }
-                            return entity;
-                        })
-                        .collect(Collectors.toList());
+            final List<Long> previousTagIds = getIds(question.getTags());
+            question.setTags(getOrCreateTags(request.getTags()));
 
-                question.setTags(tags);
-            } catch (EmptyResultDataAccessException e) {
-                throw new NotFoundException(Tag.class, request.getTags());
+            final List<Long> tagIds = getIds(question.getTags());
+            final List<Long> addedTagIds =
+                    tagIds.stream().filter(id -> !previousTagIds.contains(id)).collect(Collectors.toList());
+            final List<Long> removedTagIds =
+                    previousTagIds.stream().filter(id -> !tagIds.contains(id)).collect(Collectors.toList());
+
+            if (!addedTagIds.isEmpty() || !removedTagIds.isEmpty()) {
+                timelineService.questionTagsChanged(question.getId(), tagIds, addedTagIds, removedTagIds);
             }
+            tagService.questionTagsChanged(addedTagIds, removedTagIds);
         }
 
         questionDao.merge(question);
+        questionDao.incrementRevision(question.getId());
+        searchService.indexQuestion(question.getId(), question.getBody());
+
+        return withComments(question, currentUser);
+    }
+
+    /**
+     * Resolves all existing tags at once and creates the missing ones, keeping the order of the request.
+     */
+    private List<TagEntity> getOrCreateTags(List<Tag> tags) {
+        final List<String> tagNames = tags.stream()
+                .map(Tag::getTagName)
+                .distinct()
+                .collect(Collectors.toList());
+
+        tagNames.forEach(tagName -> {
+            if (tagName == null || tagName.isEmpty() || tagName.length() > MAX_TAG_NAME_LENGTH) {
+                throw new InvalidTagException("Tag name must be from 1 to " + MAX_TAG_NAME_LENGTH + " characters long");
+            }
+        });
 
-        return QuestionWithComments.of(question, currentUser);
+        final Map<String, TagEntity> tagsByName = tagDao.getOrCreateByNames(tagNames);
+        return tagNames.stream()
+                .map(tagsByName::get)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Long> getIds(List<TagEntity> tags) {
+        return tags.stream()
+                .map(TagEntity::getId)
+                .collect(Collectors.toList());
+    }
+
+    private QuestionWithComments withComments(QuestionEntity question, UserEntity currentUser) {
+        return QuestionWithComments.of(
+                question,
+                likeDao.isQuestionLiked(currentUser.getId(), question.getId()),
+                likeDao.getLikedCommentIds(currentUser.getId(), question.getId())
+        );
+    }
+
+    private List<Question> toQuestions(List<QuestionProjection> projections) {
+        return projections.stream()
+                .map(Question::of)
+                .collect(Collectors.toList());
     }
 
     private UserEntity getCurrentUser() {
-        final User currentAuthenticatedUser = userService.getCurrentAuthenticatedUser();
-        return userDao.getById(currentAuthenticatedUser.getId());
+        return currentUserResolver.getCurrentUserEntity();
     }
 }
@@ -0,0 +1,224 @@
+package com.yaqa.service.impl;
+
+import com.yaqa.dao.CommentDao;
+import com.yaqa.dao.QuestionDao;
+import com.yaqa.dao.projection.TextProjection;
+import com.yaqa.metrics.MetricsRegistry;
+import com.yaqa.service.SearchService;
+import com.yaqa.service.search.IndexedText;
+import com.yaqa.service.search.InvertedIndex;
+import com.yaqa.service.search.SearchHit;
+import com.yaqa.service.search.SegmentStore;
+import com.yaqa.service.search.Tokenizer;
+import com.yaqa.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The index is kept in memory and persisted by a {@link SegmentStore}. All changes are applied by a single
+ * indexer thread, so writers never wait for each other and the store needs no locking.
+ * <p>
+ * On startup and before every compaction the texts added to the database since the newest indexed one are
+ * indexed in the background, which builds the whole index on the first start and picks up the texts posted
+ * through other nodes or imported. Ids are allocated by blocks, so a node may commit texts below ids already
+ * indexed elsewhere, the last {@code CATCH_UP_LOOKBACK} ids are read again for them. Edits that were
+ * committed elsewhere or not stored, e.g. because of a crash, stay unindexed until the text is edited again.
+ * <p>
+ * The index is persisted only if {@code yaqa.search.directory} is set, otherwise it is rebuilt on every start.
+ */
+@Service
+public class SearchServiceImpl implements SearchService {
+    private static final Logger log = LoggerFactory.getLogger(SearchServiceImpl.class);
+    private static final int MAX_QUERY_TERMS = 16;
+    private static final int CATCH_UP_BATCH_SIZE = 500;
+    private static final long CATCH_UP_LOOKBACK = 1000;
+
+    @Value("${yaqa.search.directory:}")
+    private String directory;
+
+    @Value("${yaqa.search.compact-threshold:1000}")
+    private int compactThreshold;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    private final InvertedIndex index = new InvertedIndex();
+
+    // null if the index is not persisted, used by the indexer thread only
+    private SegmentStore store;
+    private ExecutorService indexer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        indexer = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "search-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (directory.isEmpty()) {
+            log.info("yaqa.search.directory is not set, the search index is kept in memory only");
+        } else {
+            openStore();
+        }
+
+        metricsRegistry.gauge("yaqa_search_documents", "", index::getDocumentCount);
+        indexer.execute(this::catchUp);
+    }
+
+    private void openStore() throws IOException {
+        final SegmentStore segmentStore = new SegmentStore(Paths.get(directory).toAbsolutePath());
+        try {
+            segmentStore.open(index::put);
+            store = segmentStore;
+            log.info("Loaded {} documents of the search index from {}", index.getDocumentCount(), directory);
+        } catch (IOException | RuntimeException e) {
+            index.clear();
+            if (segmentStore.isLocked()) {
+                log.warn("Unable to read the search index in {}, rebuilding it", directory, e);
+                segmentStore.clear();
+                store = segmentStore;
+            } else {
+                log.warn("Search index is not persisted: {}", e.getMessage());
+                segmentStore.close();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException, IOException {
+        indexer.execute(this::snapshotIfChanged);
+        indexer.shutdown();
+        if (!indexer.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Search indexer did not finish in time");
+            indexer.shutdownNow();
+        }
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Override
+    public void indexQuestion(Long questionId, String body) {
+        afterCommit(() -> put(IndexedText.question(questionId, body)));
+    }
+
+    @Override
+    public void indexComment(Long commentId, Long questionId, String body) {
+        afterCommit(() -> put(IndexedText.comment(commentId, questionId, body)));
+    }
+
+    @Override
+    public List<SearchHit> search(String query, SearchHit after, int limit) {
+        final List<String> terms = new ArrayList<>(Tokenizer.terms(query));
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return index.search(terms.subList(0, Math.min(terms.size(), MAX_QUERY_TERMS)), after, limit);
+    }
+
+    @Override
+    @Scheduled(initialDelay = 10 * 60 * 1000, fixedDelay = 10 * 60 * 1000)
+    public void compact() {
+        indexer.execute(() -> {
+            catchUp();
+            if (store != null && store.getAppendedCount() >= compactThreshold) {
+                snapshotIfChanged();
+            }
+        });
+    }
+
+    private void catchUp() {
+        final int questions = catchUp(IndexedText.Type.QUESTION, questionDao::getTextsAfterId,
+                text -> IndexedText.question(text.getId(), text.getBody()));
+        final int comments = catchUp(IndexedText.Type.COMMENT, commentDao::getTextsAfterId,
+                text -> IndexedText.comment(text.getId(), text.getQuestionId(), text.getBody()));
+
+        if (questions + comments > 0) {
+            log.info("Indexed {} questions and {} comments", questions, comments);
+        }
+    }
+
+    private int catchUp(IndexedText.Type type, BiFunction<Long, Integer, List<TextProjection>> reader,
+                        Function<TextProjection, IndexedText> tokenizer) {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        int count = 0;
+        try {
+            long afterId = Math.max(0, index.getMaxId(type) - CATCH_UP_LOOKBACK);
+            List<TextProjection> batch;
+            do {
+                final long fromId = afterId;
+                batch = transactionTemplate.execute(status -> reader.apply(fromId, CATCH_UP_BATCH_SIZE));
+                for (TextProjection text : batch) {
+                    final IndexedText indexedText = tokenizer.apply(text);
+                    if (!index.contains(indexedText)) {
+                        put(indexedText);
+                        count++;
+                    }
+                    afterId = text.getId();
+                }
+            } while (batch.size() == CATCH_UP_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            log.error("Unable to index {} texts from the database", type, e);
+        }
+        return count;
+    }
+
+    private void put(IndexedText text) {
+        index.put(text);
+        if (store != null) {
+            try {
+                store.append(text);
+            } catch (IOException e) {
+                log.error("Unable to store {} {} in the search index", text.getType(), text.getId(), e);
+            }
+        }
+    }
+
+    private void snapshotIfChanged() {
+        if (store == null || store.getAppendedCount() == 0) {
+            return;
+        }
+
+        try {
+            store.snapshot(index::forEachText);
+        } catch (IOException e) {
+            log.error("Unable to write a snapshot of the search index", e);
+        }
+    }
+
+    private void afterCommit(Runnable task) {
+        TransactionHooks.afterCommit(() -> indexer.execute(task));
+    }
+}
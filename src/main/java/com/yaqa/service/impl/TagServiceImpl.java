@@ -2,26 +2,177 @@ package com.yaqa.service.impl;
 
 import com.yaqa.dao.TagDao;
 import com.yaqa.model.Tag;
+import com.yaqa.model.TagWithQuestionCount;
 import com.yaqa.service.TagService;
+import com.yaqa.service.search.TagPrefixIndex;
+import com.yaqa.util.TransactionHooks;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
+/**
+ * Pages of the tag listing are cached until the next change of tags or counts, which is detected by
+ * comparing versions read from the database, see {@link TagDao#getMostUsedVersion}. A page read while
+ * a change commits may be cached with the old version, so it is read again on the next request.
+ * <p>
+ * Autocomplete is served from memory. The index is loaded on first use, learns new tags when a question
+ * using an unknown tag is committed and keeps the question counts up to date on its own. The counts may
+ * drift by a few when questions are saved while the index is loaded, so it is reloaded periodically.
+ */
 @Service
 @Transactional(readOnly = true)
 public class TagServiceImpl implements TagService {
+    private static final int MAX_CACHED_PAGES = 64;
 
     @Autowired
     private TagDao tagDao;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ConcurrentMap<List<Integer>, CachedPage> cachedPages = new ConcurrentHashMap<>();
+
+    private volatile CachedCount cachedCount;
+
+    private final TagPrefixIndex prefixIndex = new TagPrefixIndex();
+    private volatile boolean loaded;
+    private volatile boolean unknownTags;
+
     @Override
-    public List<Tag> getAll() {
-        return tagDao.getAll()
+    public List<TagWithQuestionCount> getMostUsed(int page, int pageSize) {
+        // far beyond the last tag
+        final long offset = (long) page * pageSize;
+        if (offset > Integer.MAX_VALUE) {
+            return Collections.emptyList();
+        }
+
+        final long currentVersion = tagDao.getMostUsedVersion();
+        final List<Integer> key = Arrays.asList(page, pageSize);
+
+        final CachedPage cached = cachedPages.get(key);
+        if (cached != null && cached.version == currentVersion) {
+            return cached.tags;
+        }
+
+        final List<TagWithQuestionCount> tags = tagDao.getMostUsed((int) offset, pageSize)
                 .stream()
-                .map(Tag::of)
+                .map(TagWithQuestionCount::of)
                 .collect(Collectors.toList());
+
+        if (cachedPages.size() >= MAX_CACHED_PAGES) {
+            cachedPages.clear();
+        }
+        cachedPages.put(key, new CachedPage(currentVersion, Collections.unmodifiableList(tags)));
+        return tags;
+    }
+
+    @Override
+    public long getTagCount() {
+        final long currentVersion = tagDao.getMostUsedVersion();
+
+        final CachedCount cached = cachedCount;
+        if (cached != null && cached.version == currentVersion) {
+            return cached.count;
+        }
+
+        final long count = tagDao.getCount();
+        cachedCount = new CachedCount(currentVersion, count);
+        return count;
+    }
+
+    @Override
+    public String getMostUsedETag(int page, int pageSize) {
+        return "\"" + tagDao.getMostUsedVersion() + '-' + page + '-' + pageSize + '"';
+    }
+
+    @Override
+    public List<Tag> autocomplete(String prefix, int limit) {
+        if (!loaded) {
+            synchronized (prefixIndex) {
+                if (!loaded) {
+                    prefixIndex.reset(tagDao.getQuestionCounts(0L));
+                    loaded = true;
+                }
+            }
+        } else if (unknownTags) {
+            unknownTags = false;
+            prefixIndex.addAll(tagDao.getQuestionCounts(prefixIndex.getMaxId()));
+        }
+
+        return prefixIndex.complete(prefix, limit)
+                .stream()
+                .map(tag -> new Tag(tag.getId(), tag.getTagName()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional
+    public void questionTagsChanged(Collection<Long> addedTagIds, Collection<Long> removedTagIds) {
+        if (addedTagIds.isEmpty() && removedTagIds.isEmpty()) {
+            return;
+        }
+
+        tagDao.incrementQuestionsCount(addedTagIds, 1);
+        tagDao.incrementQuestionsCount(removedTagIds, -1);
+
+        final Runnable update = () -> {
+            if (!loaded) {
+                return;
+            }
+            // counts of unknown tags are read from the database along with the tags
+            addedTagIds.forEach(tagId -> {
+                if (!prefixIndex.addToCount(tagId, 1)) {
+                    unknownTags = true;
+                }
+            });
+            removedTagIds.forEach(tagId -> prefixIndex.addToCount(tagId, -1));
+        };
+
+        TransactionHooks.afterCommit(update);
+    }
+
+    @Override
+    @Scheduled(initialDelay = 15 * 60 * 1000, fixedDelay = 15 * 60 * 1000)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void refreshAutocomplete() {
+        if (!loaded) {
+            return;
+        }
+
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        prefixIndex.reset(transactionTemplate.execute(status -> tagDao.getQuestionCounts(0L)));
+    }
+
+    private static class CachedPage {
+        private final long version;
+        private final List<TagWithQuestionCount> tags;
+
+        private CachedPage(long version, List<TagWithQuestionCount> tags) {
+            this.version = version;
+            this.tags = tags;
+        }
+    }
+
+    private static class CachedCount {
+        private final long version;
+        private final long count;
+
+        private CachedCount(long version, long count) {
+            this.version = version;
+            this.count = count;
+        }
     }
 }
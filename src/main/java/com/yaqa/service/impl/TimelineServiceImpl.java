@@ -0,0 +1,248 @@
+package com.yaqa.service.impl;
+
+import com.yaqa.dao.TimelineDao;
+import com.yaqa.service.TimelineService;
+import com.yaqa.util.TransactionHooks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timelines are persisted in the timelines table, the newest part of the timelines of recently active
+ * users is also kept in memory. Both are updated on fan-out, the memory only once the question is
+ * committed.
+ * <p>
+ * Only the memory of the node handling a write is updated, so the cached timelines are reloaded from the table
+ * once they are {@code yaqa.timeline.cache-ttl-seconds} old: the feed served by another node misses new questions
+ * and keeps reset timelines at most that long.
+ */
+@Service
+@Transactional(readOnly = true)
+public class TimelineServiceImpl implements TimelineService {
+    private static final Logger log = LoggerFactory.getLogger(TimelineServiceImpl.class);
+
+    @Value("${yaqa.timeline.fanout:false}")
+    private boolean enabled;
+
+    @Value("${yaqa.timeline.size:1000}")
+    private int timelineSize;
+
+    @Value("${yaqa.timeline.cache-size:200}")
+    private int cachedTimelineSize;
+
+    @Value("${yaqa.timeline.cached-users:10000}")
+    private int cachedUsers;
+
+    @Value("${yaqa.timeline.cache-ttl-seconds:30}")
+    private long cacheTtlSeconds;
+
+    @Autowired
+    private TimelineDao timelineDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Incremented before cached timelines are updated, a timeline loaded while it changed may have missed
+     * the update and is not cached.
+     */
+    private final AtomicLong modifications = new AtomicLong();
+
+    private Map<Long, CachedTimeline> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Collections.synchronizedMap(new LinkedHashMap<Long, CachedTimeline>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedTimeline> eldest) {
+                return size() > cachedUsers;
+            }
+        });
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    @Transactional
+    public void fanOut(Long questionId, Collection<Long> tagIds) {
+        if (!enabled || tagIds.isEmpty()) {
+            return;
+        }
+
+        final List<Long> subscriberIds = timelineDao.getSubscriberIds(tagIds);
+        if (subscriberIds.isEmpty()) {
+            return;
+        }
+
+        timelineDao.addToSubscriberTimelines(questionId, tagIds);
+        TransactionHooks.afterCommit(() -> {
+            modifications.incrementAndGet();
+            for (Long subscriberId : subscriberIds) {
+                final CachedTimeline timeline = cache.get(subscriberId);
+                if (timeline != null) {
+                    timeline.add(questionId);
+                }
+            }
+        });
+    }
+
+    @Override
+    public List<Long> getQuestionIds(Long userId, Long lastId, int limit) {
+        CachedTimeline timeline = cache.get(userId);
+        if (timeline == null || timeline.isExpired(System.nanoTime())) {
+            timeline = load(userId);
+        }
+
+        final List<Long> ids = timeline.getIds(lastId, limit);
+        if (ids.size() < limit && !timeline.isComplete()) {
+            final Long belowId = ids.isEmpty() ? lastId : ids.get(ids.size() - 1);
+            ids.addAll(timelineDao.getQuestionIds(userId, belowId, limit - ids.size()));
+        }
+        return ids;
+    }
+
+    @Override
+    @Transactional
+    public void reset(Long userId) {
+        timelineDao.deleteByUser(userId);
+        TransactionHooks.afterCommit(() -> {
+            modifications.incrementAndGet();
+            cache.remove(userId);
+        });
+    }
+
+    @Override
+    @Transactional
+    public void questionTagsChanged(Long questionId, Collection<Long> tagIds,
+                                    Collection<Long> addedTagIds, Collection<Long> removedTagIds) {
+        if (!enabled) {
+            return;
+        }
+
+        int changed = 0;
+        if (!removedTagIds.isEmpty()) {
+            changed += timelineDao.removeFromUnsubscribedTimelines(questionId, tagIds);
+        }
+        changed += timelineDao.addToSubscriberTimelinesBelow(questionId, addedTagIds);
+        if (changed == 0) {
+            return;
+        }
+
+        // only the timelines cached down to the question may have changed, they are loaded again
+        TransactionHooks.afterCommit(() -> {
+            modifications.incrementAndGet();
+            synchronized (cache) {
+                cache.values().removeIf(timeline -> timeline.reaches(questionId));
+            }
+        });
+    }
+
+    @Override
+    @Scheduled(initialDelay = 5 * 60 * 1000, fixedDelay = 30 * 60 * 1000)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void trimTimelines() {
+        if (!enabled) {
+            return;
+        }
+
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final List<Long> userIds = transactionTemplate.execute(status -> timelineDao.getUsersOverSize(timelineSize));
+
+        int trimmed = 0;
+        for (Long userId : userIds) {
+            trimmed += transactionTemplate.execute(status -> timelineDao.trim(userId, timelineSize));
+        }
+
+        if (trimmed > 0) {
+            log.info("Trimmed {} questions from {} timelines", trimmed, userIds.size());
+        }
+    }
+
+    private CachedTimeline load(Long userId) {
+        final long version = modifications.get();
+        final CachedTimeline timeline = new CachedTimeline(
+                timelineDao.getQuestionIds(userId, null, cachedTimelineSize + 1), cachedTimelineSize,
+                System.nanoTime() + TimeUnit.SECONDS.toNanos(cacheTtlSeconds));
+
+        cache.put(userId, timeline);
+        if (modifications.get() != version) {
+            cache.remove(userId, timeline);
+        }
+        return timeline;
+    }
+
+    /**
+     * Newest question ids of a timeline, complete if the timeline has no older questions.
+     */
+    private static class CachedTimeline {
+        private final NavigableSet<Long> ids = new ConcurrentSkipListSet<>(Collections.reverseOrder());
+        private final int capacity;
+        private final long expiresAt;
+        private int size;
+        private volatile boolean complete;
+
+        private CachedTimeline(List<Long> newestIds, int capacity, long expiresAt) {
+            this.capacity = capacity;
+            this.expiresAt = expiresAt;
+            this.complete = newestIds.size() <= capacity;
+            newestIds.stream().limit(capacity).forEach(ids::add);
+            this.size = ids.size();
+        }
+
+        private synchronized void add(Long id) {
+            if (!ids.add(id)) {
+                return;
+            }
+            if (++size > capacity) {
+                ids.pollLast();
+                size--;
+                complete = false;
+            }
+        }
+
+        private boolean reaches(Long id) {
+            // reverse order, the ceiling is the newest id not newer than the given one
+            return ids.ceiling(id) != null;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        private boolean isComplete() {
+            return complete;
+        }
+
+        private List<Long> getIds(Long lastId, int limit) {
+            final List<Long> result = new ArrayList<>();
+            final Iterator<Long> iterator = (lastId == null ? ids : ids.tailSet(lastId, false)).iterator();
+            while (iterator.hasNext() && result.size() < limit) {
+                result.add(iterator.next());
+            }
+            return result;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.yaqa.service.impl;
 
 import com.yaqa.dao.ImageDao;
+import com.yaqa.dao.QuestionDao;
 import com.yaqa.dao.TagDao;
 import com.yaqa.dao.UserDao;
 import com.yaqa.dao.entity.ImageEntity;
@@ -12,6 +13,10 @@ import com.yaqa.exception.NotUniqueUsernameException;
 import com.yaqa.model.Tag;
 import com.yaqa.model.User;
 import com.yaqa.model.UserWithTags;
+import com.yaqa.service.AuthenticationService;
+import com.yaqa.service.CurrentUserResolver;
+import com.yaqa.service.PasswordHashingService;
+import com.yaqa.service.TimelineService;
 import com.yaqa.service.UserService;
 import com.yaqa.web.model.RegistrationRequest;
 import com.yaqa.web.model.UpdateUserProfileRequest;
@@ -19,16 +24,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)
@@ -41,15 +48,42 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private TagDao tagDao;
 
+    @Autowired
+    private QuestionDao questionDao;
+
     @Autowired
     private ImageDao imageDao;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
 
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Passwords are hashed before the transaction starts, so that no connection is held while waiting
+     * for the hashing pool.
+     */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void registerNewUser(RegistrationRequest request) {
+        final String passwordHash = passwordHashingService.encode(request.getPassword());
+        new TransactionTemplate(transactionManager).execute(status -> {
+            registerNewUser(request, passwordHash);
+            return null;
+        });
+    }
+
+    private void registerNewUser(RegistrationRequest request, String passwordHash) {
         try {
             userDao.getByUsername(request.getUsername());
 
@@ -67,7 +101,7 @@ public class UserServiceImpl implements UserService {
 
             final UserEntity userEntity = new UserEntity(
                     request.getUsername(),
-                    passwordEncoder.encode(request.getPassword()),
+                    passwordHash,
                     request.getFirstName(),
                     request.getLastName(),
                     request.getEmail(),
@@ -83,34 +117,47 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.SUPPORTS)
     public UserWithTags updateUser(UpdateUserProfileRequest request) {
-        final User currentUser = getCurrentAuthenticatedUser();
-        final UserEntity user = userDao.getById(currentUser.getId());
-
         final String newPassword = request.getPassword();
+        final String newPasswordHash = newPassword != null && !newPassword.isEmpty()
+                ? passwordHashingService.encode(newPassword)
+                : null;
+        return new TransactionTemplate(transactionManager).execute(status -> updateUser(request, newPasswordHash));
+    }
+
+    private UserWithTags updateUser(UpdateUserProfileRequest request, String newPasswordHash) {
+        final UserEntity user = currentUserResolver.getCurrentUserEntity();
+
         final String firstName = request.getFirstName();
         final String lastName = request.getLastName();
         final String email = request.getEmail();
         final List<Tag> newTags = request.getTags();
         final Long newProfileImageId = request.getProfileImageId();
 
+        // the name, the email and the profile image are rendered into the author of questions and comments
+        boolean authorChanged = false;
+
         // update password
-        if (newPassword != null && !newPassword.isEmpty()) {
-            user.setPassword(passwordEncoder.encode(newPassword));
+        if (newPasswordHash != null) {
+            user.setPassword(newPasswordHash);
+            user.setPasswordVersion(user.getPasswordVersion() + 1);
         }
 
         // update firstName and lastName
-        if (firstName != null) {
+        if (firstName != null && !firstName.equals(user.getFirstName())) {
             user.setFirstName(firstName);
+            authorChanged = true;
         }
-        if (lastName != null) {
+        if (lastName != null && !lastName.equals(user.getLastName())) {
             user.setLastName(lastName);
+            authorChanged = true;
         }
 
         // update email
-        if (email != null) {
+        if (email != null && !email.equals(user.getEmail())) {
             user.setEmail(email);
+            authorChanged = true;
         }
 
         // update tags
@@ -122,7 +169,10 @@ public class UserServiceImpl implements UserService {
             }
 
             final Collection<TagEntity> tags = foundEntities.values();
-            user.setSubscriptionTags(new ArrayList<>(tags));
+            if (!new HashSet<>(tags).equals(new HashSet<>(user.getSubscriptionTags()))) {
+                user.setSubscriptionTags(new ArrayList<>(tags));
+                timelineService.reset(user.getId());
+            }
         }
 
         // update profile image
@@ -138,21 +188,51 @@ public class UserServiceImpl implements UserService {
                 imageDao.save(newProfileImage);
             }
 
+            final Long oldProfileImageId = user.getProfileImage() != null ? user.getProfileImage().getId() : null;
+            authorChanged |= !Objects.equals(oldProfileImageId, newProfileImage != null ? newProfileImage.getId() : null);
             user.setProfileImage(newProfileImage);
         }
 
         userDao.save(user);
+        if (authorChanged) {
+            questionDao.incrementRevisionsByParticipant(user.getId());
+        }
+        currentUserResolver.evict();
+        authenticationService.evict(user.getUsername());
 
         return UserWithTags.of(user);
     }
 
     @Override
     public User getCurrentAuthenticatedUser() {
-        final Authentication currentAuthentication = SecurityContextHolder.getContext().getAuthentication();
-        final String username = ((org.springframework.security.core.userdetails.User) currentAuthentication.getPrincipal())
-                .getUsername();
+        return currentUserResolver.getCurrentUser();
+    }
 
-        return User.of(userDao.getByUsername(username));
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void rehashPasswordIfNeeded(String rawPassword) {
+        if (rawPassword == null) {
+            return;
+        }
+
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final String oldHash = transactionTemplate.execute(status ->
+                currentUserResolver.getCurrentUserEntity().getPassword());
+        if (!passwordHashingService.needsRehash(oldHash)) {
+            return;
+        }
+
+        final String newHash = passwordHashingService.encode(rawPassword);
+        transactionTemplate.execute(status -> {
+            final UserEntity user = currentUserResolver.getCurrentUserEntity();
+            // unless the password has been changed in the meantime
+            if (oldHash.equals(user.getPassword())) {
+                log.info("Rehashing password of user {}", user.getId());
+                user.setPassword(newHash);
+                authenticationService.evict(user.getUsername());
+            }
+            return null;
+        });
     }
 
     @Override
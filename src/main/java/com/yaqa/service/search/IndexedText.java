@@ -0,0 +1,84 @@
+package com.yaqa.service.search;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tokenized body of a question or a comment. Comments are searched as part of their question,
+ * so both are indexed under the question id.
+ */
+public final class IndexedText {
+    public enum Type {
+        QUESTION, COMMENT
+    }
+
+    private final Type type;
+    private final long id;
+    private final long questionId;
+    private final Map<String, Integer> termFrequencies;
+
+    public IndexedText(Type type, long id, long questionId, Map<String, Integer> termFrequencies) {
+        this.type = type;
+        this.id = id;
+        this.questionId = questionId;
+        this.termFrequencies = Collections.unmodifiableMap(termFrequencies);
+    }
+
+    public static IndexedText question(long id, String body) {
+        return new IndexedText(Type.QUESTION, id, id, Tokenizer.termFrequencies(body));
+    }
+
+    public static IndexedText comment(long id, long questionId, String body) {
+        return new IndexedText(Type.COMMENT, id, questionId, Tokenizer.termFrequencies(body));
+    }
+
+    /**
+     * Unique among questions and comments.
+     */
+    long getKey() {
+        return id * Type.values().length + type.ordinal();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getQuestionId() {
+        return questionId;
+    }
+
+    public Map<String, Integer> getTermFrequencies() {
+        return termFrequencies;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeLong(id);
+        out.writeLong(questionId);
+        out.writeInt(termFrequencies.size());
+        for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    static IndexedText readFrom(DataInput in) throws IOException {
+        final Type type = Type.values()[in.readUnsignedByte()];
+        final long id = in.readLong();
+        final long questionId = in.readLong();
+        final int size = in.readInt();
+        final Map<String, Integer> termFrequencies = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            termFrequencies.put(in.readUTF(), in.readInt());
+        }
+        return new IndexedText(type, id, questionId, termFrequencies);
+    }
+}
@@ -0,0 +1,187 @@
+package com.yaqa.service.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index of questions, each question being a document made of its body and the bodies
+ * of its comments. Queries match any of their terms and are ranked with BM25.
+ * <p>
+ * Texts are replaced as a whole, the index keeps their term frequencies to remove the old version from the
+ * postings. Updates are cheap but exclusive, queries run concurrently.
+ */
+public class InvertedIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, IndexedText> texts = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<IndexedText.Type, Long> maxIds = new EnumMap<>(IndexedText.Type.class);
+    private long totalLength;
+
+    /**
+     * Adds a text or replaces its previous version.
+     */
+    public void put(IndexedText text) {
+        lock.writeLock().lock();
+        try {
+            final IndexedText previous = texts.put(text.getKey(), text);
+            if (previous != null) {
+                apply(previous, -1);
+            }
+            apply(text, 1);
+            maxIds.merge(text.getType(), text.getId(), Math::max);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param after last hit of the previous page, null for the first page
+     * @return best hits ranked after the given one
+     */
+    public List<SearchHit> search(Collection<String> terms, SearchHit after, int limit) {
+        final Map<Long, Double> scores = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            final int documentCount = documents.size();
+            if (documentCount == 0) {
+                return Collections.emptyList();
+            }
+
+            final double averageLength = (double) totalLength / documentCount;
+            for (String term : terms) {
+                final Map<Long, Integer> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+
+                final int frequency = termPostings.size();
+                final double idf = Math.log(1 + (documentCount - frequency + 0.5) / (frequency + 0.5));
+                termPostings.forEach((questionId, termFrequency) -> {
+                    final double lengthRatio = documents.get(questionId).length / averageLength;
+                    final double score = idf * termFrequency * (K1 + 1) / (termFrequency + K1 * (1 - B + B * lengthRatio));
+                    scores.merge(questionId, score, Double::sum);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // the worst of the best hits so far is at the head
+        final PriorityQueue<SearchHit> best = new PriorityQueue<>(Collections.reverseOrder());
+        scores.forEach((questionId, score) -> {
+            final SearchHit hit = new SearchHit(questionId, score);
+            if (after != null && hit.compareTo(after) <= 0) {
+                return;
+            }
+
+            best.offer(hit);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+
+        final List<SearchHit> hits = new ArrayList<>(best);
+        Collections.sort(hits);
+        return hits;
+    }
+
+    /**
+     * Iterates over the texts while blocking updates.
+     */
+    public void forEachText(Consumer<IndexedText> consumer) {
+        lock.readLock().lock();
+        try {
+            texts.values().forEach(consumer);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the greatest id of the indexed texts of the type, 0 if there are none
+     */
+    public long getMaxId(IndexedText.Type type) {
+        lock.readLock().lock();
+        try {
+            return maxIds.getOrDefault(type, 0L);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(IndexedText text) {
+        lock.readLock().lock();
+        try {
+            return texts.containsKey(text.getKey());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDocumentCount() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            texts.clear();
+            documents.clear();
+            postings.clear();
+            maxIds.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(IndexedText text, int sign) {
+        final Long questionId = text.getQuestionId();
+        final Document document = documents.computeIfAbsent(questionId, id -> new Document());
+
+        text.getTermFrequencies().forEach((term, frequency) -> {
+            final int documentFrequency = document.termFrequencies.merge(term, sign * frequency, Integer::sum);
+            if (documentFrequency > 0) {
+                postings.computeIfAbsent(term, key -> new HashMap<>()).put(questionId, documentFrequency);
+            } else {
+                document.termFrequencies.remove(term);
+                final Map<Long, Integer> termPostings = postings.get(term);
+                termPostings.remove(questionId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            document.length += sign * frequency;
+            totalLength += sign * frequency;
+        });
+
+        if (document.length == 0) {
+            documents.remove(questionId);
+        }
+    }
+
+    private static class Document {
+        private final Map<String, Integer> termFrequencies = new HashMap<>();
+        private int length;
+    }
+}
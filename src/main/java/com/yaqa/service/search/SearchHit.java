@@ -0,0 +1,74 @@
+package com.yaqa.service.search;
+
+import com.yaqa.exception.InvalidCursorException;
+
+/**
+ * Question matching a query. Hits are ordered by descending score and then by descending question id,
+ * the last hit of a page is the cursor of the next one.
+ */
+public final class SearchHit implements Comparable<SearchHit> {
+    private final long questionId;
+    private final double score;
+
+    public SearchHit(long questionId, double score) {
+        this.questionId = questionId;
+        this.score = score;
+    }
+
+    public long getQuestionId() {
+        return questionId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * The score is encoded exactly, so that the next page continues right after this hit.
+     */
+    public String toCursor() {
+        return Long.toHexString(Double.doubleToLongBits(score)) + '_' + questionId;
+    }
+
+    /**
+     * @return null for a null cursor, i.e. the first page
+     */
+    public static SearchHit fromCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        final int separator = cursor.indexOf('_');
+        try {
+            return new SearchHit(Long.parseLong(cursor.substring(separator + 1)),
+                    Double.longBitsToDouble(Long.parseUnsignedLong(cursor.substring(0, separator), 16)));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid search cursor " + cursor);
+        }
+    }
+
+    @Override
+    public int compareTo(SearchHit other) {
+        final int byScore = Double.compare(other.score, score);
+        return byScore != 0 ? byScore : Long.compare(other.questionId, questionId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final SearchHit other = (SearchHit) o;
+        return questionId == other.questionId && Double.compare(other.score, score) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(questionId) + Double.hashCode(score);
+    }
+
+    @Override
+    public String toString() {
+        return questionId + ":" + score;
+    }
+}
@@ -0,0 +1,251 @@
+package com.yaqa.service.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the indexed texts on disk as a snapshot followed by append-only segments. Segment n holds the texts
+ * indexed after snapshot n was taken, so loading reads the newest snapshot and replays the segments from its
+ * number on. Taking a snapshot starts a new segment and deletes the files it supersedes.
+ * <p>
+ * Segments are only flushed to the operating system, a crash of the machine may lose the last updates,
+ * which are then indexed again from the database. A partially written last record is ignored.
+ * <p>
+ * Not thread safe, the directory is locked against other processes.
+ */
+public class SegmentStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SegmentStore.class);
+    private static final int FORMAT_VERSION = 1;
+    private static final Pattern FILE_NAME = Pattern.compile("(snapshot|segment)-(\\d+)\\.(idx|log)");
+
+    private final Path directory;
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    private long segment;
+    private DataOutputStream out;
+    private int appendedCount;
+
+    public SegmentStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Locks the directory, passes the stored texts to the consumer in the order they were written and
+     * starts a new segment.
+     */
+    public void open(Consumer<IndexedText> consumer) throws IOException {
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException(directory + " is used by another index");
+        }
+
+        final TreeMap<Long, Path> snapshots = new TreeMap<>();
+        final TreeMap<Long, Path> segments = new TreeMap<>();
+        list(snapshots, segments);
+
+        long first = 0;
+        if (!snapshots.isEmpty()) {
+            final Map.Entry<Long, Path> snapshot = snapshots.lastEntry();
+            read(snapshot.getValue(), consumer, true);
+            first = snapshot.getKey();
+        }
+        for (Map.Entry<Long, Path> entry : segments.tailMap(first).entrySet()) {
+            if (read(entry.getValue(), consumer, false) == 0) {
+                Files.delete(entry.getValue());
+            }
+        }
+
+        segment = Math.max(first, segments.isEmpty() ? 0 : segments.lastKey() + 1);
+        out = openSegment(segment);
+    }
+
+    public boolean isLocked() {
+        return lock != null;
+    }
+
+    public void append(IndexedText text) throws IOException {
+        text.writeTo(out);
+        out.flush();
+        appendedCount++;
+    }
+
+    /**
+     * @return number of texts appended since the last snapshot
+     */
+    public int getAppendedCount() {
+        return appendedCount;
+    }
+
+    /**
+     * Writes all texts to a new snapshot, the texts must include everything appended so far.
+     */
+    public void snapshot(Consumer<Consumer<IndexedText>> texts) throws IOException {
+        out.close();
+        segment++;
+        out = openSegment(segment);
+        appendedCount = 0;
+
+        final Path snapshot = directory.resolve("snapshot-" + segment + ".idx");
+        final Path tmp = directory.resolve("snapshot-" + segment + ".idx.tmp");
+        try (DataOutputStream snapshotOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            snapshotOut.writeInt(FORMAT_VERSION);
+            final IOException[] failure = new IOException[1];
+            texts.accept(text -> {
+                if (failure[0] == null) {
+                    try {
+                        text.writeTo(snapshotOut);
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        final TreeMap<Long, Path> snapshots = new TreeMap<>();
+        final TreeMap<Long, Path> segments = new TreeMap<>();
+        list(snapshots, segments);
+        for (Path superseded : snapshots.headMap(segment).values()) {
+            Files.deleteIfExists(superseded);
+        }
+        for (Path superseded : segments.headMap(segment).values()) {
+            Files.deleteIfExists(superseded);
+        }
+    }
+
+    /**
+     * Deletes all stored texts, the directory stays locked.
+     */
+    public void clear() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+
+        final TreeMap<Long, Path> snapshots = new TreeMap<>();
+        final TreeMap<Long, Path> segments = new TreeMap<>();
+        list(snapshots, segments);
+        for (Path path : snapshots.values()) {
+            Files.deleteIfExists(path);
+        }
+        for (Path path : segments.values()) {
+            Files.deleteIfExists(path);
+        }
+
+        segment = 0;
+        appendedCount = 0;
+        out = openSegment(segment);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (out != null) {
+                out.close();
+            }
+        } finally {
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        }
+    }
+
+    private DataOutputStream openSegment(long number) throws IOException {
+        final Path file = directory.resolve("segment-" + number + ".log");
+        final DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)));
+        stream.writeInt(FORMAT_VERSION);
+        return stream;
+    }
+
+    /**
+     * @return number of texts read
+     */
+    private int read(Path file, Consumer<IndexedText> consumer, boolean complete) throws IOException {
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            final int version;
+            try {
+                version = in.readInt();
+            } catch (EOFException e) {
+                if (complete) {
+                    throw e;
+                }
+                return count;
+            }
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported format " + version + " of " + file);
+            }
+
+            while (true) {
+                in.mark(1);
+                if (in.read() < 0) {
+                    return count;
+                }
+                in.reset();
+
+                final IndexedText text;
+                try {
+                    text = IndexedText.readFrom(in);
+                } catch (EOFException e) {
+                    if (complete) {
+                        throw e;
+                    }
+                    log.warn("Ignoring the partially written last record of {}", file);
+                    return count;
+                }
+                consumer.accept(text);
+                count++;
+            }
+        }
+    }
+
+    private void list(Map<Long, Path> snapshots, Map<Long, Path> segments) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                final Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+
+                final long number = Long.parseLong(matcher.group(2));
+                if ("snapshot".equals(matcher.group(1)) && "idx".equals(matcher.group(3))) {
+                    snapshots.put(number, file);
+                } else if ("segment".equals(matcher.group(1)) && "log".equals(matcher.group(3))) {
+                    segments.put(number, file);
+                }
+            }
+        }
+    }
+}
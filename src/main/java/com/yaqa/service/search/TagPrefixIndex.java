@@ -0,0 +1,154 @@
+package com.yaqa.service.search;
+
+import com.yaqa.dao.projection.TagCount;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tags sorted by lower-cased name, so that the tags starting with a prefix are a contiguous range starting
+ * at a binary searched position. The most used tags of the range are picked with a bounded heap.
+ * <p>
+ * The array is replaced as a whole when tags are added, lookups read it without locking. Question counts
+ * are shared between the versions of the array and can be changed in place.
+ */
+public class TagPrefixIndex {
+    private static final Comparator<Entry> BY_KEY = Comparator.<Entry, String>comparing(e -> e.key)
+            .thenComparing(e -> e.id);
+    private static final Comparator<Entry> BY_POPULARITY = Comparator.<Entry>comparingLong(e -> -e.count.get())
+            .thenComparing(e -> e.key)
+            .thenComparing(e -> e.id);
+
+    private volatile Entry[] entries = new Entry[0];
+    private volatile Map<Long, Entry> entriesById = new ConcurrentHashMap<>();
+    private volatile long maxId;
+
+    /**
+     * Replaces all tags.
+     */
+    public synchronized void reset(Collection<TagCount> tags) {
+        final Map<Long, Entry> newEntriesById = new ConcurrentHashMap<>();
+        long newMaxId = 0;
+        for (TagCount tag : tags) {
+            newEntriesById.put(tag.getId(), new Entry(tag.getId(), tag.getTagName(), tag.getQuestionsCount()));
+            newMaxId = Math.max(newMaxId, tag.getId());
+        }
+
+        final Entry[] newEntries = newEntriesById.values().toArray(new Entry[newEntriesById.size()]);
+        Arrays.sort(newEntries, BY_KEY);
+
+        entries = newEntries;
+        entriesById = newEntriesById;
+        maxId = newMaxId;
+    }
+
+    /**
+     * Adds tags or replaces their counts.
+     */
+    public synchronized void addAll(Collection<TagCount> tags) {
+        final List<Entry> added = new ArrayList<>();
+        for (TagCount tag : tags) {
+            final Entry entry = entriesById.get(tag.getId());
+            if (entry != null) {
+                entry.count.set(tag.getQuestionsCount());
+            } else {
+                final Entry newEntry = new Entry(tag.getId(), tag.getTagName(), tag.getQuestionsCount());
+                entriesById.put(newEntry.id, newEntry);
+                added.add(newEntry);
+                maxId = Math.max(maxId, newEntry.id);
+            }
+        }
+
+        if (!added.isEmpty()) {
+            final Entry[] merged = Arrays.copyOf(entries, entries.length + added.size());
+            for (int i = 0; i < added.size(); i++) {
+                merged[entries.length + i] = added.get(i);
+            }
+            Arrays.sort(merged, BY_KEY);
+            entries = merged;
+        }
+    }
+
+    /**
+     * @return false if the tag is unknown
+     */
+    public boolean addToCount(long tagId, long delta) {
+        final Entry entry = entriesById.get(tagId);
+        if (entry == null) {
+            return false;
+        }
+        entry.count.addAndGet(delta);
+        return true;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * @return tags whose names start with the prefix ignoring case, most used first
+     */
+    public List<TagCount> complete(String prefix, int limit) {
+        final String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Entry[] snapshot = entries;
+        final PriorityQueue<Entry> best = new PriorityQueue<>(BY_POPULARITY.reversed());
+        for (int i = lowerBound(snapshot, key); i < snapshot.length && snapshot[i].key.startsWith(key); i++) {
+            best.offer(snapshot[i]);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        final List<Entry> ranked = new ArrayList<>(best);
+        ranked.sort(BY_POPULARITY);
+
+        final List<TagCount> result = new ArrayList<>(ranked.size());
+        ranked.forEach(entry -> result.add(new TagCount(entry.id, entry.name, entry.count.get())));
+        return result;
+    }
+
+    private static int lowerBound(Entry[] entries, String key) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (entries[middle].key.compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final String name;
+        private final String key;
+        private final AtomicLong count;
+
+        private Entry(long id, String name, long count) {
+            this.id = id;
+            this.name = name;
+            this.key = normalize(name);
+            this.count = new AtomicLong(count);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.yaqa.service.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into lower-cased runs of letters and digits, dropping one-letter words and the most common
+ * English words. Overlong runs are cut, so that pasted garbage does not bloat the index.
+ */
+public final class Tokenizer {
+    static final int MIN_TERM_LENGTH = 2;
+    static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "an", "and", "are", "as", "at", "be", "by", "do", "for", "from", "has", "have", "if", "in", "is", "it",
+            "its", "of", "on", "or", "so", "that", "the", "this", "to", "was", "were", "will", "with"
+    ));
+
+    private Tokenizer() {
+    }
+
+    public static Map<String, Integer> termFrequencies(String text) {
+        final Map<String, Integer> frequencies = new HashMap<>();
+        tokenize(text, term -> frequencies.merge(term, 1, Integer::sum));
+        return frequencies;
+    }
+
+    /**
+     * @return distinct terms in the order of their first occurrence
+     */
+    public static Set<String> terms(String text) {
+        final Set<String> terms = new LinkedHashSet<>();
+        tokenize(text, terms::add);
+        return Collections.unmodifiableSet(terms);
+    }
+
+    private static void tokenize(String text, Consumer<String> consumer) {
+        if (text == null) {
+            return;
+        }
+
+        final StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); ) {
+            final int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (term.length() < MAX_TERM_LENGTH) {
+                    term.appendCodePoint(Character.toLowerCase(codePoint));
+                }
+            } else if (term.length() > 0) {
+                final String value = term.toString();
+                if (value.length() >= MIN_TERM_LENGTH && !STOP_WORDS.contains(value)) {
+                    consumer.accept(value);
+                }
+                term.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.yaqa.service.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+
+/**
+ * Principal of authenticated requests, carries the id of the user so that it can be used without a lookup.
+ */
+public class AuthenticatedUser extends User {
+    private static final long serialVersionUID = 1L;
+
+    public static final List<GrantedAuthority> AUTHORITIES = AuthorityUtils.createAuthorityList("ROLE_USER");
+
+    private final Long userId;
+    private final long passwordVersion;
+
+    public AuthenticatedUser(Long userId, String username, String password, long passwordVersion) {
+        super(username, password, AUTHORITIES);
+        this.userId = userId;
+        this.passwordVersion = passwordVersion;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @see com.yaqa.dao.entity.UserEntity#getPasswordVersion()
+     */
+    public long getPasswordVersion() {
+        return passwordVersion;
+    }
+}
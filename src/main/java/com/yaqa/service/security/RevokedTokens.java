@@ -0,0 +1,36 @@
+package com.yaqa.service.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of revoked tokens, kept only until the tokens expire anyway. Expired entries are purged
+ * whenever the list has doubled in size since the last purge.
+ */
+public class RevokedTokens {
+    private static final int MIN_PURGE_SIZE = 1024;
+
+    private final Map<Long, Long> expirationsByTokenId = new ConcurrentHashMap<>();
+
+    private volatile int nextPurgeSize = MIN_PURGE_SIZE;
+
+    public void revoke(long tokenId, long expiresAt) {
+        expirationsByTokenId.put(tokenId, expiresAt);
+        if (expirationsByTokenId.size() > nextPurgeSize) {
+            purge(System.currentTimeMillis());
+        }
+    }
+
+    public boolean isRevoked(long tokenId) {
+        return expirationsByTokenId.containsKey(tokenId);
+    }
+
+    public int size() {
+        return expirationsByTokenId.size();
+    }
+
+    synchronized void purge(long now) {
+        expirationsByTokenId.values().removeIf(expiresAt -> expiresAt <= now);
+        nextPurgeSize = Math.max(MIN_PURGE_SIZE, expirationsByTokenId.size() * 2);
+    }
+}
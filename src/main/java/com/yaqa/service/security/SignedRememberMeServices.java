@@ -0,0 +1,156 @@
+package com.yaqa.service.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.security.web.authentication.rememberme.AbstractRememberMeServices;
+import org.springframework.security.web.authentication.rememberme.InvalidCookieException;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remember-me tokens validated by their HMAC signature instead of a lookup in persistent_logins,
+ * so that any node sharing the key authenticates them without touching the database.
+ * <p>
+ * The cookie holds the user id, the expiration time, a random token id, the signature and the username.
+ * The password version of the user takes part in the signature, so changing the password invalidates the tokens
+ * of the user. The hash itself does not, since it changes whenever it is upgraded to a new cost on login.
+ * Tokens of a logout are revoked by their id, on the node which handled the logout only.
+ */
+public class SignedRememberMeServices extends AbstractRememberMeServices {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int USERNAME_TOKEN = 4;
+
+    private final SecretKeySpec secretKey;
+    private final SecureRandom random = new SecureRandom();
+    private final RevokedTokens revokedTokens = new RevokedTokens();
+
+    public SignedRememberMeServices(String key, UserDetailsService userDetailsService) {
+        super(key, userDetailsService);
+        this.secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+
+    @Override
+    protected void onLoginSuccess(HttpServletRequest request, HttpServletResponse response,
+                                  Authentication successfulAuthentication) {
+        // credentials of the authenticated principal are already erased
+        final UserDetails user = getUserDetailsService().loadUserByUsername(successfulAuthentication.getName());
+        if (!(user instanceof AuthenticatedUser)) {
+            logger.debug("Remember-me cookie is issued to principals with a user id only");
+            return;
+        }
+
+        final long expiresAt = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(getTokenValiditySeconds());
+        final SignedToken token = new SignedToken(((AuthenticatedUser) user).getUserId(), expiresAt,
+                random.nextLong(), user.getUsername());
+
+        setCookie(new String[]{
+                String.valueOf(token.userId),
+                String.valueOf(token.expiresAt),
+                Long.toHexString(token.tokenId),
+                sign(token, ((AuthenticatedUser) user).getPasswordVersion()),
+                token.username
+        }, getTokenValiditySeconds(), request, response);
+    }
+
+    @Override
+    protected UserDetails processAutoLoginCookie(String[] cookieTokens, HttpServletRequest request,
+                                                 HttpServletResponse response) {
+        final SignedToken token = SignedToken.parse(cookieTokens);
+        if (token.expiresAt < System.currentTimeMillis()) {
+            throw new InvalidCookieException("Remember-me cookie has expired");
+        }
+        if (revokedTokens.isRevoked(token.tokenId)) {
+            throw new InvalidCookieException("Remember-me cookie has been revoked");
+        }
+
+        final UserDetails user = getUserDetailsService().loadUserByUsername(token.username);
+        if (!(user instanceof AuthenticatedUser) || !((AuthenticatedUser) user).getUserId().equals(token.userId)) {
+            throw new InvalidCookieException("Remember-me cookie belongs to another user");
+        }
+
+        final byte[] expectedSignature = sign(token, ((AuthenticatedUser) user).getPasswordVersion())
+                .getBytes(StandardCharsets.US_ASCII);
+        final byte[] actualSignature = cookieTokens[3].getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expectedSignature, actualSignature)) {
+            throw new InvalidCookieException("Remember-me cookie has an invalid signature");
+        }
+
+        return user;
+    }
+
+    @Override
+    public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
+        final String cookieValue = extractRememberMeCookie(request);
+        if (StringUtils.hasLength(cookieValue)) {
+            try {
+                // only signed tokens are remembered, otherwise anyone could fill up the list
+                final String[] cookieTokens = decodeCookie(cookieValue);
+                processAutoLoginCookie(cookieTokens, request, response);
+                final SignedToken token = SignedToken.parse(cookieTokens);
+                revokedTokens.revoke(token.tokenId, token.expiresAt);
+            } catch (RuntimeException e) {
+                logger.debug("Remember-me cookie of the logout was not revoked: " + e.getMessage());
+            }
+        }
+        super.logout(request, response, authentication);
+    }
+
+    public int getRevokedTokenCount() {
+        return revokedTokens.size();
+    }
+
+    private String sign(SignedToken token, long passwordVersion) {
+        final String payload = token.userId + ":" + token.expiresAt + ":" + Long.toHexString(token.tokenId)
+                + ":" + token.username + ":" + passwordVersion;
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(secretKey);
+            return new String(Hex.encode(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8))));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign the remember-me token", e);
+        }
+    }
+
+    private static class SignedToken {
+        private final Long userId;
+        private final long expiresAt;
+        private final long tokenId;
+        private final String username;
+
+        private SignedToken(Long userId, long expiresAt, long tokenId, String username) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+            this.tokenId = tokenId;
+            this.username = username;
+        }
+
+        private static SignedToken parse(String[] cookieTokens) {
+            if (cookieTokens.length <= USERNAME_TOKEN) {
+                throw new InvalidCookieException("Remember-me cookie has " + cookieTokens.length + " tokens");
+            }
+
+            // the username may contain the delimiter itself
+            final String username = String.join(":",
+                    Arrays.asList(cookieTokens).subList(USERNAME_TOKEN, cookieTokens.length));
+            try {
+                return new SignedToken(Long.valueOf(cookieTokens[0]), Long.parseLong(cookieTokens[1]),
+                        Long.parseUnsignedLong(cookieTokens[2], 16), username);
+            } catch (NumberFormatException e) {
+                throw new InvalidCookieException("Remember-me cookie is malformed");
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.yaqa.web;
 
+import com.yaqa.exception.PasswordHashingBusyException;
 import com.yaqa.exception.YaqaBaseException;
 import com.yaqa.web.model.ErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -13,6 +15,7 @@ import org.springframework.web.bind.annotation.RestController;
 @ControllerAdvice(annotations = RestController.class)
 public class ExceptionHandlers {
     private static final Logger LOG = LoggerFactory.getLogger(ExceptionHandlers.class);
+    public static final String RETRY_AFTER_SECONDS = "1";
 
     @ExceptionHandler(YaqaBaseException.class)
     public ResponseEntity<ErrorResponse> yaqaExceptionHandler(YaqaBaseException e) {
@@ -20,6 +23,14 @@ public class ExceptionHandlers {
         return new ResponseEntity<>(new ErrorResponse(e.getMessage()), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ErrorResponse> passwordHashingBusyHandler(PasswordHashingBusyException e) {
+        LOG.warn("password hashing is saturated: {}", e.getMessage());
+        final HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        return new ResponseEntity<>(new ErrorResponse(e.getMessage()), headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Throwable.class)
     public ResponseEntity<String> unexpectedError(Throwable t) {
         LOG.error("unexpected error", t);
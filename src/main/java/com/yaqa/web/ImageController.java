@@ -1,22 +1,30 @@
 package com.yaqa.web;
 
 import com.yaqa.exception.InvalidImageException;
+import com.yaqa.metrics.MetricsRegistry;
 import com.yaqa.model.Image;
 import com.yaqa.service.ImageService;
+import com.yaqa.service.image.ImageBlob;
+import com.yaqa.service.image.ImageVariant;
 import com.yaqa.web.model.SaveImageResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.Locale;
 
 @RestController
 @RequestMapping(value = "/image")
@@ -26,22 +34,50 @@ public class ImageController {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
     @RequestMapping(value = "/{id}", method = RequestMethod.GET, produces = {
             MediaType.IMAGE_PNG_VALUE,
             MediaType.IMAGE_JPEG_VALUE
     })
-    public byte[] getImageById(@PathVariable("id") Long imageId,
-                               HttpServletResponse response) {
-        final Image image = imageService.getById(imageId);
+    public void getImageById(@PathVariable("id") Long imageId,
+                             @RequestParam(value = "size", required = false) String size,
+                             WebRequest webRequest,
+                             HttpServletResponse response) throws IOException {
+        final ImageVariant variant = size == null ? null : ImageVariant.of(size);
+        final String eTag = imageService.getETag(imageId, variant);
+        if (webRequest.checkNotModified(eTag)) {
+            return;
+        }
+
+        final ImageBlob image = variant == null
+                ? imageService.getContentById(imageId)
+                : imageService.getContentById(imageId, variant);
+        final boolean fallback = !eTag.equals(image.getETag());
+        if (fallback) {
+            // the original is served while the variant is being rendered, it must not be cached as the variant
+            response.setHeader(HttpHeaders.ETAG, image.getETag());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        }
         response.setContentType(image.getContentType());
-        return image.getContent().get();
+        response.setContentLengthLong(image.getSize());
+        image.transferTo(Channels.newChannel(response.getOutputStream()));
+
+        final String servedSize = variant == null || fallback ? "original" : variant.name().toLowerCase(Locale.ROOT);
+        metricsRegistry.counter("yaqa_image_bytes_served_total", MetricsRegistry.label("size", servedSize))
+                .increment(image.getSize());
     }
 
     @RequestMapping(method = RequestMethod.POST, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public SaveImageResponse saveImage(@RequestParam("image") MultipartFile imageFile) {
         if (!imageFile.isEmpty()) {
-            try {
-                final Image image = imageService.saveImage(imageFile.getBytes());
+            if (imageFile.getSize() > imageService.getMaxImageSize()) {
+                throw new InvalidImageException("image is larger than " + imageService.getMaxImageSize() + " bytes");
+            }
+
+            try (InputStream imageContent = imageFile.getInputStream()) {
+                final Image image = imageService.saveImage(imageContent);
 
                 return new SaveImageResponse(image.getId(), image.getContentType());
             } catch (IOException e) {
@@ -0,0 +1,51 @@
+package com.yaqa.web;
+
+import com.yaqa.metrics.MetricsRegistry;
+import com.yaqa.metrics.PrometheusTextFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Metrics in the Prometheus text format. The scraper authenticates with the yaqa.metrics.token bearer token,
+ * the endpoint does not exist when no token is configured.
+ */
+@RestController
+public class MetricsController {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Value("${yaqa.metrics.token:}")
+    private String token;
+
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+    public void getMetrics(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                           HttpServletResponse response) throws IOException {
+        if (token.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (authorization == null || !MessageDigest.isEqual(
+                authorization.getBytes(StandardCharsets.UTF_8),
+                ("Bearer " + token).getBytes(StandardCharsets.UTF_8))) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+
+        response.setContentType(PrometheusTextFormat.CONTENT_TYPE);
+        try (Writer writer = response.getWriter()) {
+            PrometheusTextFormat.write(metricsRegistry, writer);
+        }
+    }
+}
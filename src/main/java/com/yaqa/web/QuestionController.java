@@ -4,6 +4,7 @@ import com.yaqa.exception.ValidationException;
 import com.yaqa.model.LikeResult;
 import com.yaqa.model.Question;
 import com.yaqa.model.QuestionWithComments;
+import com.yaqa.model.SearchResult;
 import com.yaqa.service.QuestionService;
 import com.yaqa.web.model.CreateQuestionRequest;
 import com.yaqa.web.model.PostCommentRequest;
@@ -13,7 +14,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -41,8 +44,19 @@ public class QuestionController {
         return questionService.getBelowIdLimited(pastId, QUESTION_PAGINATION_LIMIT);
     }
 
+    @RequestMapping(value = "/search", method = RequestMethod.GET)
+    public SearchResult search(@RequestParam("q") String query,
+                               @RequestParam(value = "cursor", required = false) String cursor) {
+        return questionService.search(query, cursor, QUESTION_PAGINATION_LIMIT);
+    }
+
     @RequestMapping(value = "/{id}", method = RequestMethod.GET)
-    public QuestionWithComments getQuestionById(@PathVariable("id") Long id) {
+    public QuestionWithComments getQuestionById(@PathVariable("id") Long id, WebRequest webRequest) {
+        final String eTag = questionService.getETag(id);
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
         return questionService.getByIdWithComments(id);
     }
 
@@ -1,24 +1,47 @@
 package com.yaqa.web;
 
+import com.yaqa.exception.InvalidPageException;
 import com.yaqa.model.Tag;
+import com.yaqa.model.TagWithQuestionCount;
 import com.yaqa.service.TagService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
 @RestController
 @RequestMapping("/tag")
 public class TagController {
+    private static final int AUTOCOMPLETE_LIMIT = 10;
+    private static final int TAG_PAGE_SIZE = 100;
 
     @Autowired
     private TagService tagService;
 
-    @RequestMapping("/")
-    public List<Tag> getAllTags() {
-        return tagService.getAll();
-    }
+    /**
+     * Tags by popularity, page by page starting from 0. The first page may be empty, the pages after the last tag
+     * are rejected.
+     */
+    @RequestMapping(value = "/", method = RequestMethod.GET)
+    public List<TagWithQuestionCount> getTags(@RequestParam(value = "page", defaultValue = "0") int page,
+                                              WebRequest webRequest) {
+        final int validPage = Math.max(page, 0);
+        if (validPage > 0 && (long) validPage * TAG_PAGE_SIZE >= tagService.getTagCount()) {
+            throw new InvalidPageException("There are no tags on page " + page);
+        }
+        if (webRequest.checkNotModified(tagService.getMostUsedETag(validPage, TAG_PAGE_SIZE))) {
+            return null;
+        }
 
+        return tagService.getMostUsed(validPage, TAG_PAGE_SIZE);
+    }
 
+    @RequestMapping(value = "/autocomplete", method = RequestMethod.GET)
+    public List<Tag> autocomplete(@RequestParam("prefix") String prefix) {
+        return tagService.autocomplete(prefix, AUTOCOMPLETE_LIMIT);
+    }
 }
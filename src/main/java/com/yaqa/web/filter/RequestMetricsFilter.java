@@ -0,0 +1,156 @@
+package com.yaqa.web.filter;
+
+import com.yaqa.dao.jdbc.QueryStats;
+import com.yaqa.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Collects the latency of requests and the statements executed while serving them, security filters
+ * included, into histograms per route. In development the numbers are also sent back as response headers. The body
+ * is not buffered for them, so the headers cover the statements executed until the body starts being written.
+ */
+public class RequestMetricsFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+    public static final String LATENCY_METRIC = "yaqa_http_request_seconds";
+    public static final String STATEMENTS_METRIC = "yaqa_jdbc_statements_per_request";
+    public static final String STATEMENT_SECONDS_METRIC = "yaqa_jdbc_seconds_per_request";
+
+    private static final double[] STATEMENT_BUCKETS = {0, 1, 2, 3, 5, 10, 20, 50, 100};
+    private static final double[] SECONDS_BUCKETS =
+            {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final MetricsRegistry metricsRegistry;
+    private final boolean exposeHeaders;
+    private final int statementWarnThreshold;
+
+    /**
+     * @param statementWarnThreshold requests issuing more statements are logged with a warning, 0 to disable
+     */
+    public RequestMetricsFilter(MetricsRegistry metricsRegistry, boolean exposeHeaders, int statementWarnThreshold) {
+        this.metricsRegistry = metricsRegistry;
+        this.exposeHeaders = exposeHeaders;
+        this.statementWarnThreshold = statementWarnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        final long start = System.nanoTime();
+        try (QueryStats stats = QueryStats.begin()) {
+            final HttpServletResponse filteredResponse =
+                    exposeHeaders ? new StatsHeadersResponse(response, stats) : response;
+            try {
+                chain.doFilter(request, filteredResponse);
+            } finally {
+                record(route(request), System.nanoTime() - start, stats);
+
+                if (exposeHeaders) {
+                    ((StatsHeadersResponse) filteredResponse).writeHeaders();
+                }
+            }
+        }
+    }
+
+    private void record(String route, long nanos, QueryStats stats) {
+        final String labels = MetricsRegistry.label("route", route);
+        metricsRegistry.histogram(LATENCY_METRIC, labels, SECONDS_BUCKETS)
+                .observe(nanos / 1e9);
+        metricsRegistry.histogram(STATEMENTS_METRIC, labels, STATEMENT_BUCKETS)
+                .observe(stats.getStatementCount());
+        metricsRegistry.histogram(STATEMENT_SECONDS_METRIC, labels, SECONDS_BUCKETS)
+                .observe(stats.getTotalNanos() / 1e9);
+
+        if (statementWarnThreshold > 0 && stats.getStatementCount() > statementWarnThreshold) {
+            log.warn("{}: {}, slowest {} ms: {}",
+                    route, stats, toMillis(stats.getSlowestNanos()), stats.getSlowestSql());
+        } else if (log.isDebugEnabled()) {
+            log.debug("{}: {}, slowest {} ms: {}",
+                    route, stats, toMillis(stats.getSlowestNanos()), stats.getSlowestSql());
+        }
+    }
+
+    /**
+     * Mapping pattern of the handler rather than the path, so that the number of routes stays bounded.
+     */
+    static String route(HttpServletRequest request) {
+        final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + ' ' + (pattern != null ? pattern : "unmapped");
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * Adds the statement headers right before the response is committed.
+     */
+    private static class StatsHeadersResponse extends HttpServletResponseWrapper {
+        private final QueryStats stats;
+        private boolean headersWritten;
+
+        StatsHeadersResponse(HttpServletResponse response, QueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        void writeHeaders() {
+            if (headersWritten || isCommitted()) {
+                return;
+            }
+            headersWritten = true;
+            setHeader("X-Query-Count", String.valueOf(stats.getStatementCount()));
+            setHeader("X-Query-Time", toMillis(stats.getTotalNanos()));
+            setHeader("X-Query-Slowest", toMillis(stats.getSlowestNanos()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.yaqa.dao;
 
 import com.yaqa.config.TestDaoConfig;
+import com.yaqa.dao.entity.CommentEntity;
+import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.entity.LikeEntity;
 import com.yaqa.dao.entity.QuestionEntity;
 import com.yaqa.dao.entity.TagEntity;
 import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.projection.QuestionProjection;
+import com.yaqa.model.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
 import org.testng.annotations.Test;
@@ -13,8 +18,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 @Test
@@ -30,6 +38,15 @@ public class QuestionDaoTest extends AbstractTransactionalTestNGSpringContextTes
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private LikeDao likeDao;
+
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private ImageDao imageDao;
+
     public void getByTagName() {
         final String firstTagName = "tag1";
         final String secondTagName = "tag2";
@@ -143,12 +160,143 @@ public class QuestionDaoTest extends AbstractTransactionalTestNGSpringContextTes
         assertEquals(actualFirstUserQuestions, questions);
     }
 
+    public void getLastLimitedProjections_hp() {
+        final List<TagEntity> tags = Arrays.asList(createTag("tag1"), createTag("tag2"));
+        final UserEntity author = createUser();
+        final UserEntity viewer = createUser();
+
+        final QuestionEntity liked = createQuestion("liked", author, tags);
+        final QuestionEntity notLiked = createQuestion("not liked", author, Collections.emptyList());
+
+        likeDao.save(new LikeEntity(viewer, liked));
+        likeDao.save(new LikeEntity(author, liked));
+        likeDao.save(new LikeEntity(author, notLiked));
+        commentDao.save(new CommentEntity("comment", viewer, liked, Collections.emptyList()));
+
+        final ImageEntity image = new ImageEntity(new byte[]{0}, "image/png");
+        image.setQuestion(liked);
+        imageDao.save(image);
+
+        questionDao.reconcileCounters(0L, questionDao.getMaxId());
+
+        final List<QuestionProjection> projections = questionDao.getLastLimitedProjections(viewer.getId(), 2);
+        assertEquals(projections.size(), 2);
+
+        final QuestionProjection notLikedProjection = projections.get(0);
+        assertEquals(notLikedProjection.getId(), notLiked.getId());
+        assertEquals(notLikedProjection.getLikesCount(), Long.valueOf(1));
+        assertEquals(notLikedProjection.getCommentsCount(), Long.valueOf(0));
+        assertFalse(notLikedProjection.isLikedByViewer());
+        assertTrue(notLikedProjection.getTags().isEmpty());
+        assertTrue(notLikedProjection.getImageIds().isEmpty());
+
+        final QuestionProjection likedProjection = projections.get(1);
+        assertEquals(likedProjection.getId(), liked.getId());
+        assertEquals(likedProjection.getBody(), liked.getBody());
+        assertEquals(likedProjection.getAuthorId(), author.getId());
+        assertEquals(likedProjection.getLikesCount(), Long.valueOf(2));
+        assertEquals(likedProjection.getCommentsCount(), Long.valueOf(1));
+        assertTrue(likedProjection.isLikedByViewer());
+        assertEquals(likedProjection.getImageIds(), Collections.singletonList(image.getId()));
+
+        final List<Tag> expectedTags = Arrays.asList(Tag.of(tags.get(0)), Tag.of(tags.get(1)));
+        final List<Tag> actualTags = new ArrayList<>(likedProjection.getTags());
+        actualTags.sort((t1, t2) -> t1.getId().compareTo(t2.getId()));
+        assertEquals(actualTags, expectedTags);
+    }
+
+    public void getByUserTagsLimitedProjections_hp() {
+        final List<TagEntity> tags = Arrays.asList(
+            createTag("tag1"), createTag("tag2"), createTag("tag3"), createTag("tag4")
+        );
+        final UserEntity user1 = createUser(tags.subList(0, 2));
+        final UserEntity user2 = createUser(tags.subList(2, 4));
+
+        final QuestionEntity first = createQuestion("body", user2, tags.subList(0, 1));
+        createQuestion("body", user2, tags.subList(2, 4));
+        final QuestionEntity third = createQuestion("body", user2, tags.subList(1, 3));
+
+        final List<QuestionProjection> projections = questionDao.getByUserTagsLimitedProjections(user1, 10);
+        assertEquals(projections.size(), 2);
+        assertEquals(projections.get(0).getId(), third.getId());
+        assertEquals(projections.get(1).getId(), first.getId());
+
+        final List<QuestionProjection> nextPage = questionDao.getByUserTagsLimitedProjections(user1, third.getId(), 10);
+        assertEquals(nextPage.size(), 1);
+        assertEquals(nextPage.get(0).getId(), first.getId());
+    }
+
+    public void getByUserTagsLimitedProjections_mergesTagsWithoutDuplicates() {
+        final List<TagEntity> tags = Arrays.asList(createTag("tag1"), createTag("tag2"), createTag("tag3"));
+        final UserEntity user = createUser(tags);
+
+        final List<Long> expectedIds = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            // every third question is in two of the subscribed tags
+            final List<TagEntity> questionTags = i % 3 == 0
+                    ? Arrays.asList(tags.get(0), tags.get(1))
+                    : Collections.singletonList(tags.get(i % 3));
+            expectedIds.add(0, createQuestion("body", user, questionTags).getId());
+        }
+
+        assertEquals(ids(questionDao.getByUserTagsLimitedProjections(user, 20)), expectedIds);
+        assertEquals(ids(questionDao.getByUserTagsLimitedProjections(user, 4)), expectedIds.subList(0, 4));
+        assertEquals(ids(questionDao.getByUserTagsLimitedProjections(user, expectedIds.get(3), 4)),
+                expectedIds.subList(4, 8));
+    }
+
+    public void getByUserTagsLimitedProjections_manySubscriptions() {
+        final List<TagEntity> tags = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            tags.add(createTag("tag" + i));
+        }
+        final UserEntity user = createUser(tags);
+
+        final List<Long> expectedIds = new ArrayList<>();
+        for (TagEntity tag : tags) {
+            expectedIds.add(0, createQuestion("body", user, Collections.singletonList(tag)).getId());
+        }
+
+        assertEquals(ids(questionDao.getByUserTagsLimitedProjections(user, 100)), expectedIds.subList(0, 100));
+    }
+
+    public void reconcileCounters_hp() {
+        final UserEntity user = createUser();
+        final QuestionEntity question = createQuestion("body", user, Collections.emptyList());
+
+        likeDao.save(new LikeEntity(user, question));
+        commentDao.save(new CommentEntity("comment", user, question, Collections.emptyList()));
+        questionDao.incrementCommentsCount(question, 1);
+
+        assertEquals(questionDao.getLikeCount(question.getId()), Long.valueOf(0));
+
+        assertEquals(questionDao.reconcileCounters(0L, question.getId()), 1);
+        assertEquals(questionDao.getLikeCount(question.getId()), Long.valueOf(1));
+        assertEquals(questionDao.reconcileCounters(0L, question.getId()), 0);
+    }
+
+    public void incrementRevision_hp() {
+        final UserEntity author = createUser();
+        final QuestionEntity question = createQuestion("body", author, Collections.emptyList());
+        final Long revision = questionDao.getRevision(question.getId());
+
+        questionDao.incrementLikesCount(question.getId(), 1);
+        questionDao.incrementRevisionsByParticipant(author.getId());
+
+        assertEquals(questionDao.getRevision(question.getId()), Long.valueOf(revision + 2));
+        assertNull(questionDao.getRevision(question.getId() + 1));
+    }
+
     private QuestionEntity createQuestion(String body, UserEntity user, List<TagEntity> tags) {
         final QuestionEntity question = new QuestionEntity(body, user, tags, null);
         questionDao.save(question);
         return question;
     }
 
+    private static List<Long> ids(List<QuestionProjection> projections) {
+        return projections.stream().map(QuestionProjection::getId).collect(Collectors.toList());
+    }
+
     private TagEntity createTag(String tagName) {
         final TagEntity tag = new TagEntity(tagName);
         tagDao.save(tag);
@@ -0,0 +1,125 @@
+package com.yaqa.dao;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.dao.entity.TagEntity;
+import com.yaqa.dao.entity.UserEntity;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Entities are cached on commit, so the rows are created and removed by the test.
+ */
+@Test
+@ContextConfiguration(classes = DaoConfig.class)
+@ActiveProfiles("test")
+public class SecondLevelCacheTest extends AbstractTestNGSpringContextTests {
+
+    @Autowired
+    private TagDao tagDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private TagEntity tag;
+    private UserEntity user;
+
+    @BeforeMethod
+    public void createTagAndUser() {
+        inTransaction(() -> {
+            tag = new TagEntity("secondLevelCache");
+            tagDao.save(tag);
+            user = new UserEntity("secondLevelCache", "password", null, null, null, null);
+            userDao.save(user);
+            return null;
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @AfterMethod
+    public void removeTagAndUser() {
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("delete from tags where id = ?", tag.getId());
+        jdbcTemplate.update("delete from users where id = ?", user.getId());
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    public void incrementQuestionsCount_evictsCachedTag() {
+        inTransaction(() -> em.find(TagEntity.class, tag.getId()));
+        inTransaction(() -> em.find(UserEntity.class, user.getId()));
+        assertTrue(entityManagerFactory.getCache().contains(TagEntity.class, tag.getId()));
+
+        inTransaction(() -> {
+            tagDao.incrementQuestionsCount(Collections.singletonList(tag.getId()), 1);
+            return null;
+        });
+
+        assertFalse(entityManagerFactory.getCache().contains(TagEntity.class, tag.getId()));
+        // other regions are kept
+        assertTrue(entityManagerFactory.getCache().contains(UserEntity.class, user.getId()));
+    }
+
+    public void incrementQuestionsCount_invalidatesCachedQueries() {
+        final Supplier<Long> cachedCount = () -> em.createQuery("select t.questionsCount " +
+                        " from TagEntity t " +
+                        " where t.id = :id",
+                Long.class)
+                .setParameter("id", tag.getId())
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .getSingleResult();
+        assertEquals(inTransaction(cachedCount), Long.valueOf(0));
+
+        inTransaction(() -> {
+            tagDao.incrementQuestionsCount(Collections.singletonList(tag.getId()), 1);
+            return null;
+        });
+
+        assertEquals(inTransaction(cachedCount), Long.valueOf(1));
+    }
+
+    public void getCredentialsByUsername_seesChangesOfOtherNodes() {
+        assertEquals(inTransaction(() -> userDao.getByUsername("secondLevelCache")).getPassword(), "password");
+
+        // e.g. changed by another node
+        new JdbcTemplate(dataSource).update("update users set password = ? where id = ?", "changed", user.getId());
+
+        assertEquals(inTransaction(() -> userDao.getByUsername("secondLevelCache")).getPassword(), "password");
+        assertEquals(inTransaction(() -> userDao.getCredentialsByUsername("secondLevelCache")).getPassword(),
+                "changed");
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+}
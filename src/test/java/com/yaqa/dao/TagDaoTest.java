@@ -0,0 +1,164 @@
+package com.yaqa.dao;
+
+import com.yaqa.config.TestDaoConfig;
+import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.entity.TagEntity;
+import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.impl.TagDaoImpl;
+import com.yaqa.dao.projection.TagCount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+@Test
+@TestDaoConfig
+public class TagDaoTest extends AbstractTransactionalTestNGSpringContextTests {
+
+    @Autowired
+    private TagDao tagDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeMethod
+    public void createJdbcTemplate() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterMethod
+    public void removeCommittedTags() {
+        inNewTransaction(() -> jdbcTemplate.update("delete from tags where tagName = 'concurrent'"));
+    }
+
+    public void getOrCreateByNames_hp() {
+        final TagEntity existing = new TagEntity("existing");
+        tagDao.save(existing);
+
+        final Map<String, TagEntity> tags = tagDao.getOrCreateByNames(Arrays.asList("existing", "new1", "new2", "new1"));
+
+        assertEquals(tags.size(), 3);
+        assertEquals(tags.get("existing").getId(), existing.getId());
+        assertEquals(tagDao.getByName("new1").getId(), tags.get("new1").getId());
+        assertNotNull(tagDao.findByName("new2"));
+
+        final Map<String, TagEntity> again = tagDao.getOrCreateByNames(Arrays.asList("new1", "new2"));
+        assertEquals(again.get("new2").getId(), tags.get("new2").getId());
+    }
+
+    public void getOrCreateByNames_insertedConcurrently() {
+        insertCommitted("concurrent");
+
+        final Map<String, TagEntity> tags = missingNamesDao(1)
+                .getOrCreateByNames(Arrays.asList("concurrent", "fresh"));
+
+        assertEquals(tags.get("concurrent").getId(), jdbcTemplate.queryForObject(
+                "select id from tags where tagName = 'concurrent'", Long.class));
+        assertEquals(tags.get("fresh").getId(), jdbcTemplate.queryForObject(
+                "select id from tags where tagName = 'fresh'", Long.class));
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from tags where tagName in ('concurrent', 'fresh')",
+                Long.class), Long.valueOf(2));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void getOrCreateByNames_conflictsExhaustAttempts() {
+        insertCommitted("concurrent");
+
+        missingNamesDao(Integer.MAX_VALUE).getOrCreateByNames(Collections.singletonList("concurrent"));
+    }
+
+    public void questionsCount_hp() {
+        final TagEntity first = new TagEntity("first");
+        final TagEntity second = new TagEntity("second");
+        tagDao.save(first);
+        tagDao.save(second);
+
+        final UserEntity author = new UserEntity("username", "password", null, null, null, null);
+        userDao.save(author);
+        questionDao.save(new QuestionEntity("body", author, Arrays.asList(first, second), null));
+        questionDao.save(new QuestionEntity("body", author, Arrays.asList(first), null));
+
+        tagDao.incrementQuestionsCount(Arrays.asList(first.getId(), second.getId()), 1);
+        assertEquals(tagDao.reconcileQuestionsCount(0L, tagDao.getMaxId()), 1);
+
+        final Map<Long, Long> counts = tagDao.getQuestionCounts(0L)
+                .stream()
+                .collect(Collectors.toMap(TagCount::getId, TagCount::getQuestionsCount));
+        assertEquals(counts.get(first.getId()), Long.valueOf(2));
+        assertEquals(counts.get(second.getId()), Long.valueOf(1));
+
+        final List<TagCount> mostUsed = tagDao.getMostUsed(0, 2);
+        assertEquals(mostUsed.stream().map(TagCount::getId).collect(Collectors.toList()),
+                Arrays.asList(first.getId(), second.getId()));
+
+        final List<TagCount> newer = tagDao.getQuestionCounts(first.getId());
+        assertEquals(newer.stream().map(TagCount::getId).collect(Collectors.toList()), Arrays.asList(second.getId()));
+    }
+
+    /**
+     * Commits the tag from another connection, outside the transaction of the test.
+     */
+    private void insertCommitted(String tagName) {
+        inNewTransaction(() -> jdbcTemplate.update("insert into tags (id, tagName, questionsCount) " +
+                " select coalesce(max(id), 0) + 1000, ?, 0 from tags", tagName));
+    }
+
+    private void inNewTransaction(Runnable action) {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.execute(status -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * @param misses lookups missing every name, as if the names were inserted by another transaction right after
+     */
+    private TagDao missingNamesDao(int misses) {
+        final AtomicInteger remaining = new AtomicInteger(misses);
+        final TagDaoImpl dao = new TagDaoImpl() {
+            @Override
+            public Map<String, TagEntity> getByNames(Collection<String> tagNames) {
+                return remaining.getAndDecrement() > 0 ? new HashMap<>() : super.getByNames(tagNames);
+            }
+        };
+        ReflectionTestUtils.setField(dao, "em", em);
+        return dao;
+    }
+}
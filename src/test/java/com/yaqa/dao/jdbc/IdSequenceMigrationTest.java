@@ -0,0 +1,49 @@
+package com.yaqa.dao.jdbc;
+
+import com.yaqa.config.TestDaoConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.testng.annotations.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+@TestDaoConfig
+public class IdSequenceMigrationTest extends AbstractTestNGSpringContextTests {
+
+    @Autowired
+    private IdSequenceMigration idSequenceMigration;
+
+    @Autowired
+    private DataSource dataSource;
+
+    public void migrate_legacySequence() throws SQLException {
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals(readIncrement(jdbcTemplate), Long.valueOf(20));
+
+        jdbcTemplate.execute("alter sequence TAGS_ID_SEQ increment by 1");
+        final long legacyValue = nextValue(jdbcTemplate);
+
+        idSequenceMigration.migrate();
+        assertEquals(readIncrement(jdbcTemplate), Long.valueOf(20));
+        final long firstValue = nextValue(jdbcTemplate);
+        assertTrue(firstValue >= (legacyValue + 1) * 50);
+
+        idSequenceMigration.migrate();
+        assertEquals(nextValue(jdbcTemplate), firstValue + 20);
+    }
+
+    private static Long readIncrement(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select increment from information_schema.sequences " +
+                " where sequence_name = 'TAGS_ID_SEQ'", Long.class);
+    }
+
+    private static long nextValue(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("select next value for TAGS_ID_SEQ", Long.class);
+    }
+}
@@ -0,0 +1,243 @@
+package com.yaqa.dao.transfer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yaqa.config.DaoConfig;
+import com.yaqa.dao.CommentDao;
+import com.yaqa.dao.ImageDao;
+import com.yaqa.dao.LikeDao;
+import com.yaqa.dao.QuestionDao;
+import com.yaqa.dao.TagDao;
+import com.yaqa.dao.UserDao;
+import com.yaqa.dao.entity.CommentEntity;
+import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.entity.LikeEntity;
+import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.entity.TagEntity;
+import com.yaqa.dao.entity.UserEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.fail;
+
+/**
+ * Runs against a database of its own, the rows are committed.
+ */
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, DataTransferTest.TransferDatabaseConfig.class})
+public class DataTransferTest extends AbstractTestNGSpringContextTests {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TagDao tagDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private CommentDao commentDao;
+
+    @Autowired
+    private LikeDao likeDao;
+
+    @Autowired
+    private ImageDao imageDao;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeClass
+    public void createData() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new TransactionTemplate(transactionManager).execute(status -> {
+            final TagEntity tag = new TagEntity("transfer");
+            tagDao.save(tag);
+
+            final UserEntity user = new UserEntity("transfer", "password", "firstName", "lastName", "email", null);
+            user.setSubscriptionTags(Collections.singletonList(tag));
+            userDao.save(user);
+
+            final QuestionEntity question = new QuestionEntity("question", user, Collections.singletonList(tag), null);
+            questionDao.save(question);
+            final CommentEntity comment = new CommentEntity("comment", user, question, Collections.emptyList());
+            commentDao.save(comment);
+            likeDao.save(new LikeEntity(user, comment));
+
+            final ImageEntity image = new ImageEntity(new byte[]{0}, "image/png");
+            image.setUser(user);
+            imageDao.save(image);
+            user.setProfileImage(image);
+            return null;
+        });
+    }
+
+    public void export_import_roundTrip() throws Exception {
+        final byte[] exported = export();
+
+        deleteAllButTags();
+        final long imported = new DataImporter(dataSource).importFrom(new ByteArrayInputStream(exported));
+        assertEquals(imported, 7);
+
+        final long tagId = jdbcTemplate.queryForObject("select id from tags where tagName = 'transfer'", Long.class);
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from tags", Long.class), Long.valueOf(1));
+        assertEquals(jdbcTemplate.queryForObject("select questionsCount from tags", Long.class), Long.valueOf(1));
+
+        final long newQuestionId = jdbcTemplate.queryForObject("select id from questions", Long.class);
+        assertEquals(jdbcTemplate.queryForObject("select tag_id from question_tags where question_id = ?",
+                Long.class, newQuestionId), Long.valueOf(tagId));
+
+        final long userId = jdbcTemplate.queryForObject("select id from users where username = 'transfer'", Long.class);
+        assertEquals(jdbcTemplate.queryForObject("select author from questions", Long.class), Long.valueOf(userId));
+        assertEquals(jdbcTemplate.queryForObject("select tag_id from user_tags where user_id = ?",
+                Long.class, userId), Long.valueOf(tagId));
+        assertEquals(jdbcTemplate.queryForObject("select question_id from comments", Long.class),
+                Long.valueOf(newQuestionId));
+        assertEquals(jdbcTemplate.queryForObject("select l.comment_id from likes l where l.liker = ?",
+                Long.class, userId), jdbcTemplate.queryForObject("select id from comments", Long.class));
+        assertEquals(jdbcTemplate.queryForObject("select profileImage_id from users", Long.class),
+                jdbcTemplate.queryForObject("select id from images where user_id = ?", Long.class, userId));
+        assertEquals(jdbcTemplate.queryForObject("select content from images", byte[].class), new byte[]{0});
+    }
+
+    @Test(dependsOnMethods = "export_import_roundTrip")
+    public void import_existingUser_rolledBack() throws Exception {
+        final byte[] exported = export();
+        try {
+            new DataImporter(dataSource).importFrom(new ByteArrayInputStream(exported));
+            fail("The user already exists");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from users", Long.class), Long.valueOf(1));
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from questions", Long.class), Long.valueOf(1));
+    }
+
+    @Test(dependsOnMethods = "import_existingUser_rolledBack")
+    public void import_nonEmptyDatabase_shiftsIds() throws Exception {
+        final byte[] exported = export();
+        final long questionId = jdbcTemplate.queryForObject("select id from questions", Long.class);
+        jdbcTemplate.update("update users set username = 'original'");
+        jdbcTemplate.update("insert into timelines (user_id, question_id) select author, id from questions");
+
+        assertEquals(new DataImporter(dataSource).importFrom(new ByteArrayInputStream(exported)), 7);
+
+        final long tagId = jdbcTemplate.queryForObject("select id from tags where tagName = 'transfer'", Long.class);
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from tags", Long.class), Long.valueOf(1));
+        assertEquals(jdbcTemplate.queryForObject("select questionsCount from tags", Long.class), Long.valueOf(2));
+
+        final long userId = jdbcTemplate.queryForObject("select id from users where username = 'transfer'", Long.class);
+        final long newQuestionId = jdbcTemplate.queryForObject("select id from questions where author = ?",
+                Long.class, userId);
+        assertNotEquals(newQuestionId, questionId);
+        assertEquals(jdbcTemplate.queryForObject("select tag_id from question_tags where question_id = ?",
+                Long.class, newQuestionId), Long.valueOf(tagId));
+        assertEquals(jdbcTemplate.queryForObject("select tag_id from user_tags where user_id = ?",
+                Long.class, userId), Long.valueOf(tagId));
+
+        final long commentId = jdbcTemplate.queryForObject("select id from comments where question_id = ?",
+                Long.class, newQuestionId);
+        assertEquals(jdbcTemplate.queryForObject("select author from comments where id = ?", Long.class, commentId),
+                Long.valueOf(userId));
+        assertEquals(jdbcTemplate.queryForObject("select comment_id from likes where liker = ?", Long.class, userId),
+                Long.valueOf(commentId));
+        assertEquals(jdbcTemplate.queryForObject("select profileImage_id from users where id = ?", Long.class, userId),
+                jdbcTemplate.queryForObject("select id from images where user_id = ?", Long.class, userId));
+
+        // the timeline of the subscriber would hide the newer imported question
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from timelines", Long.class), Long.valueOf(0));
+    }
+
+    public void export_fileSystemImage_inlined() throws Exception {
+        final String contentHash = "ab" + String.join("", Collections.nCopies(62, "0"));
+        final Path directory = Files.createTempDirectory("images");
+        final Path file = directory.resolve("ab").resolve("00").resolve(contentHash);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[]{1, 2});
+
+        final long imageId = jdbcTemplate.queryForObject("select max(id) + 1000 from images", Long.class);
+        jdbcTemplate.update("insert into images (id, contentType, contentHash, size, storage) " +
+                " values (?, 'image/png', ?, 2, 'FILE_SYSTEM')", imageId, contentHash);
+        try {
+            try {
+                export(null);
+                fail("The images directory is not known");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+
+            final JsonNode image = new ObjectMapper().reader(JsonNode.class)
+                    .<JsonNode>readValues(export(directory)).readAll().stream()
+                    .filter(record -> "image".equals(record.path("type").asText()))
+                    .filter(record -> record.path("id").asLong() == imageId)
+                    .findFirst()
+                    .get();
+            assertEquals(image.path("content").binaryValue(), new byte[]{1, 2});
+            assertEquals(image.path("storage").asText(), "DATABASE");
+        } finally {
+            jdbcTemplate.update("delete from images where id = ?", imageId);
+            FileSystemUtils.deleteRecursively(directory.toFile());
+        }
+    }
+
+    private byte[] export() throws Exception {
+        return export(null);
+    }
+
+    private byte[] export(Path imagesDirectory) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataExporter(dataSource, imagesDirectory).export(out);
+        return out.toByteArray();
+    }
+
+    private void deleteAllButTags() {
+        jdbcTemplate.update("update users set profileImage_id = null");
+        for (String table : new String[]{"images", "likes", "comments", "question_tags", "questions", "user_tags",
+                "users"}) {
+            jdbcTemplate.update("delete from " + table);
+        }
+    }
+
+    @Configuration
+    static class TransferDatabaseConfig {
+
+        @Bean(name = "dbUrl")
+        public String dbUrl() {
+            return "jdbc:h2:mem:transfer";
+        }
+
+        @Bean(name = "dbUsername")
+        public String dbUsername() {
+            return "";
+        }
+
+        @Bean(name = "dbPassword")
+        public String dbPassword() {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.yaqa.metrics;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class PrometheusTextFormatTest {
+
+    public void write_countersAndGauges() throws IOException {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("requests_total", MetricsRegistry.label("route", "GET /a")).increment(3);
+        registry.counter("requests_total", MetricsRegistry.label("route", "GET /b")).increment();
+        registry.gauge("temperature", "", () -> 1.5);
+        registry.gauge("ratio", "", () -> Double.NaN);
+
+        assertEquals(write(registry), "" +
+                "# TYPE requests_total counter\n" +
+                "requests_total{route=\"GET /a\"} 3\n" +
+                "requests_total{route=\"GET /b\"} 1\n" +
+                "# TYPE ratio gauge\n" +
+                "ratio NaN\n" +
+                "# TYPE temperature gauge\n" +
+                "temperature 1.5\n");
+    }
+
+    public void write_escapesLabelValues() throws IOException {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("errors_total", MetricsRegistry.labels("path", "a\\b", "message", "say \"hi\"\nbye"))
+                .increment();
+
+        assertEquals(write(registry), "" +
+                "# TYPE errors_total counter\n" +
+                "errors_total{path=\"a\\\\b\",message=\"say \\\"hi\\\"\\nbye\"} 1\n");
+    }
+
+    public void write_cumulativeHistogramBuckets() throws IOException {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final Histogram labelled = registry.histogram("latency_seconds", MetricsRegistry.label("route", "GET /a"),
+                0.1, 1);
+        labelled.observe(0.05);
+        labelled.observe(0.1);
+        labelled.observe(0.5);
+        labelled.observe(3);
+        registry.histogram("size_bytes", "", 10).observe(20);
+
+        assertEquals(write(registry), "" +
+                "# TYPE latency_seconds histogram\n" +
+                "latency_seconds_bucket{route=\"GET /a\",le=\"0.1\"} 2\n" +
+                "latency_seconds_bucket{route=\"GET /a\",le=\"1\"} 3\n" +
+                "latency_seconds_bucket{route=\"GET /a\",le=\"+Inf\"} 4\n" +
+                "latency_seconds_sum{route=\"GET /a\"} 3.65\n" +
+                "latency_seconds_count{route=\"GET /a\"} 4\n" +
+                "# TYPE size_bytes histogram\n" +
+                "size_bytes_bucket{le=\"10\"} 0\n" +
+                "size_bytes_bucket{le=\"+Inf\"} 1\n" +
+                "size_bytes_sum 20\n" +
+                "size_bytes_count 1\n");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void counter_rejectsCounterMaintainedElsewhere() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("sessions_total", "", () -> 1);
+        registry.counter("sessions_total", "");
+    }
+
+    private static String write(MetricsRegistry registry) throws IOException {
+        final StringWriter out = new StringWriter();
+        PrometheusTextFormat.write(registry, out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.yaqa.service;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.config.ServiceConfig;
+import com.yaqa.dao.UserDao;
+import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.service.security.AuthenticatedUser;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
+@ActiveProfiles("test")
+public class AuthenticationServiceTest extends AbstractTransactionalTestNGSpringContextTests {
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private UserDao userDao;
+
+    public void loadUserByUsername_cachedCopies() {
+        final UserEntity user = new UserEntity("principal", "hash", null, null, null, null);
+        userDao.save(user);
+
+        final AuthenticatedUser first = (AuthenticatedUser) authenticationService.loadUserByUsername("principal");
+        assertEquals(first.getUserId(), user.getId());
+        assertEquals(first.getPassword(), "hash");
+        first.eraseCredentials();
+        assertNull(first.getPassword());
+
+        // served from the cache, not affected by the erased credentials of the previous principal
+        user.setPassword("changed");
+        final AuthenticatedUser second = (AuthenticatedUser) authenticationService.loadUserByUsername("principal");
+        assertEquals(second.getUserId(), user.getId());
+        assertEquals(second.getPassword(), "hash");
+    }
+
+    @Test(expectedExceptions = UsernameNotFoundException.class)
+    public void loadUserByUsername_unknown() {
+        authenticationService.loadUserByUsername("unknown");
+    }
+}
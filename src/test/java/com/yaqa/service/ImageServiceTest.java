@@ -0,0 +1,184 @@
+package com.yaqa.service;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.config.ServiceConfig;
+import com.yaqa.dao.ImageDao;
+import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.entity.ImageStorageType;
+import com.yaqa.exception.InvalidImageException;
+import com.yaqa.exception.InvalidImageFormatException;
+import com.yaqa.model.Image;
+import com.yaqa.service.image.DatabaseImageStorage;
+import com.yaqa.service.image.FileSystemImageStorage;
+import com.yaqa.service.image.ImageBlob;
+import com.yaqa.service.image.ImageContentStream;
+import com.yaqa.service.image.ImageVariant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "yaqa.images.storage=FILE_SYSTEM",
+        "yaqa.images.directory=target/test-images"
+})
+public class ImageServiceTest extends AbstractTransactionalTestNGSpringContextTests {
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private ImageDao imageDao;
+
+    @Autowired
+    private FileSystemImageStorage fileSystemImageStorage;
+
+    @Autowired
+    private DatabaseImageStorage databaseImageStorage;
+
+    @Test
+    public void saveImage_hp() throws IOException {
+        final byte[] content = createPng();
+
+        final Image first = imageService.saveImage(new ByteArrayInputStream(content));
+        final Image second = imageService.saveImage(new ByteArrayInputStream(content));
+
+        final ImageEntity firstEntity = imageDao.getById(first.getId());
+        final ImageEntity secondEntity = imageDao.getById(second.getId());
+        assertEquals(firstEntity.getStorage(), ImageStorageType.FILE_SYSTEM);
+        assertNull(firstEntity.getContent());
+        assertEquals(firstEntity.getContentHash(), secondEntity.getContentHash());
+        assertEquals(firstEntity.getSize(), Long.valueOf(content.length));
+
+        final ImageBlob blob = imageService.getContentById(second.getId());
+        assertEquals(blob.getContentType(), MediaType.IMAGE_PNG_VALUE);
+        assertEquals(blob.getSize(), content.length);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        blob.transferTo(Channels.newChannel(out));
+        assertEquals(out.toByteArray(), content);
+    }
+
+    @Test
+    public void getContentById_databaseImage() throws IOException {
+        final byte[] content = createPng();
+        final ImageEntity image = new ImageEntity(content, MediaType.IMAGE_PNG_VALUE);
+        imageDao.save(image);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        imageService.getContentById(image.getId()).transferTo(Channels.newChannel(out));
+        assertEquals(out.toByteArray(), content);
+    }
+
+    @Test
+    public void store_databaseStorage() throws IOException {
+        final byte[] content = createPng();
+        final ImageEntity image = new ImageEntity(MediaType.IMAGE_PNG_VALUE);
+        databaseImageStorage.store(image, new ImageContentStream(new ByteArrayInputStream(content), content.length));
+        try {
+            imageDao.save(image);
+            assertEquals(imageDao.getContentById(image.getId()), content);
+        } finally {
+            databaseImageStorage.release(image);
+        }
+        assertEquals(image.getStorage(), ImageStorageType.DATABASE);
+        assertEquals(image.getSize(), Long.valueOf(content.length));
+    }
+
+    @Test(expectedExceptions = InvalidImageFormatException.class)
+    public void saveImage_unknownFormat() {
+        imageService.saveImage(new ByteArrayInputStream(new byte[]{'G', 'I', 'F', '8', '9', 'a', 0, 0}));
+    }
+
+    @Test(expectedExceptions = InvalidImageException.class)
+    public void saveImage_tooLarge() throws IOException {
+        final byte[] content = Arrays.copyOf(createPng(), (int) imageService.getMaxImageSize() + 1);
+        imageService.saveImage(new ByteArrayInputStream(content));
+    }
+
+    @Test
+    public void getContentById_variant() throws IOException {
+        final Image image = imageService.saveImage(new ByteArrayInputStream(createPng(600, 300)));
+
+        final ImageBlob blob = imageService.getContentById(image.getId(), ImageVariant.MEDIUM);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        blob.transferTo(Channels.newChannel(out));
+
+        final BufferedImage variant = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(variant.getWidth(), ImageVariant.MEDIUM.getMaxDimension());
+        assertEquals(variant.getHeight(), ImageVariant.MEDIUM.getMaxDimension() / 2);
+    }
+
+    @Test
+    public void collectOrphans_keepsReferencedAndRecentFiles() throws IOException {
+        final Image image = imageService.saveImage(new ByteArrayInputStream(createPng(3, 3)));
+        final Path referenced = blobPath(imageDao.getById(image.getId()).getContentHash());
+        final Path orphan = blobPath(repeat('0'));
+        final Path recentOrphan = blobPath(repeat('1'));
+        Files.createDirectories(orphan.getParent());
+        Files.createDirectories(recentOrphan.getParent());
+        Files.write(orphan, new byte[]{0});
+        Files.write(recentOrphan, new byte[]{0});
+
+        final FileTime old = FileTime.from(Instant.now().minus(2, ChronoUnit.HOURS));
+        Files.setLastModifiedTime(referenced, old);
+        Files.setLastModifiedTime(orphan, old);
+        try {
+            assertTrue(fileSystemImageStorage.collectOrphans() >= 1);
+            assertFalse(Files.exists(orphan));
+            assertTrue(Files.exists(recentOrphan));
+            assertTrue(Files.exists(referenced));
+        } finally {
+            Files.deleteIfExists(orphan);
+            Files.deleteIfExists(recentOrphan);
+        }
+    }
+
+    private static Path blobPath(String contentHash) {
+        return Paths.get("target/test-images").toAbsolutePath()
+                .resolve(contentHash.substring(0, 2))
+                .resolve(contentHash.substring(2, 4))
+                .resolve(contentHash);
+    }
+
+    private static String repeat(char c) {
+        final char[] chars = new char[64];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static byte[] createPng() throws IOException {
+        return createPng(2, 2);
+    }
+
+    private static byte[] createPng(int width, int height) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
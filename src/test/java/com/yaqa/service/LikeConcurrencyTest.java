@@ -0,0 +1,115 @@
+package com.yaqa.service;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.config.ServiceConfig;
+import com.yaqa.dao.QuestionDao;
+import com.yaqa.dao.UserDao;
+import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.model.LikeResult;
+import com.yaqa.util.TestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Toggles commit, so the rows are created and removed by the test.
+ */
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
+@ActiveProfiles("test")
+public class LikeConcurrencyTest extends AbstractTestNGSpringContextTests {
+    private static final int TOGGLES = 8;
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private UserEntity user;
+    private QuestionEntity question;
+
+    @BeforeMethod
+    public void createQuestion() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            user = new UserEntity("likeConcurrency", "password", null, null, null, null);
+            userDao.save(user);
+            question = new QuestionEntity("body", user, Collections.emptyList(), Collections.emptyList());
+            questionDao.save(question);
+            return null;
+        });
+    }
+
+    @AfterMethod
+    public void removeQuestion() {
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("delete from likes where question_id = ?", question.getId());
+        jdbcTemplate.update("delete from questions where id = ?", question.getId());
+        jdbcTemplate.update("delete from users where id = ?", user.getId());
+    }
+
+    public void likeQuestion_concurrentToggles() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(TOGGLES);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<LikeResult>> results = new ArrayList<>();
+            for (int i = 0; i < TOGGLES; i++) {
+                results.add(executor.submit(() -> {
+                    TestUtils.setCurrentAuthenticatedUser(user);
+                    start.await();
+                    return questionService.likeQuestion(question.getId());
+                }));
+            }
+            start.countDown();
+
+            final Set<Long> likeCounts = new HashSet<>();
+            final Set<LikeResult.Type> types = EnumSet.noneOf(LikeResult.Type.class);
+            for (Future<LikeResult> result : results) {
+                likeCounts.add(result.get().getLikesCount());
+                types.add(result.get().getType());
+            }
+            assertEquals(types, EnumSet.allOf(LikeResult.Type.class));
+            assertEquals(likeCounts, new HashSet<>(Arrays.asList(0L, 1L)));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertEquals(jdbcTemplate.queryForObject("select count(*) from likes where question_id = ?",
+                Long.class, question.getId()), Long.valueOf(0));
+        assertEquals(jdbcTemplate.queryForObject("select likesCount from questions where id = ?",
+                Long.class, question.getId()), Long.valueOf(0));
+    }
+}
@@ -0,0 +1,101 @@
+package com.yaqa.service;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.config.ServiceConfig;
+import com.yaqa.exception.PasswordHashingBusyException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "yaqa.password.bcrypt-cost=10",
+        "yaqa.password.threads=1",
+        "yaqa.password.queue-size=1"
+})
+public class PasswordHashingServiceTest extends AbstractTestNGSpringContextTests {
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    public void encode_matches_needsRehash() {
+        final String hash = passwordHashingService.encode("password");
+        assertTrue(passwordHashingService.matches("password", hash));
+        assertFalse(passwordHashingService.matches("other", hash));
+        assertFalse(passwordHashingService.needsRehash(hash));
+
+        final String oldHash = new BCryptPasswordEncoder(4).encode("password");
+        assertTrue(passwordHashingService.matches("password", oldHash));
+        assertTrue(passwordHashingService.needsRehash(oldHash));
+    }
+
+    public void encode_rejectsWhenSaturated() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Object encoder = ReflectionTestUtils.getField(passwordHashingService, "encoder");
+        final ThreadPoolExecutor executor =
+                (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordHashingService, "executor");
+        ReflectionTestUtils.setField(passwordHashingService, "encoder", new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        });
+
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            // one hashing
+            final Future<String> hashing = callers.submit(() -> passwordHashingService.encode("password"));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            // one queued
+            final Future<String> queued = callers.submit(() -> passwordHashingService.encode("password"));
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (executor.getQueue().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(executor.getQueue().size(), 1);
+
+            try {
+                passwordHashingService.encode("password");
+                fail("Hashing accepted over the queue size");
+            } catch (PasswordHashingBusyException expected) {
+                // the rest is rejected
+            }
+
+            release.countDown();
+            assertNotNull(hashing.get(10, TimeUnit.SECONDS));
+            assertNotNull(queued.get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+            ReflectionTestUtils.setField(passwordHashingService, "encoder", encoder);
+        }
+    }
+}
@@ -3,13 +3,18 @@ package com.yaqa.service;
 
 import com.yaqa.config.DaoConfig;
 import com.yaqa.config.ServiceConfig;
+import com.yaqa.dao.CommentDao;
 import com.yaqa.dao.ImageDao;
+import com.yaqa.dao.LikeDao;
 import com.yaqa.dao.QuestionDao;
 import com.yaqa.dao.TagDao;
 import com.yaqa.dao.UserDao;
+import com.yaqa.dao.entity.CommentEntity;
 import com.yaqa.dao.entity.ImageEntity;
+import com.yaqa.dao.entity.LikeEntity;
 import com.yaqa.dao.entity.QuestionEntity;
 import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.exception.NotFoundException;
 import com.yaqa.model.LikeResult;
 import com.yaqa.model.Question;
 import com.yaqa.model.QuestionWithComments;
@@ -23,12 +28,17 @@ import org.springframework.test.context.testng.AbstractTransactionalTestNGSpring
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 @Test
 @ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
@@ -47,9 +57,18 @@ public class QuestionServiceTest extends AbstractTransactionalTestNGSpringContex
     @Autowired
     private ImageDao imageDao;
 
+    @Autowired
+    private LikeDao likeDao;
+
     @Autowired
     private TagDao tagDao;
 
+    @Autowired
+    private CommentDao commentDao;
+
+    @PersistenceContext
+    private EntityManager em;
+
     private UserEntity user;
 
     @BeforeMethod
@@ -74,6 +93,35 @@ public class QuestionServiceTest extends AbstractTransactionalTestNGSpringContex
         assertEquals(dislikeResult.getType(), LikeResult.Type.DISLIKE);
     }
 
+    public void likeQuestion_severalUsers() {
+        final QuestionEntity question = createQuestion();
+        assertEquals(questionService.likeQuestion(question.getId()).getLikesCount(), Long.valueOf(1));
+
+        final UserEntity otherUser = new UserEntity("otherUsername", "password", null, null, null, null);
+        userDao.save(otherUser);
+        TestUtils.setCurrentAuthenticatedUser(otherUser);
+
+        final LikeResult likeResult = questionService.likeQuestion(question.getId());
+        assertEquals(likeResult.getLikesCount(), Long.valueOf(2));
+        assertEquals(likeResult.getType(), LikeResult.Type.LIKE);
+
+        final LikeResult dislikeResult = questionService.likeQuestion(question.getId());
+        assertEquals(dislikeResult.getLikesCount(), Long.valueOf(1));
+        assertEquals(dislikeResult.getType(), LikeResult.Type.DISLIKE);
+        assertTrue(likeDao.isQuestionLiked(user.getId(), question.getId()));
+        assertFalse(likeDao.isQuestionLiked(otherUser.getId(), question.getId()));
+
+        final LikeResult likeAgainResult = questionService.likeQuestion(question.getId());
+        assertEquals(likeAgainResult.getLikesCount(), Long.valueOf(2));
+        assertEquals(likeAgainResult.getType(), LikeResult.Type.LIKE);
+        assertEquals(questionDao.reconcileCounters(0L, question.getId()), 0);
+    }
+
+    @Test(expectedExceptions = NotFoundException.class)
+    public void likeQuestion_unknownQuestion() {
+        questionService.likeQuestion(questionDao.getMaxId() + 1);
+    }
+
     public void updateQuestion_hp() {
         QuestionEntity question = createQuestion();
 
@@ -114,6 +162,55 @@ public class QuestionServiceTest extends AbstractTransactionalTestNGSpringContex
         assertEquals(updatedQuestionImageIds, newImageIds);
     }
 
+    public void getLastLimited_statementBudget() {
+        for (int i = 0; i < 10; i++) {
+            final QuestionEntity question = createQuestion();
+            final ImageEntity image = createImage();
+            image.setQuestion(question);
+            question.setTags(new ArrayList<>(tagDao.getOrCreateByNames(Arrays.asList("tag" + i, "common")).values()));
+        }
+        em.flush();
+
+        final List<Question> questions = TestUtils.assertStatementBudget(4, () -> questionService.getLastLimited(10));
+        assertEquals(questions.size(), 10);
+    }
+
+    public void getUserSubscriptionLimited_statementBudget() {
+        user.setSubscriptionTags(new ArrayList<>(tagDao.getOrCreateByNames(Arrays.asList("tag0", "tag1")).values()));
+        for (int i = 0; i < 10; i++) {
+            final QuestionEntity question = createQuestion();
+            final ImageEntity image = createImage();
+            image.setQuestion(question);
+            question.setTags(new ArrayList<>(tagDao.getOrCreateByNames(Arrays.asList("tag" + i % 2)).values()));
+        }
+        em.flush();
+
+        final List<Question> questions =
+                TestUtils.assertStatementBudget(5, () -> questionService.getUserSubscriptionLimited(10));
+        assertEquals(questions.size(), 10);
+    }
+
+    public void getByIdWithComments_statementBudget() {
+        final QuestionEntity question = createQuestion();
+        question.setTags(new ArrayList<>(tagDao.getOrCreateByNames(Arrays.asList("tag", "common")).values()));
+        createImage().setQuestion(question);
+        likeDao.save(new LikeEntity(user, question));
+        for (int i = 0; i < 10; i++) {
+            final UserEntity commenter = new UserEntity("commenter" + i, "password", null, null, null, null);
+            userDao.save(commenter);
+            final CommentEntity comment = new CommentEntity("comment", commenter, question, Collections.emptyList());
+            commentDao.save(comment);
+            createImage().setComment(comment);
+            likeDao.save(new LikeEntity(user, comment));
+        }
+        em.flush();
+        em.clear();
+
+        final QuestionWithComments result =
+                TestUtils.assertStatementBudget(8, () -> questionService.getByIdWithComments(question.getId()));
+        assertEquals(result.getComments().size(), 10);
+    }
+
     private QuestionEntity createQuestion() {
         QuestionEntity question = new QuestionEntity("body", user, Collections.emptyList(), Collections.emptyList());
         questionDao.save(question);
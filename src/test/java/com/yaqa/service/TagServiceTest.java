@@ -0,0 +1,93 @@
+package com.yaqa.service;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.config.ServiceConfig;
+import com.yaqa.dao.TagDao;
+import com.yaqa.dao.entity.TagEntity;
+import com.yaqa.model.TagWithQuestionCount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.annotations.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
+@ActiveProfiles("test")
+public class TagServiceTest extends AbstractTransactionalTestNGSpringContextTests {
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private TagDao tagDao;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public void getMostUsed_invalidatedByChangesOutsideTheService() {
+        final TagEntity first = new TagEntity("first");
+        tagDao.save(first);
+        em.flush();
+
+        final String eTag = tagService.getMostUsedETag(0, 10);
+        assertEquals(getNames(tagService.getMostUsed(0, 10)), Collections.singletonList("first"));
+        assertEquals(tagService.getMostUsedETag(0, 10), eTag);
+
+        // e.g. created along with a subscription
+        tagDao.save(new TagEntity("second"));
+        em.flush();
+
+        final String insertedETag = tagService.getMostUsedETag(0, 10);
+        assertNotEquals(insertedETag, eTag);
+        assertEquals(getNames(tagService.getMostUsed(0, 10)).size(), 2);
+
+        // e.g. repaired by the reconciliation or changed by another node
+        tagDao.incrementQuestionsCount(Collections.singletonList(first.getId()), 1);
+
+        assertNotEquals(tagService.getMostUsedETag(0, 10), insertedETag);
+        assertEquals(tagService.getMostUsed(0, 10).get(0).getQuestionsCount(), Long.valueOf(1));
+    }
+
+    public void getMostUsed_invalidatedByOffsettingMoves() {
+        final List<TagEntity> tags = Arrays.asList(
+                new TagEntity("t1"), new TagEntity("t2"), new TagEntity("t3"), new TagEntity("t4"));
+        tags.forEach(tagDao::save);
+        tagDao.incrementQuestionsCount(Arrays.asList(tags.get(1).getId(), tags.get(2).getId()), 1);
+
+        final String eTag = tagService.getMostUsedETag(0, 10);
+        assertEquals(getNames(tagService.getMostUsed(0, 10)), Arrays.asList("t2", "t3", "t1", "t4"));
+
+        // the sums of the counts, weighted by id or not, stay the same
+        tagService.questionTagsChanged(Collections.singletonList(tags.get(0).getId()),
+                Collections.singletonList(tags.get(1).getId()));
+        tagService.questionTagsChanged(Collections.singletonList(tags.get(3).getId()),
+                Collections.singletonList(tags.get(2).getId()));
+
+        assertNotEquals(tagService.getMostUsedETag(0, 10), eTag);
+        assertEquals(getNames(tagService.getMostUsed(0, 10)), Arrays.asList("t1", "t4", "t2", "t3"));
+    }
+
+    public void getMostUsed_pageBeyondIntOffsets() {
+        tagDao.save(new TagEntity("first"));
+
+        assertEquals(tagService.getTagCount(), 1);
+        assertEquals(tagService.getMostUsed(Integer.MAX_VALUE, 100), Collections.emptyList());
+    }
+
+    private static List<String> getNames(List<TagWithQuestionCount> tags) {
+        return tags.stream()
+                .map(TagWithQuestionCount::getTagName)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,86 @@
+package com.yaqa.service;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.config.ServiceConfig;
+import com.yaqa.dao.QuestionDao;
+import com.yaqa.dao.TagDao;
+import com.yaqa.dao.TimelineDao;
+import com.yaqa.dao.UserDao;
+import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.entity.TagEntity;
+import com.yaqa.dao.entity.UserEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.annotations.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Cached timelines expire right away, the way a node sees the writes of the others once its cache is stale.
+ */
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "yaqa.timeline.fanout=true",
+        "yaqa.timeline.cache-ttl-seconds=0"
+})
+public class TimelineCacheTest extends AbstractTransactionalTestNGSpringContextTests {
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private TimelineDao timelineDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private TagDao tagDao;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public void getQuestionIds_writesOfOtherNodes() {
+        final TagEntity subscribed = new TagEntity("subscribed");
+        tagDao.save(subscribed);
+        final UserEntity subscriber = new UserEntity("subscriber", "password", null, null, null, null);
+        subscriber.setSubscriptionTags(Collections.singletonList(subscribed));
+        userDao.save(subscriber);
+
+        final QuestionEntity first = createQuestion(subscriber, subscribed);
+        timelineDao.addToSubscriberTimelines(first.getId(), Collections.singletonList(subscribed.getId()));
+        assertEquals(timelineService.getQuestionIds(subscriber.getId(), null, 10),
+                Collections.singletonList(first.getId()));
+
+        // fanned out by another node, the cache of this one is not updated
+        final QuestionEntity second = createQuestion(subscriber, subscribed);
+        timelineDao.addToSubscriberTimelines(second.getId(), Collections.singletonList(subscribed.getId()));
+        assertEquals(timelineService.getQuestionIds(subscriber.getId(), null, 10),
+                Arrays.asList(second.getId(), first.getId()));
+
+        // reset by another node
+        timelineDao.deleteByUser(subscriber.getId());
+        assertEquals(timelineService.getQuestionIds(subscriber.getId(), null, 10), Collections.emptyList());
+    }
+
+    private QuestionEntity createQuestion(UserEntity author, TagEntity tag) {
+        final QuestionEntity question = new QuestionEntity("body", author, Collections.singletonList(tag),
+                Collections.emptyList());
+        questionDao.save(question);
+        em.flush();
+        return question;
+    }
+}
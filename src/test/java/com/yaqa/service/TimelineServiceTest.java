@@ -0,0 +1,182 @@
+package com.yaqa.service;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.config.ServiceConfig;
+import com.yaqa.dao.QuestionDao;
+import com.yaqa.dao.TagDao;
+import com.yaqa.dao.TimelineDao;
+import com.yaqa.dao.UserDao;
+import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.entity.TagEntity;
+import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.model.Question;
+import com.yaqa.model.Tag;
+import com.yaqa.util.TestUtils;
+import com.yaqa.web.model.CreateQuestionRequest;
+import com.yaqa.web.model.UpdateUserProfileRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.annotations.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = "yaqa.timeline.fanout=true")
+public class TimelineServiceTest extends AbstractTransactionalTestNGSpringContextTests {
+
+    @Autowired
+    private TimelineService timelineService;
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private TimelineDao timelineDao;
+
+    @Autowired
+    private TagDao tagDao;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public void getUserSubscriptionLimited_timelineAndSubscriptions() {
+        final TagEntity subscribed = new TagEntity("subscribed");
+        tagDao.save(subscribed);
+
+        final UserEntity author = createUser("author", Collections.emptyList());
+        final UserEntity subscriber = createUser("subscriber", Collections.singletonList(subscribed));
+
+        // posted before the fan-out, only found through the subscriptions
+        final QuestionEntity older = new QuestionEntity("older", author, Collections.singletonList(subscribed), null);
+        questionDao.save(older);
+        em.flush();
+
+        TestUtils.setCurrentAuthenticatedUser(author);
+        final Question newer = questionService.createNewQuestion(new CreateQuestionRequest("newer",
+                Collections.singletonList(new Tag("subscribed")), null)).getQuestion();
+        questionService.createNewQuestion(new CreateQuestionRequest("other",
+                Collections.singletonList(new Tag("other")), null));
+
+        assertEquals(timelineService.getQuestionIds(subscriber.getId(), null, 10),
+                Collections.singletonList(newer.getId()));
+        assertEquals(timelineService.getQuestionIds(author.getId(), null, 10), Collections.emptyList());
+
+        TestUtils.setCurrentAuthenticatedUser(subscriber);
+        assertEquals(getIds(questionService.getUserSubscriptionLimited(10)), Arrays.asList(newer.getId(), older.getId()));
+        assertEquals(getIds(questionService.getUserSubscriptionLimited(1)), Collections.singletonList(newer.getId()));
+        assertEquals(getIds(questionService.getUserSubscriptionLimited(newer.getId(), 10)),
+                Collections.singletonList(older.getId()));
+    }
+
+    public void updateQuestion_retaggedOldQuestionKeepsFeedOrder() {
+        final TagEntity subscribed = new TagEntity("subscribed");
+        tagDao.save(subscribed);
+
+        final UserEntity author = createUser("author", Collections.emptyList());
+        final UserEntity subscriber = createUser("subscriber", Collections.singletonList(subscribed));
+
+        // posted before the fan-out
+        final QuestionEntity retagged = new QuestionEntity("retagged", author, Collections.emptyList(), Collections.emptyList());
+        questionDao.save(retagged);
+        final QuestionEntity older = new QuestionEntity("older", author, Collections.singletonList(subscribed), null);
+        questionDao.save(older);
+        em.flush();
+
+        TestUtils.setCurrentAuthenticatedUser(author);
+        final Question newer = questionService.createNewQuestion(new CreateQuestionRequest("newer",
+                Collections.singletonList(new Tag("subscribed")), null)).getQuestion();
+        questionService.updateQuestion(retagged.getId(), new CreateQuestionRequest(null,
+                Collections.singletonList(new Tag("subscribed")), null));
+
+        TestUtils.setCurrentAuthenticatedUser(subscriber);
+        assertEquals(getIds(questionService.getUserSubscriptionLimited(10)),
+                Arrays.asList(newer.getId(), older.getId(), retagged.getId()));
+        assertEquals(getIds(questionService.getUserSubscriptionLimited(newer.getId(), 10)),
+                Arrays.asList(older.getId(), retagged.getId()));
+    }
+
+    public void updateQuestion_retagMovesOnlyTheQuestion() {
+        final TagEntity a = new TagEntity("a");
+        tagDao.save(a);
+        final TagEntity b = new TagEntity("b");
+        tagDao.save(b);
+
+        final UserEntity author = createUser("author", Collections.emptyList());
+        final UserEntity subscriberA = createUser("subscriberA", Collections.singletonList(a));
+        final UserEntity subscriberB = createUser("subscriberB", Collections.singletonList(b));
+        final UserEntity subscriberAB = createUser("subscriberAB", Arrays.asList(a, b));
+
+        TestUtils.setCurrentAuthenticatedUser(author);
+        final Question first = questionService.createNewQuestion(new CreateQuestionRequest("first",
+                Collections.singletonList(new Tag("b")), null)).getQuestion();
+        final Question moved = questionService.createNewQuestion(new CreateQuestionRequest("moved",
+                Collections.singletonList(new Tag("a")), null)).getQuestion();
+        final Question last = questionService.createNewQuestion(new CreateQuestionRequest("last",
+                Collections.singletonList(new Tag("b")), null)).getQuestion();
+
+        questionService.updateQuestion(moved.getId(), new CreateQuestionRequest(null,
+                Collections.singletonList(new Tag("b")), null));
+
+        assertEquals(timelineDao.getQuestionIds(subscriberA.getId(), null, 10), Collections.emptyList());
+        assertEquals(timelineDao.getQuestionIds(subscriberB.getId(), null, 10),
+                Arrays.asList(last.getId(), moved.getId(), first.getId()));
+        assertEquals(timelineDao.getQuestionIds(subscriberAB.getId(), null, 10),
+                Arrays.asList(last.getId(), moved.getId(), first.getId()));
+    }
+
+    public void updateUser_sameSubscriptionsKeepTimeline() {
+        final TagEntity subscribed = new TagEntity("subscribed");
+        tagDao.save(subscribed);
+
+        final UserEntity author = createUser("author", Collections.emptyList());
+        final UserEntity subscriber = createUser("subscriber", Collections.singletonList(subscribed));
+
+        TestUtils.setCurrentAuthenticatedUser(author);
+        final Question question = questionService.createNewQuestion(new CreateQuestionRequest("question",
+                Collections.singletonList(new Tag("subscribed")), null)).getQuestion();
+
+        // the cached timelines are only updated on commit
+        TestUtils.setCurrentAuthenticatedUser(subscriber);
+        userService.updateUser(new UpdateUserProfileRequest(null, "First", null, null,
+                Collections.singletonList(new Tag("subscribed")), null));
+        assertEquals(timelineDao.getQuestionIds(subscriber.getId(), null, 10),
+                Collections.singletonList(question.getId()));
+
+        userService.updateUser(new UpdateUserProfileRequest(null, null, null, null, Collections.emptyList(), null));
+        assertEquals(timelineDao.getQuestionIds(subscriber.getId(), null, 10), Collections.emptyList());
+    }
+
+    private UserEntity createUser(String username, List<TagEntity> tags) {
+        final UserEntity user = new UserEntity(username, "password", null, null, null, null);
+        user.setSubscriptionTags(tags);
+        userDao.save(user);
+        return user;
+    }
+
+    private static List<Long> getIds(List<Question> questions) {
+        return questions.stream()
+                .map(Question::getId)
+                .collect(Collectors.toList());
+    }
+}
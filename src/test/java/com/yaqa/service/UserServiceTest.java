@@ -0,0 +1,78 @@
+package com.yaqa.service;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.config.ServiceConfig;
+import com.yaqa.dao.QuestionDao;
+import com.yaqa.dao.UserDao;
+import com.yaqa.dao.entity.QuestionEntity;
+import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.util.TestUtils;
+import com.yaqa.web.model.UpdateUserProfileRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTransactionalTestNGSpringContextTests;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
+@ActiveProfiles("test")
+public class UserServiceTest extends AbstractTransactionalTestNGSpringContextTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    private UserEntity user;
+
+    private QuestionEntity question;
+
+    @BeforeMethod
+    public void createUser() {
+        user = new UserEntity("username", "password",
+                "First", "Last", "user@example.com", null);
+        userDao.save(user);
+
+        question = new QuestionEntity("body", user, Collections.emptyList(), Collections.emptyList());
+        questionDao.save(question);
+
+        TestUtils.setCurrentAuthenticatedUser(user);
+    }
+
+    public void updateUser_passwordKeepsRevisions() {
+        final Long revision = questionDao.getRevision(question.getId());
+
+        userService.updateUser(new UpdateUserProfileRequest("new password", null, null, "user@example.com",
+                Collections.emptyList(), null));
+        userService.updateUser(new UpdateUserProfileRequest(null, "First", "Last", null, null, null));
+
+        assertEquals(questionDao.getRevision(question.getId()), revision);
+    }
+
+    public void updateUser_emailBumpsRevisions() {
+        final Long revision = questionDao.getRevision(question.getId());
+
+        userService.updateUser(new UpdateUserProfileRequest(null, null, null, "new@example.com", null, null));
+
+        assertEquals(questionDao.getRevision(question.getId()), Long.valueOf(revision + 1));
+    }
+
+    public void updateUser_nameBumpsRevisions() {
+        final Long revision = questionDao.getRevision(question.getId());
+
+        userService.updateUser(new UpdateUserProfileRequest(null, "Renamed", null, null, null, null));
+
+        assertEquals(questionDao.getRevision(question.getId()), Long.valueOf(revision + 1));
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.yaqa.service.image;
+
+import com.yaqa.exception.InvalidImageException;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.testng.Assert.assertEquals;
+
+@Test
+public class ImageContentStreamTest {
+
+    public void skip_hashesSkippedContent() throws IOException {
+        final byte[] content = new byte[20_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        final ImageContentStream read = new ImageContentStream(new ByteArrayInputStream(content), content.length);
+        drain(read);
+
+        final ImageContentStream skipped = new ImageContentStream(new ByteArrayInputStream(content), content.length);
+        assertEquals(skipped.read(), 0);
+        assertEquals(skipped.skip(10_000), 10_000);
+        assertEquals(skipped.skip(20_000), content.length - 10_001);
+        assertEquals(skipped.skip(1), 0);
+
+        assertEquals(skipped.getSize(), content.length);
+        assertEquals(skipped.getContentHash(), read.getContentHash());
+    }
+
+    @Test(expectedExceptions = InvalidImageException.class)
+    public void skip_countsTowardsMaxSize() throws IOException {
+        new ImageContentStream(new ByteArrayInputStream(new byte[100]), 50).skip(100);
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        final byte[] buffer = new byte[4096];
+        while (in.read(buffer) != -1) {
+            // read to the end
+        }
+    }
+}
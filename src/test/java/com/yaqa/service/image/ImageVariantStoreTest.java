@@ -0,0 +1,90 @@
+package com.yaqa.service.image;
+
+import com.yaqa.dao.entity.ImageStorageType;
+import com.yaqa.dao.projection.ImageMetadata;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class ImageVariantStoreTest {
+    private final ImageMetadata image = new ImageMetadata(1L, MediaType.IMAGE_PNG_VALUE, "variantstoretest", 0L,
+            ImageStorageType.DATABASE);
+
+    private ImageVariantStore store;
+    private ExecutorService requests;
+
+    @BeforeMethod
+    public void createStore() throws IOException {
+        store = new ImageVariantStore();
+        ReflectionTestUtils.setField(store, "directory", "");
+        ReflectionTestUtils.setField(store, "threads", 1);
+        ReflectionTestUtils.setField(store, "queueSize", 1);
+        ReflectionTestUtils.setField(store, "timeoutMillis", 10_000L);
+        ReflectionTestUtils.setField(store, "cacheSize", 1024 * 1024L);
+        store.init();
+        requests = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod
+    public void shutdown() {
+        store.shutdown();
+        requests.shutdownNow();
+    }
+
+    public void getVariant_whileRendering_doesNotLoadOriginal() throws Exception {
+        final ByteArrayImageBlob original = new ByteArrayImageBlob(MediaType.IMAGE_PNG_VALUE, createPng(600, 300),
+                image.getETag());
+        final CountDownLatch renderStarted = new CountDownLatch(1);
+        final CountDownLatch originalLoaded = new CountDownLatch(1);
+
+        final Future<ImageBlob> first = requests.submit(() -> store.getVariant(image, ImageVariant.SMALL, () -> {
+            renderStarted.countDown();
+            await(originalLoaded);
+            return original;
+        }));
+        assertTrue(renderStarted.await(10, TimeUnit.SECONDS));
+
+        final AtomicInteger loads = new AtomicInteger();
+        final Future<ImageBlob> second = requests.submit(() -> store.getVariant(image, ImageVariant.SMALL, () -> {
+            loads.incrementAndGet();
+            return original;
+        }));
+        Thread.sleep(100);
+        originalLoaded.countDown();
+
+        assertEquals(first.get().getETag(), ImageVariantStore.toETag(image, ImageVariant.SMALL));
+        assertEquals(second.get().getETag(), ImageVariantStore.toETag(image, ImageVariant.SMALL));
+        assertEquals(loads.get(), 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] createPng(int width, int height) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
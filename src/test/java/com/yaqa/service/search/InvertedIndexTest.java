@@ -0,0 +1,89 @@
+package com.yaqa.service.search;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class InvertedIndexTest {
+
+    public void search_ranksAndReplacesTexts() {
+        final InvertedIndex index = new InvertedIndex();
+        index.put(IndexedText.question(1, "How to configure Spring transactions?"));
+        index.put(IndexedText.question(2, "Spring boot with Undertow, spring security and spring data"));
+        index.put(IndexedText.question(3, "Hibernate second level cache"));
+        index.put(IndexedText.comment(10, 3, "Spring has a cache abstraction too"));
+
+        assertEquals(getIds(index.search(Tokenizer.terms("spring"), null, 10)), Arrays.asList(2L, 1L, 3L));
+        assertEquals(getIds(index.search(Tokenizer.terms("SPRING cache"), null, 1)), Collections.singletonList(3L));
+        assertTrue(index.search(Tokenizer.terms("the"), null, 10).isEmpty());
+
+        index.put(IndexedText.comment(10, 3, "Use the query cache"));
+        index.put(IndexedText.question(2, "Undertow"));
+        assertEquals(getIds(index.search(Tokenizer.terms("spring"), null, 10)), Collections.singletonList(1L));
+        assertEquals(index.getDocumentCount(), 3);
+    }
+
+    public void search_pagesWithCursor() {
+        final InvertedIndex index = new InvertedIndex();
+        for (long id = 1; id <= 25; id++) {
+            index.put(IndexedText.question(id, id % 2 == 0 ? "java java" : "java"));
+        }
+
+        final Set<String> terms = Tokenizer.terms("java");
+        final List<SearchHit> all = index.search(terms, null, 100);
+        assertEquals(all.size(), 25);
+
+        final List<SearchHit> firstPage = index.search(terms, null, 10);
+        final List<SearchHit> secondPage = index.search(terms, SearchHit.fromCursor(firstPage.get(9).toCursor()), 10);
+        final List<SearchHit> lastPage = index.search(terms, secondPage.get(9), 10);
+
+        assertEquals(firstPage, all.subList(0, 10));
+        assertEquals(secondPage, all.subList(10, 20));
+        assertEquals(lastPage, all.subList(20, 25));
+    }
+
+    public void segmentStore_restoresSnapshotAndSegments() throws IOException {
+        final Path directory = Files.createTempDirectory("search");
+        final InvertedIndex index = new InvertedIndex();
+
+        try (SegmentStore store = new SegmentStore(directory)) {
+            store.open(index::put);
+            put(index, store, IndexedText.question(1, "spring transactions"));
+            put(index, store, IndexedText.question(2, "hibernate cache"));
+            store.snapshot(index::forEachText);
+            put(index, store, IndexedText.comment(3, 2, "spring cache"));
+            put(index, store, IndexedText.question(1, "undertow"));
+        }
+
+        final InvertedIndex restored = new InvertedIndex();
+        try (SegmentStore store = new SegmentStore(directory)) {
+            store.open(restored::put);
+        }
+
+        final Set<String> terms = Tokenizer.terms("spring cache undertow");
+        assertEquals(restored.search(terms, null, 10), index.search(terms, null, 10));
+        assertEquals(restored.getMaxId(IndexedText.Type.COMMENT), 3L);
+    }
+
+    private static void put(InvertedIndex index, SegmentStore store, IndexedText text) throws IOException {
+        index.put(text);
+        store.append(text);
+    }
+
+    private static List<Long> getIds(List<SearchHit> hits) {
+        return hits.stream()
+                .map(SearchHit::getQuestionId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,39 @@
+package com.yaqa.service.search;
+
+import com.yaqa.dao.projection.TagCount;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test
+public class TagPrefixIndexTest {
+
+    public void complete_ranksByQuestionCount() {
+        final TagPrefixIndex index = new TagPrefixIndex();
+        index.reset(Arrays.asList(
+                new TagCount(1L, "java", 10L), new TagCount(2L, "JavaScript", 30L), new TagCount(3L, "jvm", 5L),
+                new TagCount(4L, "javadoc", 1L), new TagCount(5L, "kotlin", 7L)));
+
+        assertEquals(getNames(index.complete("JAV", 10)), Arrays.asList("JavaScript", "java", "javadoc"));
+        assertEquals(getNames(index.complete("j", 2)), Arrays.asList("JavaScript", "java"));
+        assertTrue(index.complete("scala", 10).isEmpty());
+        assertTrue(index.complete(" ", 10).isEmpty());
+
+        index.addToCount(4L, 20);
+        index.addAll(Collections.singletonList(new TagCount(6L, "javaee", 15L)));
+        assertEquals(getNames(index.complete("java", 3)), Arrays.asList("JavaScript", "javadoc", "javaee"));
+        assertEquals(index.getMaxId(), 6L);
+    }
+
+    private static List<String> getNames(List<TagCount> tags) {
+        return tags.stream()
+                .map(TagCount::getTagName)
+                .collect(Collectors.toList());
+    }
+}
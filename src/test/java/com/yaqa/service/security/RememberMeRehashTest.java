@@ -0,0 +1,110 @@
+package com.yaqa.service.security;
+
+import com.yaqa.config.DaoConfig;
+import com.yaqa.config.ServiceConfig;
+import com.yaqa.dao.UserDao;
+import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.service.AuthenticationService;
+import com.yaqa.service.UserService;
+import com.yaqa.util.TestUtils;
+import com.yaqa.web.model.UpdateUserProfileRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.authentication.rememberme.AbstractRememberMeServices;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.Cookie;
+import javax.sql.DataSource;
+
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+/**
+ * The password is rehashed in a transaction of its own, like after a login, so the user is created and
+ * removed by the test.
+ */
+@Test
+@ContextConfiguration(classes = {DaoConfig.class, ServiceConfig.class})
+@ActiveProfiles("test")
+public class RememberMeRehashTest extends AbstractTestNGSpringContextTests {
+    private static final String PASSWORD = "password";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private UserEntity user;
+
+    @BeforeMethod
+    public void createUser() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            // hashed with a lower cost than the configured one
+            user = new UserEntity("rememberMeRehash", new BCryptPasswordEncoder(4).encode(PASSWORD),
+                    null, null, null, null);
+            userDao.save(user);
+            return null;
+        });
+    }
+
+    @AfterMethod
+    public void removeUser() {
+        new JdbcTemplate(dataSource).update("delete from users where id = ?", user.getId());
+        authenticationService.evict(user.getUsername());
+    }
+
+    public void autoLogin_afterRehash() {
+        final SignedRememberMeServices services = new SignedRememberMeServices("secret", authenticationService);
+
+        // the cookie is issued before the success handler rehashes the password
+        final MockHttpServletRequest loginRequest = new MockHttpServletRequest();
+        loginRequest.setParameter(AbstractRememberMeServices.DEFAULT_PARAMETER, "true");
+        final MockHttpServletResponse loginResponse = new MockHttpServletResponse();
+        services.loginSuccess(loginRequest, loginResponse,
+                new UsernamePasswordAuthenticationToken(user.getUsername(), null));
+        final Cookie cookie = loginResponse.getCookie(AbstractRememberMeServices.SPRING_SECURITY_REMEMBER_ME_COOKIE_KEY);
+
+        TestUtils.setCurrentAuthenticatedUser(user);
+        userService.rehashPasswordIfNeeded(PASSWORD);
+        assertNotEquals(currentHash(), user.getPassword());
+
+        assertNotNull(autoLogin(services, cookie));
+
+        userService.updateUser(new UpdateUserProfileRequest("new password", null, null, null, null, null));
+        assertNull(autoLogin(services, cookie));
+    }
+
+    private String currentHash() {
+        return new JdbcTemplate(dataSource).queryForObject("select password from users where id = ?",
+                String.class, user.getId());
+    }
+
+    private static Authentication autoLogin(SignedRememberMeServices services, Cookie cookie) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(cookie);
+        return services.autoLogin(request, new MockHttpServletResponse());
+    }
+}
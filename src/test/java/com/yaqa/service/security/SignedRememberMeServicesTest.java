@@ -0,0 +1,100 @@
+package com.yaqa.service.security;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.rememberme.AbstractRememberMeServices;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.Cookie;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+@Test
+public class SignedRememberMeServicesTest {
+    private static final String COOKIE_NAME = AbstractRememberMeServices.SPRING_SECURITY_REMEMBER_ME_COOKIE_KEY;
+
+    private final Map<String, AuthenticatedUser> users = new HashMap<>();
+
+    private final SignedRememberMeServices services = new SignedRememberMeServices("secret",
+            username -> {
+                final AuthenticatedUser user = users.get(username);
+                return new AuthenticatedUser(user.getUserId(), user.getUsername(), user.getPassword(),
+                        user.getPasswordVersion());
+            });
+
+    public void autoLogin_hp() {
+        users.put("a:b", new AuthenticatedUser(1L, "a:b", "hash", 0));
+        final Cookie cookie = login("a:b");
+
+        final Authentication authentication = autoLogin(cookie);
+        assertNotNull(authentication);
+        assertEquals(((AuthenticatedUser) authentication.getPrincipal()).getUserId(), Long.valueOf(1));
+        assertEquals(authentication.getName(), "a:b");
+    }
+
+    public void autoLogin_tamperedOrChangedPassword() {
+        users.put("user", new AuthenticatedUser(1L, "user", "hash", 0));
+        users.put("other", new AuthenticatedUser(2L, "other", "hash", 0));
+        final Cookie cookie = login("user");
+
+        final String tokens = new String(Base64.getDecoder().decode(padded(cookie.getValue())));
+        final Cookie tampered = new Cookie(COOKIE_NAME, Base64.getEncoder().encodeToString(
+                tokens.replaceFirst("^1:", "2:").replaceFirst(":user$", ":other").getBytes()));
+        assertNull(autoLogin(tampered));
+
+        users.put("user", new AuthenticatedUser(1L, "user", "changed", 1));
+        assertNull(autoLogin(cookie));
+    }
+
+    public void autoLogin_rehashedPassword() {
+        users.put("user", new AuthenticatedUser(1L, "user", "hash", 0));
+        final Cookie cookie = login("user");
+
+        users.put("user", new AuthenticatedUser(1L, "user", "rehashed", 0));
+        assertNotNull(autoLogin(cookie));
+    }
+
+    public void logout_revokesToken() {
+        users.put("user", new AuthenticatedUser(1L, "user", "hash", 0));
+        final Cookie cookie = login("user");
+        final Cookie otherCookie = login("user");
+
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(cookie);
+        services.logout(request, new MockHttpServletResponse(), null);
+
+        assertEquals(services.getRevokedTokenCount(), 1);
+        assertNull(autoLogin(cookie));
+        assertNotNull(autoLogin(otherCookie));
+    }
+
+    private Cookie login(String username) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter(AbstractRememberMeServices.DEFAULT_PARAMETER, "true");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+
+        services.loginSuccess(request, response, new UsernamePasswordAuthenticationToken(username, null));
+        return response.getCookie(COOKIE_NAME);
+    }
+
+    private Authentication autoLogin(Cookie cookie) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(cookie);
+        return services.autoLogin(request, new MockHttpServletResponse());
+    }
+
+    private static String padded(String value) {
+        final StringBuilder padded = new StringBuilder(value);
+        while (padded.length() % 4 != 0) {
+            padded.append('=');
+        }
+        return padded.toString();
+    }
+}
@@ -1,12 +1,16 @@
 package com.yaqa.util;
 
 import com.yaqa.dao.entity.UserEntity;
+import com.yaqa.dao.jdbc.QueryStats;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 
 import java.util.Collections;
+import java.util.function.Supplier;
+
+import static org.testng.Assert.assertTrue;
 
 public class TestUtils {
 
@@ -16,4 +20,18 @@ public class TestUtils {
         context.setAuthentication(new UsernamePasswordAuthenticationToken(principal, null));
     }
 
+    /**
+     * Fails if the action executes more than the given number of statements, e.g. because of lazy loading
+     * in a loop. Pending changes are flushed by the first query, so they should be flushed before.
+     */
+    public static <T> T assertStatementBudget(int budget, Supplier<T> action) {
+        try (QueryStats stats = QueryStats.begin()) {
+            final T result = action.get();
+            assertTrue(stats.getStatementCount() <= budget,
+                    "Expected at most " + budget + " statements but got " + stats +
+                            ", slowest: " + stats.getSlowestSql());
+            return result;
+        }
+    }
+
 }